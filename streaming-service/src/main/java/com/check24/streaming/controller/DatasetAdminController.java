@@ -0,0 +1,73 @@
+package com.check24.streaming.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import com.check24.streaming.service.DataService;
+
+/**
+ * Operations that change the published dataset for every user. Kept out of WebController so they are not
+ * covered by its wildcard CORS policy: browsers on other origins cannot call them. Every request must carry
+ * the configured admin token in the X-Admin-Token header; without a configured token (streaming.admin.token)
+ * the operations are disabled.
+ */
+@RestController
+@RequestMapping("/api/dataset")
+public class DatasetAdminController {
+    static final String TOKEN_HEADER = "X-Admin-Token";
+
+    private final DataService dataService;
+    private final byte[] adminToken; /** Expected header value, empty if the operations are disabled */
+
+    public DatasetAdminController(DataService dataService, @Value("${streaming.admin.token:}") String adminToken) {
+        this.dataService = dataService;
+        this.adminToken = adminToken.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Rebuild the dataset from the CSV files in the background, poll /dataset for the new version
+    @PostMapping("/reload")
+    public ResponseEntity<?> reloadDataset(@RequestHeader(name = TOKEN_HEADER, required = false) String token) {
+        if (!authorized(token)) {
+            return forbidden();
+        }
+        dataService.reload();
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(dataService.getDatasetInfo());
+    }
+
+    // Apply added or changed offers (bc_streaming_offer.csv format) in the background
+    @PostMapping(value = "/offers", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE})
+    public ResponseEntity<?> updateOffers(@RequestHeader(name = TOKEN_HEADER, required = false) String token,
+                                          @RequestBody String offersCsv) {
+        if (!authorized(token)) {
+            return forbidden();
+        }
+        dataService.applyOfferDelta(offersCsv);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(dataService.getDatasetInfo());
+    }
+
+    // Constant-time comparison, so response times do not reveal how much of a guessed token is right
+    private boolean authorized(String token) {
+        return adminToken.length > 0 && token != null
+            && MessageDigest.isEqual(adminToken, token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private ResponseEntity<String> forbidden() {
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).body(adminToken.length == 0
+            ? "Dataset administration is disabled, set streaming.admin.token to enable it"
+            : "Missing or wrong " + TOKEN_HEADER + " header");
+    }
+
+    //Error handling
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<String> handleException(Exception e) {
+        return ResponseEntity
+            .badRequest()
+            .body("Error processing request: " + e.getMessage());
+    }
+}
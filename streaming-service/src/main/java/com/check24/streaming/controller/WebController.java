@@ -1,19 +1,44 @@
 package com.check24.streaming.controller;
 
 import org.springframework.web.bind.annotation.*;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import com.check24.streaming.model.BatchSearchResult;
+import com.check24.streaming.model.DatasetInfo;
 import com.check24.streaming.model.FilterOptions;
+import com.check24.streaming.model.FilteredPackages;
+import com.check24.streaming.model.SearchResult;
 import com.check24.streaming.model.SearchRequest;
+import com.check24.streaming.service.CombinationJobService;
 import com.check24.streaming.service.DataService;
 import com.check24.streaming.service.PackageCombinationService;
 import com.check24.streaming.service.PackageFilterService;
+import com.check24.streaming.service.UnknownSearchResultException;
 
-import java.util.Collection;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 import com.check24.streaming.model.BestCombination;
-import com.check24.streaming.model.StreamingPackageDTO;
+import com.check24.streaming.model.CacheStats;
+import com.check24.streaming.model.CombinationJob;
+import com.check24.streaming.model.CombinationStrategy;
+import com.check24.streaming.model.CompactBestCombination;
+import com.check24.streaming.model.CoverageFrontier;
+import com.check24.streaming.model.CoveragePreference;
+import com.check24.streaming.model.GamePage;
+import com.check24.streaming.model.SubscriptionOptions;
 
 @RestController
 @RequestMapping("/api")
@@ -22,72 +47,255 @@ public class WebController {
     private final DataService dataService;
     private final PackageFilterService packageFilterService;
     private final PackageCombinationService packageCombinationService;
+    private final CombinationJobService combinationJobService;
+    private final ObjectMapper objectMapper;
 
     public WebController(DataService dataService, 
-                        PackageFilterService packageFilterService, PackageCombinationService packageCombinationService
+                        PackageFilterService packageFilterService, PackageCombinationService packageCombinationService,
+                        CombinationJobService combinationJobService, ObjectMapper objectMapper
                        ) {
         this.dataService = dataService;
         this.packageFilterService = packageFilterService;
         this.packageCombinationService = packageCombinationService;
+        this.combinationJobService = combinationJobService;
+        this.objectMapper = objectMapper;
     }
     
-    // Get all teams
+    private static final int DEFAULT_LOOKUP_LIMIT = 20;
+
+    // Get teams: all of them, or the best matches for a typed prefix when prefix or limit is given
     @GetMapping("/teams")
-    public ResponseEntity<List<String>> getAllTeams() {
-        return ResponseEntity.ok(dataService.getAllTeams());
+    public ResponseEntity<List<String>> getAllTeams(@RequestParam(required = false) String prefix,
+                                                    @RequestParam(required = false) Integer limit) {
+        if (prefix == null && limit == null) {
+            return ResponseEntity.ok(dataService.getAllTeams());
+        }
+        return ResponseEntity.ok(dataService.searchTeams(prefix, lookupLimit(limit)));
     }
 
-    // Get all tournaments
+    // Get tournaments, same parameters as /teams
     @GetMapping("/tournaments")
-    public ResponseEntity<List<String>> getAllTournaments() {
-        return ResponseEntity.ok(dataService.getAllTournaments());
+    public ResponseEntity<List<String>> getAllTournaments(@RequestParam(required = false) String prefix,
+                                                          @RequestParam(required = false) Integer limit) {
+        if (prefix == null && limit == null) {
+            return ResponseEntity.ok(dataService.getAllTournaments());
+        }
+        return ResponseEntity.ok(dataService.searchTournaments(prefix, lookupLimit(limit)));
+    }
+
+    private static int lookupLimit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LOOKUP_LIMIT;
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        return limit;
     }
 
-    // Filter packages
+    // Filter packages of a previous search, optionally one page at a time
     public record FilterRequest(
-    Collection<StreamingPackageDTO> packages,
-    FilterOptions filterOptions
+    String resultId,
+    FilterOptions filterOptions,
+    Integer offset,
+    Integer limit
     ) {}
 
     @PostMapping("/filter")
-    public Collection<StreamingPackageDTO> filter(@RequestBody FilterRequest request) {
-        return packageFilterService.filter(request.packages(), request.filterOptions());
+    public FilteredPackages filter(@RequestBody FilterRequest request) {
+        return packageFilterService.filter(request.resultId(), request.filterOptions(), request.offset(), request.limit());
     }
 
 
     // Search packages
     @PostMapping("/search")
-    public ResponseEntity<Collection<StreamingPackageDTO>> searchPackages(@RequestBody SearchRequest request) {
+    public ResponseEntity<SearchResult> searchPackages(@RequestBody SearchRequest request) {
         return ResponseEntity.ok(
-            packageFilterService.searchByTeamsAndTournaments(
+            packageFilterService.search(
                 request.teams(), 
-                request.tournaments()
+                request.tournaments(),
+                request.from(),
+                request.to()
             )
         );
     }
 
 
-    // Compare packages
+    // Search many selections at once. Streams one JSON object per selection and line (NDJSON) as soon as it is computed.
+    @PostMapping(value = "/search/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> searchPackagesBatch(@RequestBody List<SearchRequest> requests) {
+        Stream<BatchSearchResult> results = packageFilterService.searchBatch(requests); // validates before streaming
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(out -> {
+                for (BatchSearchResult result : (Iterable<BatchSearchResult>) results::iterator) {
+                    out.write(objectMapper.writeValueAsBytes(result));
+                    out.write('\n');
+                    out.flush();
+                }
+            });
+    }
+
+
+    // Compare packages, optionally only for the games between from and to (ISO dates, inclusive), with the exact solver
+    // and with a subscription plan allowing yearly subscriptions and charging a switching cost per started subscription.
+    // preference LIVE or HIGHLIGHTS only counts games offered that way as covered, by default any offer covers a game.
+    // Packages are given by id, their prices and coverage for the selection are looked up on the server
     public record CompareRequest(
         List<String> teams,
         List<String> tournaments,
-        Collection<StreamingPackageDTO> packages
+        List<Integer> packageIds,
+        LocalDate from,
+        LocalDate to,
+        CombinationStrategy strategy,
+        Boolean allowYearly,
+        Double switchingCostCents,
+        CoveragePreference preference
     ) {}
 
+    // view=compact replaces the games per team/tournament by counts and game ids, details come from /games
     @PostMapping("/best-combination")
-    public @ResponseBody ResponseEntity<BestCombination> comparePackages(
-        @RequestBody CompareRequest request) {
-        return ResponseEntity.ok(
-            packageCombinationService.getBestPackageCombinations(
-                request.teams, 
-                request.tournaments, 
-                request.packages
-            )
+    public @ResponseBody ResponseEntity<?> comparePackages(
+        @RequestBody CompareRequest request,
+        @RequestParam(required = false) String view) {
+        Function<BestCombination, ?> combinationView = combinationView(view);
+        BestCombination combination = packageCombinationService.getBestPackageCombinations(
+            request.teams, 
+            request.tournaments, 
+            request.from,
+            request.to,
+            request.strategy,
+            subscriptionOptions(request),
+            request.preference,
+            request.packageIds
         );
+        return ResponseEntity.ok(combinationView.apply(combination));
+    }
+
+    // The combinations for LIVE and for HIGHLIGHTS coverage of the same request, solved together (preference is ignored)
+    @PostMapping("/best-combination/preferences")
+    public @ResponseBody ResponseEntity<Map<CoveragePreference, ?>> comparePackagesByPreference(
+        @RequestBody CompareRequest request,
+        @RequestParam(required = false) String view) {
+        Function<BestCombination, ?> combinationView = combinationView(view);
+        Map<CoveragePreference, BestCombination> combinations = packageCombinationService.getBestPackageCombinationsByPreference(
+            request.teams, request.tournaments, request.from, request.to, request.strategy, subscriptionOptions(request), request.packageIds);
+        Map<CoveragePreference, Object> views = new LinkedHashMap<>();
+        combinations.forEach((preference, combination) -> views.put(preference, combinationView.apply(combination)));
+        return ResponseEntity.ok(views);
+    }
+
+    private static Function<BestCombination, ?> combinationView(String view) {
+        if (view == null || view.equals("full")) {
+            return Function.identity();
+        }
+        if (view.equals("compact")) {
+            return CompactBestCombination::from;
+        }
+        throw new IllegalArgumentException("view must be full or compact");
+    }
+
+    private static SubscriptionOptions subscriptionOptions(CompareRequest request) {
+        return new SubscriptionOptions(Boolean.TRUE.equals(request.allowYearly),
+            request.switchingCostCents == null ? 0 : request.switchingCostCents);
+    }
+
+
+    // Static combinations not dominated in monthly cost and coverage, cheapest first (strategy and subscription fields are ignored)
+    @PostMapping("/best-combination/frontier")
+    public CoverageFrontier getCoverageFrontier(@RequestBody CompareRequest request) {
+        return packageCombinationService.getCoverageFrontier(request.teams, request.tournaments, request.from, request.to,
+            request.preference, request.packageIds);
+    }
+
+
+    // Same request as /best-combination, answered right away with the greedy combination while the exact solver
+    // improves it in the background (strategy is ignored). Poll the job or follow its events until it is finished.
+    @PostMapping("/best-combination/jobs")
+    public ResponseEntity<CombinationJob<?>> submitCombinationJob(
+        @RequestBody CompareRequest request,
+        @RequestParam(required = false) String view) {
+        Function<BestCombination, ?> combinationView = combinationView(view);
+        CombinationJob<BestCombination> job = combinationJobService.submit(request.teams, request.tournaments, request.from, request.to,
+            subscriptionOptions(request), request.preference, request.packageIds);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job.map(combinationView));
+    }
+
+    @GetMapping("/best-combination/jobs/{id}")
+    public CombinationJob<?> getCombinationJob(@PathVariable String id, @RequestParam(required = false) String view) {
+        return combinationJobService.get(id).map(combinationView(view));
+    }
+
+    // Server-Sent Events: the current state of the job, then every change until it is finished
+    @GetMapping(value = "/best-combination/jobs/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamCombinationJob(@PathVariable String id, @RequestParam(required = false) String view) {
+        Function<BestCombination, ?> combinationView = combinationView(view);
+        SseEmitter emitter = new SseEmitter(combinationJobService.getTtlMillis());
+        Runnable unsubscribe = combinationJobService.subscribe(id, job -> {
+            try {
+                emitter.send(SseEmitter.event().id(Integer.toString(job.revision())).name("job").data(job.map(combinationView)));
+            } catch (IOException e) {
+                emitter.completeWithError(e);
+                throw new UncheckedIOException(e);
+            }
+            if (job.isFinished()) {
+                emitter.complete();
+            }
+        });
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(e -> unsubscribe.run()); // e.g. the client disconnected
+        return emitter;
+    }
+
+    @DeleteMapping("/best-combination/jobs/{id}")
+    public CombinationJob<?> cancelCombinationJob(@PathVariable String id, @RequestParam(required = false) String view) {
+        return combinationJobService.cancel(id).map(combinationView(view));
+    }
+
+
+    // Game details for ids of a compact best combination, optionally one page at a time
+    public record GamesRequest(
+        List<Integer> gameIds,
+        Integer offset,
+        Integer limit
+    ) {}
+
+    @PostMapping("/games")
+    public GamePage getGames(@RequestBody GamesRequest request) {
+        return dataService.getGames(request.gameIds(), request.offset(), request.limit());
+    }
+
+
+    // Dataset version
+    @GetMapping("/dataset")
+    public ResponseEntity<DatasetInfo> getDatasetInfo() {
+        return ResponseEntity.ok(dataService.getDatasetInfo());
+    }
+
+    // Reloading and updating the dataset are admin operations, see DatasetAdminController
+
+
+    // Hit, miss and eviction counters of the result caches
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, CacheStats>> getCacheStats() {
+        Map<String, CacheStats> stats = new LinkedHashMap<>();
+        stats.put("search", packageFilterService.getCacheStats());
+        stats.put("bestCombination", packageCombinationService.getCacheStats());
+        stats.put("frontier", packageCombinationService.getFrontierCacheStats());
+        return ResponseEntity.ok(stats);
     }
 
 
     //Error handling
+    // An expired search result is not a client error, the client searches again and retries
+    @ExceptionHandler(UnknownSearchResultException.class)
+    public ResponseEntity<String> handleUnknownSearchResult(UnknownSearchResultException e) {
+        return ResponseEntity
+            .status(HttpStatus.GONE)
+            .body(e.getMessage());
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<String> handleException(Exception e) {
         return ResponseEntity
@@ -0,0 +1,14 @@
+package com.check24.streaming.model;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+
+/**
+ * One line of the /api/search/batch response: the relevant packages of the selection at position index of the
+ * request. Teams and tournaments are the canonical (sorted, de-duplicated) form of that selection, from and to
+ * its time window as requested.
+ */
+public record BatchSearchResult(int index, long datasetVersion, List<String> teams, List<String> tournaments,
+                                LocalDate from, LocalDate to, Collection<StreamingPackageDTO> packages) {}
@@ -6,6 +6,7 @@ import java.util.Map;
 import java.util.Set;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -18,9 +19,14 @@ public class BestCombination {
     private CombinationType type;
     private double totalCost;
     private List<PackagePeriod> packages;
-    private Map<String, Set<Game>> coveredGames;
-    private Map<String, Set<Game>> uncoveredGames;
+    private Map<String, List<Game>> coveredGames;
+    private Map<String, List<Game>> uncoveredGames;
     private double coveragePercentage;
+    /* Number of requested packages left out before solving, since another package covers their games at no higher price */
+    private int prunedPackages;
+    /* Relative distance of totalCost to the proven lower bound, only set by the exact strategy (0 = optimal) and not for subscription plans */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double optimalityGap;
 
 
     @Data
@@ -30,13 +36,24 @@ public class BestCombination {
         private String endMonthYear;
         private Set<StreamingPackageDTO> packages;
         private double periodCost;
+        /* How the packages are paid for, only set for subscription plans (allowYearly or switchingCostCents) */
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private Billing billing;
+
+        public PackagePeriod(String startMonthYear, String endMonthYear, Set<StreamingPackageDTO> packages, double periodCost) {
+            this(startMonthYear, endMonthYear, packages, periodCost, null);
+        }
     }
 
     public enum CombinationType {
         STATIC, SEQUENTIAL;
     }
 
-    public BestCombination(double totalCost, List<PackagePeriod> packages, Map<String, Set<Game>> coveredGames, Map<String, Set<Game>> uncoveredGames, double coveragePercentage) {
+    public enum Billing {
+        MONTHLY, YEARLY;
+    }
+
+    public BestCombination(double totalCost, List<PackagePeriod> packages, Map<String, List<Game>> coveredGames, Map<String, List<Game>> uncoveredGames, double coveragePercentage) {
         this.type = CombinationType.SEQUENTIAL;
         this.totalCost = totalCost;
         this.packages = packages;
@@ -45,7 +62,7 @@ public class BestCombination {
         this.coveragePercentage = coveragePercentage;
     }
 
-    public BestCombination(double totalCost, Set<StreamingPackageDTO> packages, Map<String, Set<Game>> coveredGames, Map<String, Set<Game>> uncoveredGames, double coveragePercentage) {
+    public BestCombination(double totalCost, Set<StreamingPackageDTO> packages, Map<String, List<Game>> coveredGames, Map<String, List<Game>> uncoveredGames, double coveragePercentage) {
         this.type = CombinationType.STATIC;
         this.totalCost = totalCost;
         this.packages = new ArrayList<>();
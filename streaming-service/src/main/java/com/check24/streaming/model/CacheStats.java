@@ -0,0 +1,11 @@
+package com.check24.streaming.model;
+
+
+/**
+ * Counters of one result cache since startup.
+ * @param evictions Entries dropped to stay within the weight limit or because the dataset version changed
+ * @param expirations Entries dropped because they outlived the TTL
+ * @param weightBytes Approximate memory held by the cached entries
+ */
+public record CacheStats(long hits, long misses, long evictions, long expirations,
+                         int entries, long weightBytes, long maxWeightBytes) {}
@@ -0,0 +1,46 @@
+package com.check24.streaming.model;
+
+import java.util.function.Function;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+
+/**
+ * State of an asynchronous best combination job (/api/best-combination/jobs).
+ * The combination starts as the greedy one and is replaced whenever the exact solver finds a cheaper or better
+ * bounded combination; its optimalityGap is null until the first bound is proven, and stays null for subscription plans.
+ *
+ * @param revision Incremented with every change of the combination or status, starting at 1
+ * @param elapsedMillis Time since the job was submitted
+ * @param combination Best combination so far
+ * @param error Reason a job FAILED, null otherwise
+ * @param <T> BestCombination or CompactBestCombination, depending on the requested view
+ */
+public record CombinationJob<T>(
+    String id,
+    Status status,
+    int revision,
+    long elapsedMillis,
+    T combination,
+    @JsonInclude(JsonInclude.Include.NON_NULL) String error
+) {
+    public enum Status {
+        RUNNING,    // Greedy combination available, the exact solver is still improving it
+        OPTIMAL,    // The combination is proven optimal
+        TIME_LIMIT, // The time budget ran out, the combination reports its optimality gap
+        COMPLETED,  // The solver finished a subscription plan, which has no proven bound and reports no optimality gap
+        CANCELLED,  // Cancelled or expired before finishing, the combination is the best one found until then
+        FAILED      // The exact solver failed, the combination is the last one published
+    }
+
+    @JsonIgnore
+    public boolean isFinished() {
+        return status != Status.RUNNING;
+    }
+
+    // Same job with the combination converted, e.g. to its compact view
+    public <R> CombinationJob<R> map(Function<T, R> view) {
+        return new CombinationJob<>(id, status, revision, elapsedMillis, view.apply(combination), error);
+    }
+}
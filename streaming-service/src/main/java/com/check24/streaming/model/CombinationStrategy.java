@@ -0,0 +1,8 @@
+package com.check24.streaming.model;
+
+/* How /api/best-combination picks packages: the greedy heuristic or the exact solver within a time budget */
+public enum CombinationStrategy 
+{
+        GREEDY,
+        EXACT;
+}
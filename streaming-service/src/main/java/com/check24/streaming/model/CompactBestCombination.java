@@ -0,0 +1,49 @@
+package com.check24.streaming.model;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.check24.streaming.model.BestCombination.CombinationType;
+import com.check24.streaming.model.BestCombination.PackagePeriod;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+
+/**
+ * BestCombination with the game breakdown reduced to counts and game ids per team or tournament.
+ * Returned by /api/best-combination?view=compact; game details can be fetched page by page from /api/games.
+ */
+public record CompactBestCombination(
+    CombinationType type,
+    double totalCost,
+    List<PackagePeriod> packages,
+    Map<String, EntityGames> coveredGames,
+    Map<String, EntityGames> uncoveredGames,
+    double coveragePercentage,
+    int prunedPackages,
+    @JsonInclude(JsonInclude.Include.NON_NULL) Double optimalityGap
+) {
+    /** Games of one team or tournament, ids in the same order as the full response */
+    public record EntityGames(int count, int[] gameIds) {}
+
+    // Convert BestCombination to its compact view
+    public static CompactBestCombination from(BestCombination combination) {
+        return new CompactBestCombination(
+            combination.getType(),
+            combination.getTotalCost(),
+            combination.getPackages(),
+            compact(combination.getCoveredGames()),
+            compact(combination.getUncoveredGames()),
+            combination.getCoveragePercentage(),
+            combination.getPrunedPackages(),
+            combination.getOptimalityGap()
+        );
+    }
+
+    private static Map<String, EntityGames> compact(Map<String, List<Game>> gamesByEntity) {
+        Map<String, EntityGames> result = new LinkedHashMap<>();
+        gamesByEntity.forEach((entity, games) ->
+            result.put(entity, new EntityGames(games.size(), games.stream().mapToInt(Game::getId).toArray())));
+        return result;
+    }
+}
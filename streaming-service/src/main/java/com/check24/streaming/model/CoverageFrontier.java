@@ -0,0 +1,21 @@
+package com.check24.streaming.model;
+
+import java.util.List;
+
+
+/**
+ * Response of /api/best-combination/frontier: static combinations of a selection that are not dominated in monthly
+ * cost and coverage, cheapest first. Every point covers more of the selected games than all cheaper ones.
+ *
+ * @param totalGames Number of selected games
+ * @param prunedPackages Number of requested packages left out since another package covers their games at no higher price
+ */
+public record CoverageFrontier(long datasetVersion, int totalGames, int prunedPackages, List<Point> points) {
+    /**
+     * @param monthlyCost Sum of the monthly prices of the packages
+     * @param coveredGames Selected games offered by any of the packages
+     * @param coveragePercentage Share of the selected games covered, between 0 and 1 like BestCombination.coveragePercentage
+     * @param packages The packages in the order they were added
+     */
+    public record Point(double monthlyCost, int coveredGames, double coveragePercentage, List<StreamingPackageDTO> packages) {}
+}
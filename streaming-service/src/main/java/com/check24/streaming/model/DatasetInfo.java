@@ -0,0 +1,8 @@
+package com.check24.streaming.model;
+
+
+/**
+ * Version and size of the currently published dataset. Clients and caches can key on the version,
+ * it changes whenever the data is reloaded or offers are updated.
+ */
+public record DatasetInfo(long version, int games, int offers, int packages) {}
@@ -0,0 +1,11 @@
+package com.check24.streaming.model;
+
+import java.util.List;
+
+
+/**
+ * One page of a filtered and sorted search result.
+ * @param total Number of packages matching the filter, across all pages
+ * @param offset Position of the first package of this page
+ */
+public record FilteredPackages(String resultId, int total, int offset, List<StreamingPackageDTO> packages) {}
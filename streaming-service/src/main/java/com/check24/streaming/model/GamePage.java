@@ -0,0 +1,11 @@
+package com.check24.streaming.model;
+
+import java.util.List;
+
+
+/**
+ * One page of games requested by id from /api/games.
+ * @param total Number of requested ids, across all pages
+ * @param offset Position of the first game of this page
+ */
+public record GamePage(int total, int offset, List<Game> games) {}
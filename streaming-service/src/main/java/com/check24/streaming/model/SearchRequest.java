@@ -1,6 +1,11 @@
 package com.check24.streaming.model;
 
+import java.time.LocalDate;
 import java.util.List;
 
 
-public record  SearchRequest (List<String> teams, List<String> tournaments) {}
+/**
+ * Teams and tournaments to search for. from and to (ISO dates, both inclusive) optionally restrict the search
+ * to the games starting in that period, e.g. the rest of a season.
+ */
+public record  SearchRequest (List<String> teams, List<String> tournaments, LocalDate from, LocalDate to) {}
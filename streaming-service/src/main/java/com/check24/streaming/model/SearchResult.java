@@ -0,0 +1,10 @@
+package com.check24.streaming.model;
+
+import java.util.Collection;
+
+
+/**
+ * Response of /api/search. The packages are kept on the server for a while under resultId,
+ * so /api/filter can filter and sort them without the client sending them back.
+ */
+public record SearchResult(String resultId, long datasetVersion, Collection<StreamingPackageDTO> packages) {}
@@ -0,0 +1,15 @@
+package com.check24.streaming.model;
+
+/**
+ * How a sequential best combination may be paid for.
+ * @param allowYearly Whether packages may be booked as yearly subscriptions at their yearly subscription price
+ * @param switchingCostCents Penalty for every subscription that is started, 0 for none
+ */
+public record SubscriptionOptions(boolean allowYearly, double switchingCostCents) {
+    /** One monthly payment per month and package, the plain sequential combination */
+    public static final SubscriptionOptions MONTHLY = new SubscriptionOptions(false, 0);
+
+    public boolean isMonthly() {
+        return !allowYearly && switchingCostCents == 0;
+    }
+}
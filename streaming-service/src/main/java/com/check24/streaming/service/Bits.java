@@ -0,0 +1,104 @@
+package com.check24.streaming.service;
+
+/**
+ * Minimal helpers for fixed-size bitsets stored as long[] words.
+ * Used for the game coverage matrices, where counting covered games of a team or tournament
+ * becomes a word-wise AND followed by a popcount.
+ */
+final class Bits
+{
+    private Bits() {}
+
+    public static long[] create(int size) {
+        return new long[(size + 63) >>> 6];
+    }
+
+    public static void set(long[] words, int index) {
+        words[index >>> 6] |= 1L << index;
+    }
+
+    public static boolean get(long[] words, int index) {
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public static int cardinality(long[] words) {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Counts the bits set in both bitsets without allocating an intersection.
+     * @param a First bitset
+     * @param b Second bitset
+     * @return Number of indices present in a and b
+     */
+    public static int andCardinality(long[] a, long[] b) {
+        int length = Math.min(a.length, b.length);
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            count += Long.bitCount(a[i] & b[i]);
+        }
+        return count;
+    }
+
+    /** Sets every bit of source in target. */
+    public static void or(long[] target, long[] source) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] |= source[i];
+        }
+    }
+
+    /** Clears every bit in target that is not set in mask. */
+    public static void and(long[] target, long[] mask) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] &= mask[i];
+        }
+    }
+
+    /** Clears every bit of mask in target. */
+    public static void andNot(long[] target, long[] mask) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] &= ~mask[i];
+        }
+    }
+
+    /** @return Whether every bit set in a is set in b */
+    public static boolean isSubset(long[] a, long[] b) {
+        for (int i = 0; i < a.length; i++) {
+            if ((a[i] & ~b[i]) != 0) return false;
+        }
+        return true;
+    }
+
+    /** @return Whether a bit is set in both a and b */
+    public static boolean intersects(long[] a, long[] b) {
+        for (int i = 0; i < a.length; i++) {
+            if ((a[i] & b[i]) != 0) return true;
+        }
+        return false;
+    }
+
+    /** Sets in target every bit that is set in both a and b. */
+    public static void orAnd(long[] target, long[] a, long[] b) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] |= a[i] & b[i];
+        }
+    }
+
+    /**
+     * @return The index of the first set bit at or after fromIndex, or -1 if there is none
+     */
+    public static int nextSetBit(long[] words, int fromIndex) {
+        int wordIndex = fromIndex >>> 6;
+        if (wordIndex >= words.length) return -1;
+        long word = words[wordIndex] & (-1L << fromIndex);
+        while (true) {
+            if (word != 0) return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+            if (++wordIndex == words.length) return -1;
+            word = words[wordIndex];
+        }
+    }
+}
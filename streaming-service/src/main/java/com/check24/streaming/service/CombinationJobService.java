@@ -0,0 +1,303 @@
+package com.check24.streaming.service;
+
+import java.security.SecureRandom;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.check24.streaming.model.BestCombination;
+import com.check24.streaming.model.CombinationJob;
+import com.check24.streaming.model.CombinationJob.Status;
+import com.check24.streaming.model.CombinationStrategy;
+import com.check24.streaming.model.CoveragePreference;
+import com.check24.streaming.model.SubscriptionOptions;
+
+/**
+ * Asynchronous best combination jobs. Submitting a selection answers right away with the greedy combination
+ * (cached or precomputed like any GREEDY request) and queues an anytime EXACT run on a small worker pool, which
+ * publishes every cheaper or better bounded combination until it proves the optimum or its time budget runs out.
+ * Clients poll the job or subscribe to its changes, and can cancel it.
+ *
+ * Jobs are addressed by random, unguessable ids and live for the same time after submission, so like
+ * SearchResultStore insertion order is expiry order: expired or surplus jobs are dropped from the head of the
+ * queue whenever a job is submitted, and a job that is still running is cancelled when dropped.
+ */
+@Service
+public class CombinationJobService
+{
+    private static final Logger log = LoggerFactory.getLogger(CombinationJobService.class);
+
+    private final PackageCombinationService packageCombinationService;
+    private final long timeBudgetNanos;
+    private final long ttlNanos;
+    private final int capacity;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final Queue<String> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final SecureRandom random = new SecureRandom();
+    private final ExecutorService workers;
+    private final ExecutorService events;
+
+    /**
+     * @param timeBudgetMillis Wall-clock budget of the exact solver of one job (streaming.combination.jobs.time-budget-ms)
+     * @param ttlSeconds How long a job can be fetched after submission (streaming.combination.jobs.ttl-seconds)
+     * @param capacity Maximum number of retained jobs (streaming.combination.jobs.max-jobs)
+     * @param threads Jobs solved at the same time, later ones wait with their greedy combination (streaming.combination.jobs.threads)
+     */
+    public CombinationJobService(PackageCombinationService packageCombinationService,
+                                 @Value("${streaming.combination.jobs.time-budget-ms:30000}") long timeBudgetMillis,
+                                 @Value("${streaming.combination.jobs.ttl-seconds:600}") long ttlSeconds,
+                                 @Value("${streaming.combination.jobs.max-jobs:1000}") int capacity,
+                                 @Value("${streaming.combination.jobs.threads:2}") int threads)
+    {
+        this.packageCombinationService = packageCombinationService;
+        this.timeBudgetNanos = timeBudgetMillis * 1_000_000;
+        this.ttlNanos = ttlSeconds * 1_000_000_000L;
+        this.capacity = capacity;
+        this.workers = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "combination-job");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Listeners may block on slow clients, so each one is called on its own event thread while it has work
+        this.events = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "combination-job-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Computes the greedy combination and queues the exact solver for the same request.
+     * Arguments are the same as for PackageCombinationService.getBestPackageCombinations; invalid ones fail here.
+     *
+     * @return The job in state RUNNING with the greedy combination
+     */
+    public CombinationJob<BestCombination> submit(List<String> teams, List<String> tournaments, LocalDate from, LocalDate to,
+                                                  SubscriptionOptions subscriptions, CoveragePreference preference,
+                                                  List<Integer> packageIds) {
+        BestCombination greedy = packageCombinationService.getBestPackageCombinations(teams, tournaments, from, to,
+            CombinationStrategy.GREEDY, subscriptions, preference, packageIds);
+        List<Integer> jobPackageIds = List.copyOf(packageIds);
+
+        byte[] bytes = new byte[16];
+        random.nextBytes(bytes);
+        Job job = new Job(Base64.getUrlEncoder().withoutPadding().encodeToString(bytes), System.nanoTime(), greedy);
+        jobs.put(job.id, job);
+        insertionOrder.add(job.id);
+        evict(job.createdAt);
+        job.start(workers.submit(() -> {
+            try {
+                BestCombination combination = packageCombinationService.improveBestPackageCombinations(teams, tournaments, from, to,
+                    subscriptions, preference, jobPackageIds, timeBudgetNanos, job::publish);
+                job.finish(finalStatus(combination), combination, null);
+            } catch (RuntimeException e) {
+                log.error("Combination job {} failed", job.id, e);
+                job.finish(Status.FAILED, null, e.getMessage());
+            }
+        }));
+        return job.snapshot();
+    }
+
+    // OPTIMAL or TIME_LIMIT by the optimality gap; a subscription plan has none, its exact solve just completed
+    private static Status finalStatus(BestCombination combination) {
+        if (combination.getOptimalityGap() == null) return Status.COMPLETED;
+        return combination.getOptimalityGap() == 0 ? Status.OPTIMAL : Status.TIME_LIMIT;
+    }
+
+    /** @return The current state of the job */
+    public CombinationJob<BestCombination> get(String id) {
+        return find(id).snapshot();
+    }
+
+    /**
+     * Stops the exact solver of a running job; the job keeps the best combination found until then.
+     * @return The job, CANCELLED unless it had already finished
+     */
+    public CombinationJob<BestCombination> cancel(String id) {
+        Job job = find(id);
+        job.cancel();
+        return job.snapshot();
+    }
+
+    /**
+     * Calls the listener with the current state of the job and, until it finishes, after every change with the
+     * state after that change. The listener runs on an event thread, never while the job is locked, so a slow
+     * listener delays neither the solver nor other callers of the job. States reach it in order; states that
+     * change again before it is done with the previous one are skipped, the final state always arrives.
+     * A listener that throws is unsubscribed.
+     *
+     * @return Unsubscribes the listener
+     */
+    public Runnable subscribe(String id, Consumer<CombinationJob<BestCombination>> listener) {
+        Job job = find(id);
+        Subscriber subscriber = new Subscriber(listener, events);
+        job.subscribe(subscriber);
+        return () -> job.unsubscribe(subscriber);
+    }
+
+    /** @return How long jobs can be fetched after submission */
+    public long getTtlMillis() {
+        return ttlNanos / 1_000_000;
+    }
+
+    private Job find(String id) {
+        Job job = id == null ? null : jobs.get(id);
+        if (job == null || System.nanoTime() - job.createdAt > ttlNanos) {
+            throw new IllegalArgumentException("Combination job " + id + " is unknown or has expired, please submit it again");
+        }
+        return job;
+    }
+
+    private void evict(long now) {
+        String oldest;
+        while ((oldest = insertionOrder.peek()) != null) {
+            Job job = jobs.get(oldest);
+            boolean expired = job == null || now - job.createdAt > ttlNanos;
+            if (!expired && jobs.size() <= capacity) {
+                return;
+            }
+            if (insertionOrder.remove(oldest)) {
+                jobs.remove(oldest);
+                if (job != null) job.cancel();
+            }
+        }
+    }
+
+    /** Mutable state of one job, guarded by the job itself */
+    private static final class Job {
+        private final String id;
+        private final long createdAt;
+        private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        private Future<?> future;
+        private Status status = Status.RUNNING;
+        private int revision = 1;
+        private BestCombination combination;
+        private String error;
+
+        Job(String id, long createdAt, BestCombination greedy) {
+            this.id = id;
+            this.createdAt = createdAt;
+            this.combination = greedy;
+        }
+
+        synchronized CombinationJob<BestCombination> snapshot() {
+            return new CombinationJob<>(id, status, revision, (System.nanoTime() - createdAt) / 1_000_000, combination, error);
+        }
+
+        synchronized void start(Future<?> future) {
+            this.future = future;
+            if (status == Status.CANCELLED) future.cancel(true);
+        }
+
+        // Takes an intermediate combination if it is cheaper or has a smaller optimality gap (none counts as 1)
+        synchronized void publish(BestCombination candidate) {
+            if (status != Status.RUNNING || !improves(candidate)) return;
+            combination = candidate;
+            revision++;
+            notifyListeners();
+        }
+
+        // Sets the final status, with the final combination unless it is null
+        synchronized void finish(Status finalStatus, BestCombination finalCombination, String finalError) {
+            if (status != Status.RUNNING) return;
+            status = finalStatus;
+            if (finalCombination != null) combination = finalCombination;
+            error = finalError;
+            revision++;
+            notifyListeners();
+        }
+
+        synchronized void cancel() {
+            finish(Status.CANCELLED, null, null);
+            if (future != null) future.cancel(true);
+        }
+
+        synchronized void subscribe(Subscriber subscriber) {
+            subscriber.onFailure = () -> unsubscribe(subscriber);
+            subscriber.offer(snapshot());
+            if (status == Status.RUNNING) subscribers.add(subscriber);
+        }
+
+        void unsubscribe(Subscriber subscriber) {
+            subscriber.closed = true;
+            subscribers.remove(subscriber);
+        }
+
+        private boolean improves(BestCombination candidate) {
+            return candidate.getTotalCost() < combination.getTotalCost() - 1e-9
+                || candidate.getTotalCost() <= combination.getTotalCost() + 1e-9 && gap(candidate) < gap(combination) - 1e-9;
+        }
+
+        private static double gap(BestCombination combination) {
+            return combination.getOptimalityGap() == null ? 1.0 : combination.getOptimalityGap();
+        }
+
+        // Hands the new state to every subscriber, which sends it on its event thread
+        private void notifyListeners() {
+            CombinationJob<BestCombination> changed = snapshot();
+            for (Subscriber subscriber : subscribers) {
+                subscriber.offer(changed);
+            }
+            if (changed.isFinished()) subscribers.clear();
+        }
+    }
+
+    /**
+     * Delivers job states to one listener, one at a time and in order. Only the latest undelivered state is kept,
+     * so a listener that falls behind skips states instead of queueing them.
+     */
+    private static final class Subscriber {
+        private final Consumer<CombinationJob<BestCombination>> listener;
+        private final ExecutorService events;
+        private final AtomicReference<CombinationJob<BestCombination>> pending = new AtomicReference<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean closed;
+        private volatile Runnable onFailure; /** Unsubscribes from the job, set when subscribing */
+
+        Subscriber(Consumer<CombinationJob<BestCombination>> listener, ExecutorService events) {
+            this.listener = listener;
+            this.events = events;
+        }
+
+        // Called with the job locked, only swaps a reference and schedules the delivery
+        void offer(CombinationJob<BestCombination> state) {
+            pending.set(state);
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) events.execute(this::deliver);
+        }
+
+        private void deliver() {
+            CombinationJob<BestCombination> state;
+            while ((state = pending.getAndSet(null)) != null) {
+                if (closed) continue;
+                try {
+                    listener.accept(state);
+                } catch (RuntimeException e) {
+                    onFailure.run();
+                }
+            }
+            scheduled.set(false);
+            // A state offered after the loop ended but before the flag was cleared still needs a delivery
+            if (pending.get() != null) schedule();
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package com.check24.streaming.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import org.apache.commons.csv.*;
+
+import com.check24.streaming.model.StreamingPackage;
+
+/**
+ * Builds a Dataset from the three CSV files: bc_game.csv, bc_streaming_offer.csv and bc_streaming_package.csv.
+ * The files are read from a data directory, or from the classpath when no directory is configured.
+ * They are parsed concurrently, each one streamed record by record into primitive columns,
+ * and the indexes are built from those columns. No CSV records are retained after loading.
+ */
+class CsvDatasetLoader
+{
+    static final String GAME_FILE = "bc_game.csv";
+    static final String OFFER_FILE = "bc_streaming_offer.csv";
+    static final String PACKAGE_FILE = "bc_streaming_package.csv";
+
+    private static final DateTimeFormatter START_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final Path directory; /** Directory holding the CSV files, null to read them from the classpath */
+
+    CsvDatasetLoader() {
+        this(null);
+    }
+
+    CsvDatasetLoader(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Parses the CSV files into a new dataset.
+     * @param version Version to assign to the dataset
+     */
+    public Dataset load(long version) {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            CompletableFuture<ParsedGames> games = CompletableFuture.supplyAsync(() -> loadGameData(GAME_FILE), executor);
+            CompletableFuture<ParsedOffers> offers = CompletableFuture.supplyAsync(() -> loadStreamingOfferData(OFFER_FILE), executor);
+            CompletableFuture<List<StreamingPackage>> packages = CompletableFuture.supplyAsync(() -> loadStreamingPackageData(PACKAGE_FILE), executor);
+
+            return buildDataset(version, games.join(), offers.join(), packages.join());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Builds the next version of a dataset from a delta of added or changed offers, in the format of
+     * bc_streaming_offer.csv. Games and packages are taken from the base dataset unchanged.
+     * @param base Currently published dataset
+     * @param delta CSV rows with header: game_id, streaming_package_id, live, highlights
+     * @param version Version to assign to the new dataset
+     */
+    public Dataset applyOfferDelta(Dataset base, Reader delta, long version) {
+        ParsedOffers offers = new ParsedOffers();
+        parse(delta, record -> addOffer(offers, record));
+        if (offers.gameIds.size() == 0) {
+            throw new IllegalArgumentException("Offer delta contains no offers");
+        }
+        return base.withOffers(version, offers.gameIds.toArray(), offers.packageIds.toArray(), offers.flags.toArray());
+    }
+
+    /**
+     * Size and last modification time (epoch milliseconds) of each of the three CSV files, in the order games,
+     * offers, packages. Used to tell whether a binary snapshot was written from the same files without reading
+     * them, so checking a snapshot takes the same time for any catalog size. A file whose size or modification
+     * time is unknown, which depends on how the classpath is packaged, contributes the CRC32 of its bytes in
+     * place of the time.
+     */
+    public long[] sourceStamp() {
+        List<String> fileNames = List.of(GAME_FILE, OFFER_FILE, PACKAGE_FILE);
+        long[] stamp = new long[2 * fileNames.size()];
+        for (int i = 0; i < fileNames.size(); i++) {
+            String fileName = fileNames.get(i);
+            try {
+                long size;
+                long modified;
+                Path file = directory != null ? directory.resolve(fileName) : classpathFile(fileName);
+                if (file != null) {
+                    size = Files.size(file);
+                    modified = Files.getLastModifiedTime(file).toMillis();
+                } else {
+                    URLConnection connection = resource(fileName).openConnection();
+                    size = connection.getContentLengthLong();
+                    modified = connection.getLastModified();
+                }
+                stamp[2 * i] = size;
+                stamp[2 * i + 1] = size < 0 || modified <= 0 ? crc(fileName) : modified;
+            } catch (IOException | URISyntaxException e) {
+                throw new RuntimeException("Error reading CSV File: " + fileName, e);
+            }
+        }
+        return stamp;
+    }
+
+    private long crc(String fileName) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream inputStream = open(fileName)) {
+            crc.update(inputStream.readAllBytes());
+        }
+        return crc.getValue();
+    }
+
+    private InputStream open(String fileName) throws IOException {
+        if (directory != null) {
+            return Files.newInputStream(directory.resolve(fileName));
+        }
+        return resource(fileName).openStream();
+    }
+
+    private URL resource(String fileName) throws IOException {
+        URL url = getClass().getClassLoader().getResource(fileName);
+        if (url == null) {
+            throw new IOException("Resource not found: " + fileName);
+        }
+        return url;
+    }
+
+    // The file behind a classpath resource, null if it is packaged in a jar
+    private Path classpathFile(String fileName) throws IOException, URISyntaxException {
+        URL url = resource(fileName);
+        return "file".equals(url.getProtocol()) ? Path.of(url.toURI()) : null;
+    }
+
+    /**
+     * Streams the records of a CSV file to the given consumer without materializing the record list.
+     * @param fileName Name of the CSV file
+     * @param consumer Called once per record, in file order
+     */
+    private void loadData(String fileName, Consumer<CSVRecord> consumer)
+    {
+        try(InputStream inputStream = open(fileName);
+            Reader reader = new InputStreamReader(inputStream, "UTF-8"))
+            {
+                parse(reader, consumer);
+            } catch(IOException e) {
+                throw new RuntimeException("Error loading CSV File: " + fileName, e);
+
+            }
+
+    }
+
+    private static void parse(Reader reader, Consumer<CSVRecord> consumer)
+    {
+        CSVFormat csvFormat = CSVFormat.Builder.create()
+            .setHeader()
+            .setTrim(true)
+            .setIgnoreHeaderCase(true)
+            .build();
+
+        try {
+            CSVParser csvParser = csvFormat.parse(reader);
+            for (CSVRecord record : csvParser) {
+                consumer.accept(record);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Loads game data from bc_game.csv.
+     * Expected CSV format:
+     * - id: unique game identifier
+     * - team_home: home team name
+     * - team_away: away team name
+     * - starts_at: game start time
+     * - tournament_name: name of the tournament
+     * @return Parsed game columns, teams and tournaments coded in order of first appearance
+     */
+    private ParsedGames loadGameData(String fileName) {
+        ParsedGames games = new ParsedGames();
+        loadData(fileName, record -> {
+            games.ids.add(Integer.parseInt(record.get("id")));
+            games.homeTeams.add(games.teamCodes.computeIfAbsent(record.get("team_home"), k -> games.teamCodes.size()));
+            games.awayTeams.add(games.teamCodes.computeIfAbsent(record.get("team_away"), k -> games.teamCodes.size()));
+            games.tournaments.add(games.tournamentCodes.computeIfAbsent(record.get("tournament_name"), k -> games.tournamentCodes.size()));
+            games.startMinutes.add(parseStartMinute(record.get("starts_at")));
+        });
+        return games;
+    }
+
+    private static int parseStartMinute(String startsAt) {
+        return (int) (LocalDateTime.parse(startsAt, START_TIME_FORMAT).toEpochSecond(ZoneOffset.UTC) / 60);
+    }
+
+    /**
+     * Loads streaming offer data from bc_streaming_offer.csv.
+     * Expected CSV format:
+     * - game_id: reference to the game
+     * - streaming_package_id: reference to the package
+     * - live: boolean (1/0) indicating live streaming availability
+     * - highlights: boolean (1/0) indicating highlights availability
+     * @return Parsed offer columns, still referencing games and packages by ID
+     */
+    private ParsedOffers loadStreamingOfferData(String fileName) {
+        ParsedOffers offers = new ParsedOffers();
+        loadData(fileName, record -> addOffer(offers, record));
+        return offers;
+    }
+
+    private static void addOffer(ParsedOffers offers, CSVRecord record) {
+        offers.gameIds.add(Integer.parseInt(record.get("game_id")));
+        offers.packageIds.add(Integer.parseInt(record.get("streaming_package_id")));
+        offers.flags.add((record.get("live").equals("1") ? Dataset.OFFER_LIVE : 0) | (record.get("highlights").equals("1") ? Dataset.OFFER_HIGHLIGHTS : 0));
+    }
+
+    /**
+     * Loads streaming package data from bc_streaming_package.csv.
+     * Expected CSV format:
+     * - id: unique package identifier
+     * - name: package name
+     * - monthly_price_cents: monthly subscription price in cents
+     * - monthly_price_yearly_subscription_in_cents: yearly subscription monthly price in cents
+     * @return Packages in file order
+     */
+    private List<StreamingPackage> loadStreamingPackageData(String fileName) {
+        List<StreamingPackage> packages = new ArrayList<>();
+        loadData(fileName, record -> packages.add(convertToStreamingPackage(record)));
+        return packages;
+    }
+
+    private StreamingPackage convertToStreamingPackage(CSVRecord record) {
+        return new StreamingPackage(
+            Integer.parseInt(record.get("id")),
+            record.get("name"),
+            record.get("monthly_price_cents").isEmpty() ? 0.0 : Double.parseDouble(record.get("monthly_price_cents")),
+            record.get("monthly_price_yearly_subscription_in_cents").isEmpty() ? 0.0 : Double.parseDouble(record.get("monthly_price_yearly_subscription_in_cents"))
+
+        );
+    }
+
+    /**
+     * Turns the parsed rows into the dataset's base columns: re-codes teams and tournaments against sorted
+     * dictionaries, drops duplicate game and package IDs (first row wins), sorts packages by ID and groups
+     * offers by game index. Offers for unknown games or packages are dropped.
+     */
+    private Dataset buildDataset(long version, ParsedGames parsedGames, ParsedOffers parsedOffers, List<StreamingPackage> parsedPackages) {
+        String[] teamNames = parsedGames.teamCodes.keySet().stream().sorted().toArray(String[]::new);
+        String[] tournamentNames = parsedGames.tournamentCodes.keySet().stream().sorted().toArray(String[]::new);
+        int[] teamRemap = remap(parsedGames.teamCodes, teamNames);
+        int[] tournamentRemap = remap(parsedGames.tournamentCodes, tournamentNames);
+
+        int rows = parsedGames.ids.size();
+        int[] gameIds = new int[rows];
+        int[] homeTeams = new int[rows];
+        int[] awayTeams = new int[rows];
+        int[] gameTournaments = new int[rows];
+        int[] startMinutes = new int[rows];
+        Map<Integer, Integer> gameIndexById = new HashMap<>();
+        int gameCount = 0;
+        for (int row = 0; row < rows; row++)
+        {
+            int id = parsedGames.ids.get(row);
+            if (gameIndexById.putIfAbsent(id, gameCount) != null) continue;
+            gameIds[gameCount] = id;
+            homeTeams[gameCount] = teamRemap[parsedGames.homeTeams.get(row)];
+            awayTeams[gameCount] = teamRemap[parsedGames.awayTeams.get(row)];
+            gameTournaments[gameCount] = tournamentRemap[parsedGames.tournaments.get(row)];
+            startMinutes[gameCount] = parsedGames.startMinutes.get(row);
+            gameCount++;
+        }
+
+        Set<Integer> seenPackageIds = new HashSet<>();
+        StreamingPackage[] packagesByIndex = parsedPackages.stream()
+            .filter(pkg -> seenPackageIds.add(pkg.getStreamingPackageId()))
+            .sorted(Comparator.comparingInt(StreamingPackage::getStreamingPackageId))
+            .toArray(StreamingPackage[]::new);
+        Map<Integer, Integer> packageIndexById = new HashMap<>();
+        for (int i = 0; i < packagesByIndex.length; i++) {
+            packageIndexById.put(packagesByIndex[i].getStreamingPackageId(), i);
+        }
+
+        int offerRows = parsedOffers.gameIds.size();
+        int[] gameIndices = new int[offerRows];
+        int[] packageIndices = new int[offerRows];
+        int[] offerStartByGame = new int[gameCount + 1];
+        for (int row = 0; row < offerRows; row++) {
+            gameIndices[row] = gameIndexById.getOrDefault(parsedOffers.gameIds.get(row), -1);
+            packageIndices[row] = packageIndexById.getOrDefault(parsedOffers.packageIds.get(row), -1);
+            if (gameIndices[row] >= 0 && packageIndices[row] >= 0) {
+                offerStartByGame[gameIndices[row] + 1]++;
+            }
+        }
+        for (int g = 0; g < gameCount; g++) {
+            offerStartByGame[g + 1] += offerStartByGame[g];
+        }
+        int[] offerPackages = new int[offerStartByGame[gameCount]];
+        byte[] offerFlags = new byte[offerPackages.length];
+        int[] next = Arrays.copyOf(offerStartByGame, gameCount);
+        for (int row = 0; row < offerRows; row++) {
+            if (gameIndices[row] < 0 || packageIndices[row] < 0) continue;
+            int position = next[gameIndices[row]]++;
+            offerPackages[position] = packageIndices[row];
+            offerFlags[position] = (byte) parsedOffers.flags.get(row);
+        }
+
+        return Dataset.build(version,
+            Arrays.copyOf(gameIds, gameCount), Arrays.copyOf(homeTeams, gameCount), Arrays.copyOf(awayTeams, gameCount),
+            Arrays.copyOf(gameTournaments, gameCount), Arrays.copyOf(startMinutes, gameCount),
+            teamNames, tournamentNames, packagesByIndex, offerStartByGame, offerPackages, offerFlags);
+    }
+
+    // Maps codes assigned in order of first appearance to indices into the sorted dictionary
+    private static int[] remap(Map<String, Integer> codes, String[] sortedNames) {
+        int[] remap = new int[sortedNames.length];
+        for (int i = 0; i < sortedNames.length; i++) {
+            remap[codes.get(sortedNames[i])] = i;
+        }
+        return remap;
+    }
+
+    // Intermediate results of the concurrent CSV parsing
+
+    private static final class ParsedGames {
+        final IntColumn ids = new IntColumn();
+        final IntColumn homeTeams = new IntColumn();
+        final IntColumn awayTeams = new IntColumn();
+        final IntColumn tournaments = new IntColumn();
+        final IntColumn startMinutes = new IntColumn();
+        final Map<String, Integer> teamCodes = new HashMap<>();
+        final Map<String, Integer> tournamentCodes = new HashMap<>();
+    }
+
+    private static final class ParsedOffers {
+        final IntColumn gameIds = new IntColumn();
+        final IntColumn packageIds = new IntColumn();
+        final IntColumn flags = new IntColumn();
+    }
+}
@@ -1,23 +1,26 @@
 package com.check24.streaming.service;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
+import java.io.StringReader;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-
-import org.apache.commons.csv.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.check24.streaming.model.DatasetInfo;
 import com.check24.streaming.model.Game;
+import com.check24.streaming.model.GamePage;
 import com.check24.streaming.model.StreamingOffer;
 import com.check24.streaming.model.StreamingPackage;
 
@@ -25,208 +28,302 @@ import com.check24.streaming.model.StreamingPackage;
  * Service class responsible for loading, managing, and querying streaming-related data from CSV files.
  * Handles three main data types: games, streaming offers, and streaming packages.
  * Provides methods for accessing and analyzing coverage statistics for teams and tournaments.
+ *
+ * The parsed data and its indexes live in an immutable, versioned Dataset. When a snapshot path is configured,
+ * the dataset is written there once as a binary snapshot and later starts map that file instead of parsing the CSV files.
+ *
+ * The dataset can be replaced at runtime, either by reloading the CSV files or by applying a delta of offers.
+ * New versions are built on a single background thread and published with one volatile write, so readers never
+ * lock and requests already running keep working on the version they started with.
  */
 
 @Service
 public class DataService 
 {
-    private List<CSVRecord> gameData;
-    private List<CSVRecord> streamingOfferData;
-    private List<CSVRecord> streamingPackageData;
-    private Map<Integer,Game> gamesById = new HashMap<>(); /** Maps game IDs to their corresponding Game objects */  
-    private Map<String, Set<Game>> gamesByTeam = new HashMap<>(); /** Maps team names to their set of associated games */
-    private Map<Integer, StreamingPackage> packagesById = new HashMap<>(); /** Maps packages to their corresponding IDs */
-    private Map<String, Set<Game>> gamesByTournament = new HashMap<>(); /** Maps tournament names to their set of associated games */
-    private Map<Integer, List<StreamingOffer>> offersByGameId = new HashMap<>(); /** Maps game IDs to their corresponding list of StreamingOffer objects */
+    private static final Logger log = LoggerFactory.getLogger(DataService.class);
+
+    private final CsvDatasetLoader loader;
+    private final Path snapshotPath; /** null if no snapshot is configured */
+    private final ExecutorService builder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "dataset-builder");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final List<Consumer<Dataset>> publishListeners = new CopyOnWriteArrayList<>();
+    private volatile Dataset dataset;
 
 
     public DataService()
     {
-        initializeData();
+        this("", "");
     }
 
-    private void initializeData()
+    /**
+     * @param snapshotPath Location of the binary dataset snapshot (streaming.snapshot.path), empty to always load from CSV
+     * @param dataDirectory Directory holding the CSV files (streaming.data.directory), empty to read them from the classpath
+     */
+    @Autowired
+    public DataService(@Value("${streaming.snapshot.path:}") String snapshotPath,
+                       @Value("${streaming.data.directory:}") String dataDirectory)
     {
-        loadGameData();
-        loadStreamingOfferData();
-        loadStreamingPackageData();
+        long start = System.nanoTime();
+        this.loader = new CsvDatasetLoader(dataDirectory.isBlank() ? null : Path.of(dataDirectory));
+        this.snapshotPath = snapshotPath.isBlank() ? null : Path.of(snapshotPath);
+        dataset = initializeData(1);
+        log.info("Loaded {} games, {} offers and {} packages in {} ms", dataset.getGameCount(), dataset.getOfferCount(),
+            dataset.getPackageCount(), (System.nanoTime() - start) / 1_000_000);
+        log.info("Coverage cube: {} teams and {} tournaments x {} packages, {} bytes", dataset.getAllTeams().size(),
+            dataset.getAllTournaments().size(), dataset.getPackageCount(), dataset.getCoverageCubeBytes());
     }
 
-
-    private List<CSVRecord> loadData(String fileName)
+    /**
+     * Opens the snapshot if it exists and matches the size and modification time of the current CSV files
+     * (CsvDatasetLoader.sourceStamp, the files themselves are not read), otherwise parses the CSV files
+     * and (re)writes the snapshot. A snapshot that cannot be read or written never prevents startup.
+     */
+    private Dataset initializeData(long version)
     {
-        try(InputStream inputStream = getClass().getClassLoader().getResourceAsStream(fileName);
-            Reader reader = new InputStreamReader(inputStream, "UTF-8"))
-            {
-                CSVFormat csvFormat = CSVFormat.Builder.create()
-                    .setHeader()
-                    .setTrim(true)
-                    .setIgnoreHeaderCase(true)
-                    .build();
-
-                    CSVParser csvParser = csvFormat.parse(reader);
-                    return csvParser.getRecords();
-            } catch(IOException e) {
-                throw new RuntimeException("Error loading CSV File: " + fileName, e);
+        if (snapshotPath == null) {
+            return loader.load(version);
+        }
 
+        long[] sourceStamp = loader.sourceStamp();
+        try {
+            Dataset snapshot = DatasetSnapshotFile.read(snapshotPath, sourceStamp, version);
+            if (snapshot != null) {
+                log.info("Using dataset snapshot {}", snapshotPath);
+                return snapshot;
             }
-            
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable dataset snapshot {}", snapshotPath, e);
+        }
+
+        Dataset dataset = loader.load(version);
+        try {
+            DatasetSnapshotFile.write(dataset, sourceStamp, snapshotPath);
+            log.info("Wrote dataset snapshot {}", snapshotPath);
+        } catch (IOException e) {
+            log.warn("Could not write dataset snapshot {}", snapshotPath, e);
+        }
+        return dataset;
     }
 
-    
+
+    // Dataset versions
+
     /**
-     * Loads game data from bc_game.csv.
-     * Expected CSV format:
-     * - id: unique game identifier
-     * - team_home: home team name
-     * - team_away: away team name
-     * - starts_at: game start time
-     * - tournament_name: name of the tournament
-     * @return List of CSV records containing game data
+     * Returns the currently published dataset. Everything a request computes should come from one captured
+     * dataset, since game and package indices are only meaningful within the same version.
      */
-    
-    private List<CSVRecord> loadGameData() {
-        gameData = loadData("bc_game.csv");
-
-        for(CSVRecord record : gameData)
-        {
-            Game game = convertToGame(record);
-            gamesById.putIfAbsent(game.getId(), game);
-            gamesByTeam.computeIfAbsent(game.getHomeTeam(), k -> new HashSet<>()).add(game);
-            gamesByTeam.computeIfAbsent(game.getAwayTeam(), k -> new HashSet<>()).add(game);   
-            gamesByTournament.computeIfAbsent(game.getTournament(), k -> new HashSet<>()).add(game);
-        }
-        return gameData;
+    public Dataset getDataset() {
+        return dataset;
+    }
+
+    /** @return Version of the currently published dataset, increases with every reload or delta */
+    public long getDatasetVersion() {
+        return dataset.getVersion();
+    }
+
+    /** @return Version and size of the currently published dataset */
+    public DatasetInfo getDatasetInfo() {
+        Dataset current = dataset;
+        return new DatasetInfo(current.getVersion(), current.getGameCount(), current.getOfferCount(), current.getPackageCount());
     }
 
     /**
-     * Loads streaming offer data from bc_streaming_offer.csv.
-     * Expected CSV format:
-     * - game_id: reference to the game
-     * - streaming_package_id: reference to the package
-     * - live: boolean (1/0) indicating live streaming availability
-     * - highlights: boolean (1/0) indicating highlights availability
-     * @return List of CSV records containing streaming offer data
+     * Rebuilds the dataset from the CSV files in the background and publishes it once it is complete.
+     * The snapshot file is refreshed as well if the CSV files changed.
+     * @return Completes with the published dataset, or exceptionally if the files could not be loaded
      */
-    private List<CSVRecord> loadStreamingOfferData() {
-       streamingOfferData = loadData("bc_streaming_offer.csv");
-       for(CSVRecord record : streamingOfferData)
-       {
-        StreamingOffer offer = convertToStreamingOffer(record);
-        offersByGameId.computeIfAbsent(offer.getGameId(),k -> new ArrayList<>()).add(offer);
-       }
-       return streamingOfferData;
+    public CompletableFuture<Dataset> reload() {
+        return CompletableFuture.supplyAsync(() -> publish(initializeData(dataset.getVersion() + 1)), builder)
+            .whenComplete(DataService::logFailure);
     }
 
     /**
-     * Loads streaming package data from bc_streaming_package.csv.
-     * Expected CSV format:
-     * - id: unique package identifier
-     * - name: package name
-     * - monthly_price_cents: monthly subscription price in cents
-     * - monthly_price_yearly_subscription_in_cents: yearly subscription monthly price in cents
-     * @return List of CSV records containing streaming package data
+     * Applies added or changed offers to the current dataset in the background and publishes the result.
+     * The delta only lives in memory: a restart or a full reload goes back to the CSV files.
+     * @param offersCsv Offer rows in the format of bc_streaming_offer.csv, including the header
+     * @return Completes with the published dataset, or exceptionally if the delta could not be parsed
      */
-    private List<CSVRecord> loadStreamingPackageData() {
-        streamingPackageData = loadData("bc_streaming_package.csv");
-        for (CSVRecord record : streamingPackageData) {
-            StreamingPackage pkg = convertToStreamingPackage(record);
-            packagesById.put(pkg.getStreamingPackageId(), pkg);
-        }
-        return streamingPackageData;
+    public CompletableFuture<Dataset> applyOfferDelta(String offersCsv) {
+        return CompletableFuture.supplyAsync(() -> {
+            Dataset current = dataset;
+            return publish(loader.applyOfferDelta(current, new StringReader(offersCsv), current.getVersion() + 1));
+        }, builder).whenComplete(DataService::logFailure);
     }
 
     /**
-     * Converts a CSV record into a Game object.
-     * @param record The CSV record containing game data
-     * @return A new Game object populated with the record's data
+     * Registers a callback for every dataset version published after this call. Callbacks run on the builder
+     * thread and delay the next update, so they should only hand the dataset off to their own thread.
      */
-    private Game convertToGame(CSVRecord record) {
-        return new Game(
-            Integer.parseInt(record.get("id")),
-            record.get("team_home"),
-            record.get("team_away"),
-            record.get("starts_at"),
-            record.get("tournament_name")
-        );
+    public void addPublishListener(Consumer<Dataset> listener) {
+        publishListeners.add(listener);
     }
 
-    private StreamingOffer convertToStreamingOffer(CSVRecord record) {
-        return new StreamingOffer(
-            Integer.parseInt(record.get("game_id")),
-            Integer.parseInt(record.get("streaming_package_id")),
-            record.get("live").equals("1"),
-            record.get("highlights").equals("1")
-            
-        );
+    private static void logFailure(Dataset dataset, Throwable error) {
+        if (error != null) {
+            log.error("Dataset update failed, keeping the current version", error);
+        }
     }
 
-    private StreamingPackage convertToStreamingPackage(CSVRecord record) {
-        return new StreamingPackage(
-            Integer.parseInt(record.get("id")),
-            record.get("name"),
-            record.get("monthly_price_cents").isEmpty() ? 0.0 : Double.parseDouble(record.get("monthly_price_cents")),
-            record.get("monthly_price_yearly_subscription_in_cents").isEmpty() ? 0.0 : Double.parseDouble(record.get("monthly_price_yearly_subscription_in_cents"))
-          
-        );
+    // Only called from the builder thread, so versions are published in order
+    private Dataset publish(Dataset next) {
+        dataset = next;
+        log.info("Published dataset version {}: {} games, {} offers", next.getVersion(), next.getGameCount(), next.getOfferCount());
+        publishListeners.forEach(listener -> listener.accept(next));
+        return next;
     }
 
 
-    // Getters 
+    // Getters
 
     public List<String> getAllTeams() {
-        Set<String> teams = gameData.stream()
-            .flatMap(record -> Stream.of(
-                record.get("team_home"), 
-                record.get("team_away")
-            ))
-            .collect(Collectors.toSet());
-    
-        return new ArrayList<>(teams);
+        return dataset.getAllTeams();
     }
 
     public List<String> getAllTournaments() {
-        return gameData.stream()
-            .map(record -> record.get("tournament_name"))
-            .distinct()
-            .collect(Collectors.toList());
+        return dataset.getAllTournaments();
     }
 
-    public Set<Game> getGamesByTeam(String team) {
-        return gamesByTeam.getOrDefault(team, new HashSet<>());
+    /** @return Up to limit team names matching the typed prefix, tolerating small typos */
+    public List<String> searchTeams(String prefix, int limit) {
+        return dataset.searchTeams(prefix, limit);
     }
 
-    public Set<Game> getGamesByTeams(List<String> teams) {
-        Set<Game> games = new HashSet<>();
-        for(String team : teams) {
-            games.addAll(getGamesByTeam(team));
+    /** @return Up to limit tournament names matching the typed prefix, tolerating small typos */
+    public List<String> searchTournaments(String prefix, int limit) {
+        return dataset.searchTournaments(prefix, limit);
+    }
+
+    public int getGameCount() {
+        return dataset.getGameCount();
+    }
+
+    /**
+     * Materializes the game at the given dense index. Only meant for building responses,
+     * lookups and set operations work on game indices.
+     * @param gameIndex Dense game index
+     * @return A new Game object for that index
+     */
+    public Game getGame(int gameIndex) {
+        return dataset.getGame(gameIndex);
+    }
+
+    /**
+     * Materializes a page of games by id, for clients that received compact game id lists.
+     * @param gameIds Game ids, in the order they should be returned
+     * @param offset Number of ids to skip, null for 0
+     * @param limit Maximum number of games to return, null for all
+     * @return The requested page of games
+     */
+    public GamePage getGames(List<Integer> gameIds, Integer offset, Integer limit) {
+        if (gameIds == null) {
+            throw new IllegalArgumentException("gameIds are required");
+        }
+        if (offset != null && offset < 0) {
+            throw new IllegalArgumentException("offset must not be negative");
         }
+        if (limit != null && limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        Dataset current = dataset;
+        int from = Math.min(offset == null ? 0 : offset, gameIds.size());
+        int to = limit == null ? gameIds.size() : (int) Math.min((long) from + limit, gameIds.size());
+        List<Game> games = new ArrayList<>(to - from);
+        for (Integer gameId : gameIds.subList(from, to)) {
+            int gameIndex = gameId == null ? -1 : current.getGameIndex(gameId);
+            if (gameIndex < 0) {
+                throw new IllegalArgumentException("Unknown game id " + gameId);
+            }
+            games.add(current.getGame(gameIndex));
+        }
+        return new GamePage(gameIds.size(), from, games);
+    }
 
-        return games;
+    /** @return Sorted game indices of the team's games, empty if the team is unknown */
+    public int[] getGamesByTeam(String team) {
+        return dataset.getGamesByTeam(team);
     }
 
-    public Set<Game> getGamesByTournament(String tournament) {
-        return gamesByTournament.getOrDefault(tournament, new HashSet<>());
+    /** @return Sorted game indices of the tournament's games, empty if the tournament is unknown */
+    public int[] getGamesByTournament(String tournament) {
+        return dataset.getGamesByTournament(tournament);
     }
 
     public List<StreamingOffer> getOffersForGame(int gameId) {
-       return offersByGameId.getOrDefault(gameId, new ArrayList<>());
+        return dataset.getOffersForGame(gameId);
+    }
+
+    /**
+     * Bitset over game indices of all games the package has any offer for, live or highlights.
+     * Returns the shared internal array, callers must not modify it.
+     * @param packageIndex Dense package index
+     */
+    public long[] getOfferedGames(int packageIndex) {
+        return dataset.getOfferedGames(packageIndex);
     }
 
     public StreamingPackage getPackageById(int packageId) {
-        return packagesById.get(packageId);
+        return dataset.getPackageById(packageId);
     }
 
     public Collection<StreamingPackage> getAllPackages() {
-        return packagesById.values();
+        return dataset.getAllPackages();
+    }
+
+    public String getGameMonth(int gameIndex) {
+        return dataset.getGameMonth(gameIndex);
+    }
+
+    public String getGameYear(int gameIndex) {
+        return dataset.getGameYear(gameIndex);
+    }
+
+    // Coverage cube accessors, indices as returned by getTeamIndex/getTournamentIndex/getPackageIndex
+
+    /** @return The team's row in the coverage cube, or -1 if the team is unknown */
+    public int getTeamIndex(String teamName) {
+        return dataset.getTeamIndex(teamName);
     }
 
-    public String getGameMonth(int gameId) {
-        return gamesById.get(gameId).getStartTime().split(" ")[0].split("-")[1];
+    /** @return The tournament's row in the coverage cube, or -1 if the tournament is unknown */
+    public int getTournamentIndex(String tournamentName) {
+        return dataset.getTournamentIndex(tournamentName);
     }
 
-    public String getGameYear(int gameId) {
-        return gamesById.get(gameId).getStartTime().split(" ")[0].split("-")[0];
+    /** @return The package's column in the coverage cube, or -1 if the package is unknown */
+    public int getPackageIndex(int packageId) {
+        return dataset.getPackageIndex(packageId);
+    }
+
+    public int getPackageCount() {
+        return dataset.getPackageCount();
+    }
+
+    public StreamingPackage getPackageByIndex(int packageIndex) {
+        return dataset.getPackageByIndex(packageIndex);
+    }
+
+    public double getTeamLiveCoverage(int teamIndex, int packageIndex) {
+        return dataset.getTeamLiveCoverage(teamIndex, packageIndex);
+    }
+
+    public double getTeamHighlightsCoverage(int teamIndex, int packageIndex) {
+        return dataset.getTeamHighlightsCoverage(teamIndex, packageIndex);
+    }
+
+    public double getTournamentLiveCoverage(int tournamentIndex, int packageIndex) {
+        return dataset.getTournamentLiveCoverage(tournamentIndex, packageIndex);
+    }
+
+    public double getTournamentHighlightsCoverage(int tournamentIndex, int packageIndex) {
+        return dataset.getTournamentHighlightsCoverage(tournamentIndex, packageIndex);
+    }
+
+    /** @return Approximate heap footprint of the coverage cube arrays in bytes */
+    public long getCoverageCubeBytes() {
+        return dataset.getCoverageCubeBytes();
     }
 
     /**
@@ -236,18 +333,7 @@ public class DataService
      * @return A value between 0.0 and 1.0 representing the percentage of team's games available for live streaming
      */
     public double getTeamLiveCoverageByPackageId(String teamName, int packageId) {
-        Set<Game> games = getGamesByTeam(teamName);
-        if(games.isEmpty()) return 0.0;
-        int liveGamesCovered = 0;
-        for(Game game : games) {
-            for(StreamingOffer offer : getOffersForGame(game.getId())) {
-                if(offer.getStreamingPackageId() == packageId && offer.isHasLive()) {
-                    liveGamesCovered++;
-                    break;
-                } 
-            }
-        }
-        return (double) liveGamesCovered / games.size();
+        return getTeamLiveCoverage(getTeamIndex(teamName), getPackageIndex(packageId));
     }
 
     /**
@@ -257,51 +343,15 @@ public class DataService
      * @return A value between 0.0 and 1.0 representing the percentage of team's games available with highlights
      */
     public double getTeamHighlightsCoverageByPackageId(String teamName, int packageId) {
-        Set<Game> games = getGamesByTeam(teamName);
-        if(games.isEmpty()) return 0.0;
-        int highlightGamesCovered = 0;
-        for(Game game : games) {
-            for(StreamingOffer offer : getOffersForGame(game.getId())) {
-                if(offer.getStreamingPackageId() == packageId && offer.isHasHighlights()) {
-                    highlightGamesCovered++;
-                    break;
-                } 
-            }
-        }
-        return (double) highlightGamesCovered / games.size();
-
+        return getTeamHighlightsCoverage(getTeamIndex(teamName), getPackageIndex(packageId));
     }
 
     // Similar to the above methods, but for tournaments instead of teams
     public double getTournamentLiveCoverageByPackageId(String tournamentName, int packageId) {
-        Set<Game> games = getGamesByTournament(tournamentName);
-        if (games.isEmpty()) return 0.0;
-    
-        int liveGamesCovered = 0;
-        for(Game game : games) {
-            for(StreamingOffer offer : getOffersForGame(game.getId())) {
-                if(offer.getStreamingPackageId() == packageId && offer.isHasLive()) {
-                    liveGamesCovered++;
-                    break;
-                }
-            }
-        }
-        return (double) liveGamesCovered / games.size();
+        return getTournamentLiveCoverage(getTournamentIndex(tournamentName), getPackageIndex(packageId));
     }
-    
+
     public double getTournamentHighlightsCoverageByPackageId(String tournamentName, int packageId) {
-        Set<Game> games = getGamesByTournament(tournamentName);
-        if (games.isEmpty()) return 0.0;
-    
-        int highlightGamesCovered = 0;
-        for(Game game : games) {
-            for(StreamingOffer offer : getOffersForGame(game.getId())) {
-                if(offer.getStreamingPackageId() == packageId && offer.isHasHighlights()) {
-                    highlightGamesCovered++;
-                    break;
-                }
-            }
-        }
-        return (double) highlightGamesCovered / games.size();
+        return getTournamentHighlightsCoverage(getTournamentIndex(tournamentName), getPackageIndex(packageId));
     }
 }
@@ -0,0 +1,754 @@
+package com.check24.streaming.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.check24.streaming.model.CoveragePreference;
+import com.check24.streaming.model.Game;
+import com.check24.streaming.model.StreamingOffer;
+import com.check24.streaming.model.StreamingPackage;
+
+/**
+ * One loaded catalog of games, offers and packages together with all indexes derived from it.
+ *
+ * Games are kept in a columnar store: every game has a dense index into primitive columns holding its id,
+ * dictionary-encoded teams and tournament and its start time in epoch minutes. Game objects are only
+ * materialized on demand for responses. On top of the columns it holds the per-team/per-tournament game
+ * indexes, a month index, per-package coverage bitsets and the team/tournament x package coverage cube.
+ *
+ * All arrays are treated as immutable once the dataset is constructed, so a Dataset can be shared between
+ * request threads without locking. Every published dataset carries a version; a data refresh builds a new
+ * Dataset with a higher version instead of modifying an existing one.
+ */
+public final class Dataset
+{
+    static final int OFFER_LIVE = 1;
+    static final int OFFER_HIGHLIGHTS = 2;
+
+    final long version;
+
+    // Columnar game store, all columns indexed by the dense game index
+    final int[] gameIds;
+    final int[] homeTeams; /** Index into teamNames */
+    final int[] awayTeams; /** Index into teamNames */
+    final int[] gameTournaments; /** Index into tournamentNames */
+    final int[] startMinutes; /** Start time in minutes since the epoch (UTC) */
+    final String[] teamNames; /** Team dictionary, sorted by name */
+    final String[] tournamentNames; /** Tournament dictionary, sorted by name */
+    final StreamingPackage[] packagesByIndex; /** Packages ordered by their dense index (ascending package ID) */
+
+    // Offers grouped by game index: the offers of game g are at positions offerStartByGame[g] until offerStartByGame[g + 1]
+    final int[] offerStartByGame;
+    final int[] offerPackages; /** Package index of each offer */
+    final byte[] offerFlags; /** OFFER_LIVE and OFFER_HIGHLIGHTS bits of each offer */
+
+    final int[][] gamesByTeam; /** Per team: sorted indices of its games */
+    final int[][] gamesByTournament; /** Per tournament: sorted indices of its games */
+
+    // Coverage bitsets over the dense game index, one per package index
+    final long[][] liveGamesByPackage;
+    final long[][] highlightGamesByPackage;
+    final long[][] offeredGamesByPackage; /** Games with any offer of the package, regardless of live/highlights */
+
+    // Coverage cube: entity x package live/highlights game counts, row-major by entity index
+    final int[] teamLiveCounts;
+    final int[] teamHighlightsCounts;
+    final int[] tournamentLiveCounts;
+    final int[] tournamentHighlightsCounts;
+
+    // Month index, derived from startMinutes. A month ordinal is year * 12 + (month - 1)
+    final int[] monthOrdinals; /** Start month ordinal of each game */
+    private final int firstMonth; /** Ordinal of the earliest month with a game */
+    private final long[][] gamesByMonth; /** Per month since firstMonth: bitset of the games starting in it */
+
+    // Start time index, derived from startMinutes: per entity its game indices ordered by start time, so the
+    // games of a time window are found by binary search
+    private final int[][] gamesByTeamByTime;
+    private final int[][] gamesByTournamentByTime;
+
+    // Coverage classes, derived from the package bitsets: a class is a set of packages, and a game belongs to the
+    // class of the packages offering it in the preferred way (any offer, live or highlights). Games of the same class
+    // are offered by exactly the same packages, so two sets of games with the same number of games per class are the
+    // same set cover problem. All preferences share one numbering, so a package offers the same classes for all of them.
+    private final int[] coverageClasses; /** Class of each game by its packages with any offer */
+    private final int[] liveCoverageClasses; /** Class of each game by its packages with a live offer */
+    private final int[] highlightsCoverageClasses; /** Class of each game by its packages with a highlights offer */
+    private final int coverageClassCount;
+    private final long[][] offeredClassesByPackage; /** Bitset over the classes whose packages include the package */
+
+    // Autocomplete indexes over the team and tournament dictionaries
+    private final NameIndex teamNameIndex;
+    private final NameIndex tournamentNameIndex;
+
+    // Hash lookups, always rebuilt from the arrays above
+    private final Map<Integer, Integer> gameIndexById = new HashMap<>();
+    private final Map<Integer, Integer> packageIndexById = new HashMap<>();
+    private final Map<String, Integer> teamIndexByName = new HashMap<>();
+    private final Map<String, Integer> tournamentIndexByName = new HashMap<>();
+    private final List<String> allTeams;
+    private final List<String> allTournaments;
+
+    /**
+     * The indexes derived from the columns and coverage bitsets alone: month index, start time index, coverage classes
+     * and name indexes. A snapshot stores them, so opening one does not derive them again.
+     */
+    record Indexes(int[] monthOrdinals, int firstMonth, long[][] gamesByMonth, int[][] gamesByTeamByTime,
+                   int[][] gamesByTournamentByTime, int[] coverageClasses, int[] liveCoverageClasses,
+                   int[] highlightsCoverageClasses, int coverageClassCount, long[][] offeredClassesByPackage,
+                   NameIndex teamNameIndex, NameIndex tournamentNameIndex) {}
+
+    /**
+     * Wraps fully built arrays, e.g. as read back from a snapshot file. Only the hash lookups are always derived here.
+     * @param indexes The derived indexes as returned by indexes(), null to derive them from the arrays
+     */
+    Dataset(long version, int[] gameIds, int[] homeTeams, int[] awayTeams, int[] gameTournaments, int[] startMinutes,
+            String[] teamNames, String[] tournamentNames, StreamingPackage[] packagesByIndex,
+            int[] offerStartByGame, int[] offerPackages, byte[] offerFlags,
+            int[][] gamesByTeam, int[][] gamesByTournament,
+            long[][] liveGamesByPackage, long[][] highlightGamesByPackage, long[][] offeredGamesByPackage,
+            int[] teamLiveCounts, int[] teamHighlightsCounts, int[] tournamentLiveCounts, int[] tournamentHighlightsCounts,
+            Indexes indexes)
+    {
+        this.version = version;
+        this.gameIds = gameIds;
+        this.homeTeams = homeTeams;
+        this.awayTeams = awayTeams;
+        this.gameTournaments = gameTournaments;
+        this.startMinutes = startMinutes;
+        this.teamNames = teamNames;
+        this.tournamentNames = tournamentNames;
+        this.packagesByIndex = packagesByIndex;
+        this.offerStartByGame = offerStartByGame;
+        this.offerPackages = offerPackages;
+        this.offerFlags = offerFlags;
+        this.gamesByTeam = gamesByTeam;
+        this.gamesByTournament = gamesByTournament;
+        this.liveGamesByPackage = liveGamesByPackage;
+        this.highlightGamesByPackage = highlightGamesByPackage;
+        this.offeredGamesByPackage = offeredGamesByPackage;
+        this.teamLiveCounts = teamLiveCounts;
+        this.teamHighlightsCounts = teamHighlightsCounts;
+        this.tournamentLiveCounts = tournamentLiveCounts;
+        this.tournamentHighlightsCounts = tournamentHighlightsCounts;
+
+        Indexes derived = indexes != null ? indexes : deriveIndexes(startMinutes, gamesByTeam, gamesByTournament,
+            liveGamesByPackage, highlightGamesByPackage, offeredGamesByPackage, teamNames, tournamentNames);
+        monthOrdinals = derived.monthOrdinals();
+        firstMonth = derived.firstMonth();
+        gamesByMonth = derived.gamesByMonth();
+        gamesByTeamByTime = derived.gamesByTeamByTime();
+        gamesByTournamentByTime = derived.gamesByTournamentByTime();
+        coverageClasses = derived.coverageClasses();
+        liveCoverageClasses = derived.liveCoverageClasses();
+        highlightsCoverageClasses = derived.highlightsCoverageClasses();
+        coverageClassCount = derived.coverageClassCount();
+        offeredClassesByPackage = derived.offeredClassesByPackage();
+        teamNameIndex = derived.teamNameIndex();
+        tournamentNameIndex = derived.tournamentNameIndex();
+
+        for (int i = 0; i < gameIds.length; i++) gameIndexById.put(gameIds[i], i);
+        for (int i = 0; i < packagesByIndex.length; i++) packageIndexById.put(packagesByIndex[i].getStreamingPackageId(), i);
+        for (int i = 0; i < teamNames.length; i++) teamIndexByName.put(teamNames[i], i);
+        for (int i = 0; i < tournamentNames.length; i++) tournamentIndexByName.put(tournamentNames[i], i);
+        allTeams = List.of(teamNames);
+        allTournaments = List.of(tournamentNames);
+    }
+
+    private static Indexes deriveIndexes(int[] startMinutes, int[][] gamesByTeam, int[][] gamesByTournament,
+                                         long[][] liveGamesByPackage, long[][] highlightGamesByPackage, long[][] offeredGamesByPackage,
+                                         String[] teamNames, String[] tournamentNames)
+    {
+        int gameCount = startMinutes.length;
+        int packageCount = offeredGamesByPackage.length;
+        int[] monthOrdinals = new int[gameCount];
+        int lastMonth = Integer.MIN_VALUE;
+        int earliestMonth = Integer.MAX_VALUE;
+        for (int i = 0; i < gameCount; i++) {
+            monthOrdinals[i] = monthOrdinal(startMinutes[i]);
+            earliestMonth = Math.min(earliestMonth, monthOrdinals[i]);
+            lastMonth = Math.max(lastMonth, monthOrdinals[i]);
+        }
+        int firstMonth = gameCount == 0 ? 0 : earliestMonth;
+        long[][] gamesByMonth = new long[gameCount == 0 ? 0 : lastMonth - firstMonth + 1][];
+        for (int m = 0; m < gamesByMonth.length; m++) gamesByMonth[m] = Bits.create(gameCount);
+        for (int i = 0; i < gameCount; i++) Bits.set(gamesByMonth[monthOrdinals[i] - firstMonth], i);
+
+        Map<BitSet, Integer> classes = new HashMap<>();
+        int[] coverageClasses = assignCoverageClasses(classes, offeredGamesByPackage, gameCount);
+        int[] liveCoverageClasses = assignCoverageClasses(classes, liveGamesByPackage, gameCount);
+        int[] highlightsCoverageClasses = assignCoverageClasses(classes, highlightGamesByPackage, gameCount);
+        long[][] offeredClassesByPackage = new long[packageCount][];
+        for (int p = 0; p < packageCount; p++) offeredClassesByPackage[p] = Bits.create(classes.size());
+        classes.forEach((packages, coverageClass) -> {
+            for (int p = packages.nextSetBit(0); p >= 0; p = packages.nextSetBit(p + 1)) Bits.set(offeredClassesByPackage[p], coverageClass);
+        });
+
+        return new Indexes(monthOrdinals, firstMonth, gamesByMonth,
+            sortByStartTime(gamesByTeam, startMinutes), sortByStartTime(gamesByTournament, startMinutes),
+            coverageClasses, liveCoverageClasses, highlightsCoverageClasses, classes.size(), offeredClassesByPackage,
+            new NameIndex(teamNames), new NameIndex(tournamentNames));
+    }
+
+    /** @return The derived indexes, for writing them to a snapshot */
+    Indexes indexes() {
+        return new Indexes(monthOrdinals, firstMonth, gamesByMonth, gamesByTeamByTime, gamesByTournamentByTime,
+            coverageClasses, liveCoverageClasses, highlightsCoverageClasses, coverageClassCount, offeredClassesByPackage,
+            teamNameIndex, tournamentNameIndex);
+    }
+
+    /**
+     * Builds a dataset from its base columns, deriving the game indexes, coverage bitsets and coverage cube.
+     * Teams and tournaments must already be coded against the sorted dictionaries, packages sorted by ID and
+     * offers grouped by game index.
+     */
+    static Dataset build(long version, int[] gameIds, int[] homeTeams, int[] awayTeams, int[] gameTournaments, int[] startMinutes,
+                         String[] teamNames, String[] tournamentNames, StreamingPackage[] packagesByIndex,
+                         int[] offerStartByGame, int[] offerPackages, byte[] offerFlags)
+    {
+        int gameCount = gameIds.length;
+        int packageCount = packagesByIndex.length;
+
+        int[][] gamesByTeam = groupGames(teamNames.length, homeTeams, awayTeams);
+        int[][] gamesByTournament = groupGames(tournamentNames.length, gameTournaments, gameTournaments);
+
+        // Coverage matrix over the dense game index: one live, one highlights and one any-offer bitset per package
+        long[][] live = new long[packageCount][];
+        long[][] highlights = new long[packageCount][];
+        long[][] offered = new long[packageCount][];
+        for (int p = 0; p < packageCount; p++) {
+            live[p] = Bits.create(gameCount);
+            highlights[p] = Bits.create(gameCount);
+            offered[p] = Bits.create(gameCount);
+        }
+        for (int game = 0; game < gameCount; game++) {
+            for (int offer = offerStartByGame[game]; offer < offerStartByGame[game + 1]; offer++) {
+                Bits.set(offered[offerPackages[offer]], game);
+                if ((offerFlags[offer] & OFFER_LIVE) != 0) {
+                    Bits.set(live[offerPackages[offer]], game);
+                }
+                if ((offerFlags[offer] & OFFER_HIGHLIGHTS) != 0) {
+                    Bits.set(highlights[offerPackages[offer]], game);
+                }
+            }
+        }
+
+        // The data is static, so every single-entity coverage figure served by /api/search is computed once here
+        // and afterwards only read back from primitive arrays
+        int[] teamLive = new int[teamNames.length * packageCount];
+        int[] teamHighlights = new int[teamNames.length * packageCount];
+        for (int t = 0; t < teamNames.length; t++) {
+            fillCubeRow(gamesByTeam[t], t * packageCount, live, highlights, teamLive, teamHighlights);
+        }
+        int[] tournamentLive = new int[tournamentNames.length * packageCount];
+        int[] tournamentHighlights = new int[tournamentNames.length * packageCount];
+        for (int t = 0; t < tournamentNames.length; t++) {
+            fillCubeRow(gamesByTournament[t], t * packageCount, live, highlights, tournamentLive, tournamentHighlights);
+        }
+
+        return new Dataset(version, gameIds, homeTeams, awayTeams, gameTournaments, startMinutes,
+            teamNames, tournamentNames, packagesByIndex, offerStartByGame, offerPackages, offerFlags,
+            gamesByTeam, gamesByTournament, live, highlights, offered,
+            teamLive, teamHighlights, tournamentLive, tournamentHighlights, null);
+    }
+
+    /**
+     * Builds the next version of this dataset with added or changed offers. An offer replaces the existing one
+     * for the same game and package, otherwise it is added. Offers for unknown games or packages are ignored.
+     * Games and packages are shared with this dataset, all offer-derived indexes are rebuilt.
+     *
+     * @param version Version of the new dataset
+     * @param gameIds Game ID of each offer
+     * @param packageIds Package ID of each offer
+     * @param flags OFFER_LIVE and OFFER_HIGHLIGHTS bits of each offer
+     * @return A new dataset, this one is left unchanged
+     */
+    Dataset withOffers(long version, int[] gameIds, int[] packageIds, int[] flags) {
+        Map<Integer, Map<Integer, Integer>> updatesByGame = new HashMap<>(); // game index -> package index -> flags
+        for (int i = 0; i < gameIds.length; i++) {
+            int game = gameIndexById.getOrDefault(gameIds[i], -1);
+            int pkg = getPackageIndex(packageIds[i]);
+            if (game >= 0 && pkg >= 0) {
+                updatesByGame.computeIfAbsent(game, k -> new LinkedHashMap<>()).put(pkg, flags[i]);
+            }
+        }
+
+        IntColumn packages = new IntColumn();
+        IntColumn offerFlagColumn = new IntColumn();
+        int[] starts = new int[this.gameIds.length + 1];
+        for (int game = 0; game < this.gameIds.length; game++) {
+            Map<Integer, Integer> updates = updatesByGame.getOrDefault(game, Map.of());
+            Set<Integer> applied = new HashSet<>();
+            for (int offer = offerStartByGame[game]; offer < offerStartByGame[game + 1]; offer++) {
+                Integer update = updates.get(offerPackages[offer]);
+                packages.add(offerPackages[offer]);
+                offerFlagColumn.add(update != null ? update : offerFlags[offer]);
+                if (update != null) applied.add(offerPackages[offer]);
+            }
+            for (Map.Entry<Integer, Integer> update : updates.entrySet()) {
+                if (!applied.contains(update.getKey())) {
+                    packages.add(update.getKey());
+                    offerFlagColumn.add(update.getValue());
+                }
+            }
+            starts[game + 1] = packages.size();
+        }
+
+        byte[] newFlags = new byte[offerFlagColumn.size()];
+        for (int i = 0; i < newFlags.length; i++) newFlags[i] = (byte) offerFlagColumn.get(i);
+        return build(version, this.gameIds, homeTeams, awayTeams, gameTournaments, startMinutes,
+            teamNames, tournamentNames, packagesByIndex, starts, packages.toArray(), newFlags);
+    }
+
+    /**
+     * Groups game indices by entity code. Filling in game index order keeps every index array sorted.
+     * A game is listed once per entity even if both codes are equal.
+     */
+    private static int[][] groupGames(int entityCount, int[] firstCodes, int[] secondCodes) {
+        int[] counts = new int[entityCount];
+        for (int g = 0; g < firstCodes.length; g++) {
+            counts[firstCodes[g]]++;
+            if (secondCodes[g] != firstCodes[g]) counts[secondCodes[g]]++;
+        }
+        int[][] games = new int[entityCount][];
+        for (int e = 0; e < entityCount; e++) games[e] = new int[counts[e]];
+        Arrays.fill(counts, 0);
+        for (int g = 0; g < firstCodes.length; g++) {
+            games[firstCodes[g]][counts[firstCodes[g]]++] = g;
+            if (secondCodes[g] != firstCodes[g]) games[secondCodes[g]][counts[secondCodes[g]]++] = g;
+        }
+        return games;
+    }
+
+    /**
+     * Numbers the distinct sets of offering packages not yet in classes in order of their first game.
+     * @param gamesByPackage Per package: bitset of the games it offers in one way
+     * @return Class of each game
+     */
+    private static int[] assignCoverageClasses(Map<BitSet, Integer> classes, long[][] gamesByPackage, int gameCount) {
+        long[][] packagesByGame = new long[gameCount][(gamesByPackage.length + 63) >>> 6];
+        for (int p = 0; p < gamesByPackage.length; p++) {
+            for (int g = Bits.nextSetBit(gamesByPackage[p], 0); g >= 0; g = Bits.nextSetBit(gamesByPackage[p], g + 1)) {
+                Bits.set(packagesByGame[g], p);
+            }
+        }
+        int[] coverageClasses = new int[gameCount];
+        for (int g = 0; g < gameCount; g++) {
+            coverageClasses[g] = classes.computeIfAbsent(BitSet.valueOf(packagesByGame[g]), packages -> classes.size());
+        }
+        return coverageClasses;
+    }
+
+    // Orders each entity's games by start time, ties by game index, by sorting (start minute, index) pairs packed into longs
+    private static int[][] sortByStartTime(int[][] gamesByEntity, int[] startMinutes) {
+        int[][] sorted = new int[gamesByEntity.length][];
+        for (int e = 0; e < gamesByEntity.length; e++) {
+            long[] keys = new long[gamesByEntity[e].length];
+            for (int i = 0; i < keys.length; i++) {
+                int game = gamesByEntity[e][i];
+                keys[i] = ((long) startMinutes[game] << 32) | game;
+            }
+            Arrays.sort(keys);
+            sorted[e] = new int[keys.length];
+            for (int i = 0; i < keys.length; i++) sorted[e][i] = (int) keys[i];
+        }
+        return sorted;
+    }
+
+    private static void fillCubeRow(int[] games, int offset, long[][] live, long[][] highlights, int[] liveCounts, int[] highlightsCounts) {
+        for (int p = 0; p < live.length; p++) {
+            int liveCount = 0;
+            int highlightsCount = 0;
+            for (int game : games) {
+                if (Bits.get(live[p], game)) liveCount++;
+                if (Bits.get(highlights[p], game)) highlightsCount++;
+            }
+            liveCounts[offset + p] = liveCount;
+            highlightsCounts[offset + p] = highlightsCount;
+        }
+    }
+
+    // Queries
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<String> getAllTeams() {
+        return allTeams;
+    }
+
+    public List<String> getAllTournaments() {
+        return allTournaments;
+    }
+
+    /**
+     * Autocomplete over team names: names with a word starting with the query first, then close typo matches.
+     * @param query Typed text, case-insensitive
+     * @param limit Maximum number of names
+     */
+    public List<String> searchTeams(String query, int limit) {
+        return teamNameIndex.search(query, limit);
+    }
+
+    /** Same as searchTeams, over tournament names. */
+    public List<String> searchTournaments(String query, int limit) {
+        return tournamentNameIndex.search(query, limit);
+    }
+
+    public int getGameCount() {
+        return gameIds.length;
+    }
+
+    public int getOfferCount() {
+        return offerPackages.length;
+    }
+
+    /**
+     * Materializes the game at the given dense index. Only meant for building responses,
+     * lookups and set operations work on game indices.
+     * @param gameIndex Dense game index
+     * @return A new Game object for that index
+     */
+    public Game getGame(int gameIndex) {
+        return new Game(
+            gameIds[gameIndex],
+            teamNames[homeTeams[gameIndex]],
+            teamNames[awayTeams[gameIndex]],
+            formatStartTime(startMinutes[gameIndex]),
+            tournamentNames[gameTournaments[gameIndex]]
+        );
+    }
+
+    /** @return Dense index of the game with the given id, or -1 if the game is unknown */
+    public int getGameIndex(int gameId) {
+        return gameIndexById.getOrDefault(gameId, -1);
+    }
+
+    /** @return Sorted game indices of the team's games, empty if the team is unknown */
+    public int[] getGamesByTeam(String team) {
+        int teamIndex = getTeamIndex(team);
+        return teamIndex < 0 ? new int[0] : gamesByTeam[teamIndex];
+    }
+
+    /** @return Sorted game indices of the tournament's games, empty if the tournament is unknown */
+    public int[] getGamesByTournament(String tournament) {
+        int tournamentIndex = getTournamentIndex(tournament);
+        return tournamentIndex < 0 ? new int[0] : gamesByTournament[tournamentIndex];
+    }
+
+    /** @return Indices of the team's games within the window, sorted by index for ALL and by start time otherwise */
+    int[] getGamesByTeam(String team, TimeWindow window) {
+        if (window.isAll()) return getGamesByTeam(team);
+        int teamIndex = getTeamIndex(team);
+        return teamIndex < 0 ? new int[0] : gamesWithin(gamesByTeamByTime[teamIndex], window);
+    }
+
+    /** @return Indices of the tournament's games within the window, sorted by index for ALL and by start time otherwise */
+    int[] getGamesByTournament(String tournament, TimeWindow window) {
+        if (window.isAll()) return getGamesByTournament(tournament);
+        int tournamentIndex = getTournamentIndex(tournament);
+        return tournamentIndex < 0 ? new int[0] : gamesWithin(gamesByTournamentByTime[tournamentIndex], window);
+    }
+
+    private int[] gamesWithin(int[] gamesByTime, TimeWindow window) {
+        return Arrays.copyOfRange(gamesByTime, startingFrom(gamesByTime, window.fromMinute()), startingFrom(gamesByTime, window.toMinute()));
+    }
+
+    // Position of the first game starting at or after minute in a start time ordered game index
+    private int startingFrom(int[] gamesByTime, int minute) {
+        int low = 0;
+        int high = gamesByTime.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (startMinutes[gamesByTime[mid]] < minute) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    public List<StreamingOffer> getOffersForGame(int gameId) {
+        Integer game = gameIndexById.get(gameId);
+        List<StreamingOffer> offers = new ArrayList<>();
+        if (game == null) return offers;
+        for (int offer = offerStartByGame[game]; offer < offerStartByGame[game + 1]; offer++) {
+            offers.add(new StreamingOffer(
+                gameId,
+                packagesByIndex[offerPackages[offer]].getStreamingPackageId(),
+                (offerFlags[offer] & OFFER_LIVE) != 0,
+                (offerFlags[offer] & OFFER_HIGHLIGHTS) != 0
+            ));
+        }
+        return offers;
+    }
+
+    /**
+     * Bitset over game indices of all games the package has any offer for, live or highlights.
+     * Returns the shared internal array, callers must not modify it.
+     * @param packageIndex Dense package index
+     */
+    public long[] getOfferedGames(int packageIndex) {
+        return offeredGamesByPackage[packageIndex];
+    }
+
+    /**
+     * Same as getOfferedGames, only counting offers of the preferred kind.
+     * @param preference LIVE or HIGHLIGHTS, null for any offer
+     */
+    public long[] getOfferedGames(CoveragePreference preference, int packageIndex) {
+        if (preference == null) return offeredGamesByPackage[packageIndex];
+        return preference == CoveragePreference.LIVE ? liveGamesByPackage[packageIndex] : highlightGamesByPackage[packageIndex];
+    }
+
+    /**
+     * @param gameIndex Dense game index
+     * @return Coverage class of the game: games of the same class are offered by exactly the same packages
+     */
+    public int getCoverageClass(int gameIndex) {
+        return coverageClasses[gameIndex];
+    }
+
+    /**
+     * Same as getCoverageClass, only counting offers of the preferred kind. Classes of all preferences share one
+     * numbering: equal classes stand for the same set of packages.
+     * @param preference LIVE or HIGHLIGHTS, null for any offer
+     */
+    public int getCoverageClass(CoveragePreference preference, int gameIndex) {
+        if (preference == null) return coverageClasses[gameIndex];
+        return preference == CoveragePreference.LIVE ? liveCoverageClasses[gameIndex] : highlightsCoverageClasses[gameIndex];
+    }
+
+    /** @return Number of coverage classes, classes are numbered from 0 */
+    public int getCoverageClassCount() {
+        return coverageClassCount;
+    }
+
+    /**
+     * @param packageIndex Dense package index
+     * @return Bitset over the coverage classes whose games the package offers (for every preference), must not be modified
+     */
+    public long[] getOfferedCoverageClasses(int packageIndex) {
+        return offeredClassesByPackage[packageIndex];
+    }
+
+    public StreamingPackage getPackageById(int packageId) {
+        int packageIndex = getPackageIndex(packageId);
+        return packageIndex < 0 ? null : packagesByIndex[packageIndex];
+    }
+
+    public List<StreamingPackage> getAllPackages() {
+        return Arrays.asList(packagesByIndex);
+    }
+
+    public String getGameMonth(int gameIndex) {
+        int month = monthOrdinals[gameIndex] % 12 + 1;
+        return month < 10 ? "0" + month : String.valueOf(month);
+    }
+
+    public String getGameYear(int gameIndex) {
+        return String.valueOf(monthOrdinals[gameIndex] / 12);
+    }
+
+    // Month index
+
+    /** @return Start month ordinal (year * 12 + month - 1) of the game */
+    public int getMonthOrdinal(int gameIndex) {
+        return monthOrdinals[gameIndex];
+    }
+
+    /** @return Ordinal of the earliest month with a game */
+    public int getFirstMonth() {
+        return firstMonth;
+    }
+
+    /** @return Number of months from the first to the last month with a game, including empty months in between */
+    public int getMonthCount() {
+        return gamesByMonth.length;
+    }
+
+    /**
+     * Bitset over game indices of all games starting in the given month.
+     * Returns the shared internal array, callers must not modify it.
+     * @param monthOrdinal Between getFirstMonth() and getFirstMonth() + getMonthCount() - 1
+     */
+    public long[] getGamesInMonth(int monthOrdinal) {
+        return gamesByMonth[monthOrdinal - firstMonth];
+    }
+
+    /** @return The month as "MM-YYYY", the format used for package periods */
+    public static String formatMonth(int monthOrdinal) {
+        char[] chars = "00-0000".toCharArray();
+        writeDigits(chars, 0, monthOrdinal % 12 + 1, 2);
+        writeDigits(chars, 3, monthOrdinal / 12, 4);
+        return new String(chars);
+    }
+
+    private static int monthOrdinal(int startMinute) {
+        LocalDate date = LocalDate.ofEpochDay(Math.floorDiv(startMinute, 24 * 60));
+        return date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+
+    // Equivalent to yyyy-MM-dd HH:mm:ss, but without the formatter overhead since it runs for every game in a response
+    private static String formatStartTime(int startMinute) {
+        LocalDateTime time = LocalDateTime.ofEpochSecond(startMinute * 60L, 0, ZoneOffset.UTC);
+        char[] chars = "0000-00-00 00:00:00".toCharArray();
+        writeDigits(chars, 0, time.getYear(), 4);
+        writeDigits(chars, 5, time.getMonthValue(), 2);
+        writeDigits(chars, 8, time.getDayOfMonth(), 2);
+        writeDigits(chars, 11, time.getHour(), 2);
+        writeDigits(chars, 14, time.getMinute(), 2);
+        return new String(chars);
+    }
+
+    private static void writeDigits(char[] chars, int offset, int value, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    // Coverage cube accessors, indices as returned by getTeamIndex/getTournamentIndex/getPackageIndex
+
+    /** @return The team's row in the coverage cube, or -1 if the team is unknown */
+    public int getTeamIndex(String teamName) {
+        return teamIndexByName.getOrDefault(teamName, -1);
+    }
+
+    /** @return The tournament's row in the coverage cube, or -1 if the tournament is unknown */
+    public int getTournamentIndex(String tournamentName) {
+        return tournamentIndexByName.getOrDefault(tournamentName, -1);
+    }
+
+    /** @return The package's column in the coverage cube, or -1 if the package is unknown */
+    public int getPackageIndex(int packageId) {
+        return packageIndexById.getOrDefault(packageId, -1);
+    }
+
+    public int getPackageCount() {
+        return packagesByIndex.length;
+    }
+
+    public StreamingPackage getPackageByIndex(int packageIndex) {
+        return packagesByIndex[packageIndex];
+    }
+
+    public double getTeamLiveCoverage(int teamIndex, int packageIndex) {
+        return cubeCoverage(teamIndex, packageIndex, gamesByTeam, teamLiveCounts);
+    }
+
+    public double getTeamHighlightsCoverage(int teamIndex, int packageIndex) {
+        return cubeCoverage(teamIndex, packageIndex, gamesByTeam, teamHighlightsCounts);
+    }
+
+    public double getTournamentLiveCoverage(int tournamentIndex, int packageIndex) {
+        return cubeCoverage(tournamentIndex, packageIndex, gamesByTournament, tournamentLiveCounts);
+    }
+
+    public double getTournamentHighlightsCoverage(int tournamentIndex, int packageIndex) {
+        return cubeCoverage(tournamentIndex, packageIndex, gamesByTournament, tournamentHighlightsCounts);
+    }
+
+    /**
+     * Adds up the live and highlights coverage of the given teams and tournaments for every package in one sweep.
+     * Each entity's cube row is contiguous over packages, so the cost is one sequential pass per selected entity.
+     * Unknown entities (row -1) contribute nothing.
+     * @param teamRows Cube rows of the selected teams
+     * @param tournamentRows Cube rows of the selected tournaments
+     * @param liveSums Receives per package index the sum of the entities' live coverage (0.0 to 1.0 each)
+     * @param highlightsSums Receives per package index the sum of the entities' highlights coverage
+     */
+    public void sumCoverage(int[] teamRows, int[] tournamentRows, double[] liveSums, double[] highlightsSums) {
+        sumCoverage(teamRows, tournamentRows, 0, packagesByIndex.length, liveSums, highlightsSums);
+    }
+
+    /**
+     * Same as sumCoverage for the package indices from (inclusive) to to (exclusive) only.
+     * The sums are indexed relative to from.
+     */
+    public void sumCoverage(int[] teamRows, int[] tournamentRows, int from, int to, double[] liveSums, double[] highlightsSums) {
+        for (int team : teamRows) {
+            addCoverageRow(team, gamesByTeam, teamLiveCounts, teamHighlightsCounts, from, to, liveSums, highlightsSums);
+        }
+        for (int tournament : tournamentRows) {
+            addCoverageRow(tournament, gamesByTournament, tournamentLiveCounts, tournamentHighlightsCounts, from, to, liveSums, highlightsSums);
+        }
+    }
+
+    private void addCoverageRow(int row, int[][] gamesByEntity, int[] liveCounts, int[] highlightsCounts, int from, int to,
+                                double[] liveSums, double[] highlightsSums) {
+        if (row < 0 || gamesByEntity[row].length == 0) return;
+        double games = gamesByEntity[row].length;
+        int offset = row * packagesByIndex.length;
+        for (int p = from; p < to; p++) {
+            liveSums[p - from] += liveCounts[offset + p] / games;
+            highlightsSums[p - from] += highlightsCounts[offset + p] / games;
+        }
+    }
+
+    /**
+     * Same as sumCoverage, counting only the games that start within the window. The cube only holds counts over
+     * all games, so for a window the entity's games in it are located in the start time index and their offers
+     * counted per package. For ALL this is the regular cube sweep.
+     */
+    void sumCoverage(int[] teamRows, int[] tournamentRows, TimeWindow window, double[] liveSums, double[] highlightsSums) {
+        if (window.isAll()) {
+            sumCoverage(teamRows, tournamentRows, liveSums, highlightsSums);
+            return;
+        }
+        for (int team : teamRows) {
+            if (team >= 0) addWindowCoverage(gamesByTeamByTime[team], window, liveSums, highlightsSums);
+        }
+        for (int tournament : tournamentRows) {
+            if (tournament >= 0) addWindowCoverage(gamesByTournamentByTime[tournament], window, liveSums, highlightsSums);
+        }
+    }
+
+    private void addWindowCoverage(int[] gamesByTime, TimeWindow window, double[] liveSums, double[] highlightsSums) {
+        int from = startingFrom(gamesByTime, window.fromMinute());
+        int to = startingFrom(gamesByTime, window.toMinute());
+        if (from == to) return;
+        int[] liveCounts = new int[packagesByIndex.length];
+        int[] highlightsCounts = new int[packagesByIndex.length];
+        int[] countedFor = new int[packagesByIndex.length]; // last position + 1 a package was counted for, like the cube a game counts once per package
+        for (int i = from; i < to; i++) {
+            int game = gamesByTime[i];
+            for (int offer = offerStartByGame[game]; offer < offerStartByGame[game + 1]; offer++) {
+                int pkg = offerPackages[offer];
+                if (countedFor[pkg] == i + 1) continue;
+                countedFor[pkg] = i + 1;
+                if (Bits.get(liveGamesByPackage[pkg], game)) liveCounts[pkg]++;
+                if (Bits.get(highlightGamesByPackage[pkg], game)) highlightsCounts[pkg]++;
+            }
+        }
+        double games = to - from;
+        for (int p = 0; p < packagesByIndex.length; p++) {
+            liveSums[p] += liveCounts[p] / games;
+            highlightsSums[p] += highlightsCounts[p] / games;
+        }
+    }
+
+    /** @return Approximate heap footprint of the coverage cube arrays in bytes */
+    public long getCoverageCubeBytes() {
+        return arrayBytes(teamLiveCounts) + arrayBytes(teamHighlightsCounts)
+            + arrayBytes(tournamentLiveCounts) + arrayBytes(tournamentHighlightsCounts);
+    }
+
+    // Approximate retained size of an int[]: 16 byte array header plus 4 bytes per element
+    private static long arrayBytes(int[] array) {
+        return 16L + 4L * array.length;
+    }
+
+    private double cubeCoverage(int row, int packageIndex, int[][] gamesByEntity, int[] coveredCounts) {
+        if (row < 0 || packageIndex < 0 || gamesByEntity[row].length == 0) return 0.0;
+        return (double) coveredCounts[row * packagesByIndex.length + packageIndex] / gamesByEntity[row].length;
+    }
+}
@@ -0,0 +1,287 @@
+package com.check24.streaming.service;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import com.check24.streaming.model.StreamingPackage;
+
+/**
+ * Compact binary snapshot of a Dataset, so later starts can skip CSV parsing and index building.
+ *
+ * Layout (big endian):
+ * - header: magic, format version, source stamp (size and modification time of each CSV file, see
+ *   CsvDatasetLoader.sourceStamp), payload length, CRC32 of the payload
+ * - payload: dictionaries, packages, game columns, offers, game indexes, coverage bitsets and coverage cube,
+ *   followed by the derived indexes (month index, start time index, coverage classes and name index keys),
+ *   every array prefixed with its length
+ *
+ * Snapshots are read through a memory-mapped FileChannel and bulk-copied into the dataset's arrays; the arrays are
+ * not served from the mapping itself, since every index and query of a Dataset works on plain Java arrays, so the
+ * dataset has to fit into the heap. Opening a snapshot therefore costs one copy of the file and rebuilding the hash
+ * lookups, nothing is derived again, and the CSV files are not read at all.
+ * A snapshot with a different magic, version or source stamp, or a payload that fails the checksum, is rejected.
+ * The stamp does not notice a CSV file rewritten with the same size and modification time.
+ */
+final class DatasetSnapshotFile
+{
+    private static final int MAGIC = 0x53434453; // "SCDS"
+    private static final int FORMAT_VERSION = 3;
+    private static final int STAMP_LENGTH = 6;
+    private static final int HEADER_BYTES = 4 + 4 + 8 * STAMP_LENGTH + 8 + 8;
+
+    private DatasetSnapshotFile() {}
+
+    /**
+     * Writes the dataset to a temporary file next to the target and atomically moves it into place,
+     * so readers never see a partially written snapshot.
+     * @param dataset Dataset to persist
+     * @param sourceStamp CsvDatasetLoader.sourceStamp of the files the dataset was built from
+     * @param path Target file
+     */
+    public static void write(Dataset dataset, long[] sourceStamp, Path path) throws IOException {
+        if (sourceStamp.length != STAMP_LENGTH) {
+            throw new IllegalArgumentException("Source stamp must have " + STAMP_LENGTH + " values");
+        }
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            CRC32 crc = new CRC32();
+            try (OutputStream file = Files.newOutputStream(temp)) {
+                file.write(new byte[HEADER_BYTES]); // placeholder, rewritten once the payload checksum is known
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(file, crc), 1 << 16));
+                writeContent(dataset, out);
+                writeIndexes(dataset.indexes(), out);
+                out.flush();
+            }
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                header.putInt(MAGIC).putInt(FORMAT_VERSION);
+                for (long value : sourceStamp) header.putLong(value);
+                header.putLong(channel.size() - HEADER_BYTES).putLong(crc.getValue()).flip();
+                channel.write(header, 0);
+                channel.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Opens a snapshot through a memory-mapped channel.
+     * @param path Snapshot file
+     * @param sourceStamp CsvDatasetLoader.sourceStamp of the current files
+     * @param version Version to assign to the dataset
+     * @return The dataset, or null if the file is missing, stale or corrupt
+     */
+    public static Dataset read(Path path, long[] sourceStamp, long version) throws IOException {
+        if (!Files.isRegularFile(path)) return null;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) return null;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) return null;
+            for (long value : sourceStamp) {
+                if (buffer.getLong() != value) return null;
+            }
+            long payloadLength = buffer.getLong();
+            long payloadCrc = buffer.getLong();
+            if (payloadLength != channel.size() - HEADER_BYTES) return null;
+
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice());
+            if (crc.getValue() != payloadCrc) return null;
+            return readPayload(buffer, version);
+        }
+    }
+
+    /**
+     * CRC32 over the dataset content in snapshot form, i.e. everything except the derived indexes, which follow
+     * from it. Used to tell whether results derived from a dataset (see PrecomputedResultsFile) still apply to
+     * another one.
+     */
+    public static long contentFingerprint(Dataset dataset) {
+        CRC32 crc = new CRC32();
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(OutputStream.nullOutputStream(), crc), 1 << 16));
+            writeContent(dataset, out);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return crc.getValue();
+    }
+
+    private static void writeContent(Dataset dataset, DataOutputStream out) throws IOException {
+        writeStrings(out, dataset.teamNames);
+        writeStrings(out, dataset.tournamentNames);
+        out.writeInt(dataset.packagesByIndex.length);
+        for (StreamingPackage pkg : dataset.packagesByIndex) {
+            out.writeInt(pkg.getStreamingPackageId());
+            writeString(out, pkg.getName());
+            out.writeDouble(pkg.getMonthlyPriceCents());
+            out.writeDouble(pkg.getYearlyPriceCents());
+        }
+        writeInts(out, dataset.gameIds);
+        writeInts(out, dataset.homeTeams);
+        writeInts(out, dataset.awayTeams);
+        writeInts(out, dataset.gameTournaments);
+        writeInts(out, dataset.startMinutes);
+        writeInts(out, dataset.offerStartByGame);
+        writeInts(out, dataset.offerPackages);
+        out.writeInt(dataset.offerFlags.length);
+        out.write(dataset.offerFlags);
+        writeIntMatrix(out, dataset.gamesByTeam);
+        writeIntMatrix(out, dataset.gamesByTournament);
+        writeLongMatrix(out, dataset.liveGamesByPackage);
+        writeLongMatrix(out, dataset.highlightGamesByPackage);
+        writeLongMatrix(out, dataset.offeredGamesByPackage);
+        writeInts(out, dataset.teamLiveCounts);
+        writeInts(out, dataset.teamHighlightsCounts);
+        writeInts(out, dataset.tournamentLiveCounts);
+        writeInts(out, dataset.tournamentHighlightsCounts);
+    }
+
+    private static void writeIndexes(Dataset.Indexes indexes, DataOutputStream out) throws IOException {
+        writeInts(out, indexes.monthOrdinals());
+        out.writeInt(indexes.firstMonth());
+        writeLongMatrix(out, indexes.gamesByMonth());
+        writeIntMatrix(out, indexes.gamesByTeamByTime());
+        writeIntMatrix(out, indexes.gamesByTournamentByTime());
+        writeInts(out, indexes.coverageClasses());
+        writeInts(out, indexes.liveCoverageClasses());
+        writeInts(out, indexes.highlightsCoverageClasses());
+        out.writeInt(indexes.coverageClassCount());
+        writeLongMatrix(out, indexes.offeredClassesByPackage());
+        writeNameIndex(out, indexes.teamNameIndex());
+        writeNameIndex(out, indexes.tournamentNameIndex());
+    }
+
+    private static void writeNameIndex(DataOutputStream out, NameIndex index) throws IOException {
+        writeStrings(out, index.nameKeys);
+        writeInts(out, index.nameOwners);
+        writeStrings(out, index.wordKeys);
+        writeInts(out, index.wordOwners);
+    }
+
+    private static Dataset readPayload(ByteBuffer in, long version) {
+        String[] teamNames = readStrings(in);
+        String[] tournamentNames = readStrings(in);
+        StreamingPackage[] packages = new StreamingPackage[in.getInt()];
+        for (int i = 0; i < packages.length; i++) {
+            packages[i] = new StreamingPackage(in.getInt(), readString(in), in.getDouble(), in.getDouble());
+        }
+        int[] gameIds = readInts(in);
+        int[] homeTeams = readInts(in);
+        int[] awayTeams = readInts(in);
+        int[] gameTournaments = readInts(in);
+        int[] startMinutes = readInts(in);
+        int[] offerStartByGame = readInts(in);
+        int[] offerPackages = readInts(in);
+        byte[] offerFlags = new byte[in.getInt()];
+        in.get(offerFlags);
+        int[][] gamesByTeam = readIntMatrix(in);
+        int[][] gamesByTournament = readIntMatrix(in);
+        long[][] liveGamesByPackage = readLongMatrix(in);
+        long[][] highlightGamesByPackage = readLongMatrix(in);
+        long[][] offeredGamesByPackage = readLongMatrix(in);
+        int[] teamLiveCounts = readInts(in);
+        int[] teamHighlightsCounts = readInts(in);
+        int[] tournamentLiveCounts = readInts(in);
+        int[] tournamentHighlightsCounts = readInts(in);
+        return new Dataset(version, gameIds, homeTeams, awayTeams, gameTournaments, startMinutes,
+            teamNames, tournamentNames, packages, offerStartByGame, offerPackages, offerFlags,
+            gamesByTeam, gamesByTournament, liveGamesByPackage, highlightGamesByPackage, offeredGamesByPackage,
+            teamLiveCounts, teamHighlightsCounts, tournamentLiveCounts, tournamentHighlightsCounts,
+            readIndexes(in, teamNames, tournamentNames));
+    }
+
+    private static Dataset.Indexes readIndexes(ByteBuffer in, String[] teamNames, String[] tournamentNames) {
+        return new Dataset.Indexes(readInts(in), in.getInt(), readLongMatrix(in), readIntMatrix(in), readIntMatrix(in),
+            readInts(in), readInts(in), readInts(in), in.getInt(), readLongMatrix(in),
+            readNameIndex(in, teamNames), readNameIndex(in, tournamentNames));
+    }
+
+    private static NameIndex readNameIndex(ByteBuffer in, String[] names) {
+        return new NameIndex(names, readStrings(in), readInts(in), readStrings(in), readInts(in));
+    }
+
+    // Primitive encoders, every array is prefixed with its length. Also used by PrecomputedResultsFile.
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static void writeStrings(DataOutputStream out, String[] values) throws IOException {
+        out.writeInt(values.length);
+        for (String value : values) writeString(out, value);
+    }
+
+    static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) out.writeInt(value);
+    }
+
+    private static void writeIntMatrix(DataOutputStream out, int[][] rows) throws IOException {
+        out.writeInt(rows.length);
+        for (int[] row : rows) writeInts(out, row);
+    }
+
+    private static void writeLongMatrix(DataOutputStream out, long[][] rows) throws IOException {
+        out.writeInt(rows.length);
+        for (long[] row : rows) {
+            out.writeInt(row.length);
+            for (long value : row) out.writeLong(value);
+        }
+    }
+
+    static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static String[] readStrings(ByteBuffer in) {
+        String[] values = new String[in.getInt()];
+        for (int i = 0; i < values.length; i++) values[i] = readString(in);
+        return values;
+    }
+
+    static int[] readInts(ByteBuffer in) {
+        int[] values = new int[in.getInt()];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + 4 * values.length);
+        return values;
+    }
+
+    private static int[][] readIntMatrix(ByteBuffer in) {
+        int[][] rows = new int[in.getInt()][];
+        for (int i = 0; i < rows.length; i++) rows[i] = readInts(in);
+        return rows;
+    }
+
+    private static long[][] readLongMatrix(ByteBuffer in) {
+        long[][] rows = new long[in.getInt()][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = new long[in.getInt()];
+            in.asLongBuffer().get(rows[i]);
+            in.position(in.position() + 8 * rows[i].length);
+        }
+        return rows;
+    }
+}
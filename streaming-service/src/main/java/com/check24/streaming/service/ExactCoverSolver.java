@@ -0,0 +1,368 @@
+package com.check24.streaming.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.apache.commons.math3.exception.TooManyIterationsException;
+import org.apache.commons.math3.optim.MaxIter;
+import org.apache.commons.math3.optim.PointValuePair;
+import org.apache.commons.math3.optim.linear.LinearConstraint;
+import org.apache.commons.math3.optim.linear.LinearConstraintSet;
+import org.apache.commons.math3.optim.linear.LinearObjectiveFunction;
+import org.apache.commons.math3.optim.linear.NoFeasibleSolutionException;
+import org.apache.commons.math3.optim.linear.NonNegativeConstraint;
+import org.apache.commons.math3.optim.linear.PivotSelectionRule;
+import org.apache.commons.math3.optim.linear.Relationship;
+import org.apache.commons.math3.optim.linear.SimplexSolver;
+import org.apache.commons.math3.optim.nonlinear.scalar.GoalType;
+
+/**
+ * Exact weighted set cover: the cheapest set of packages that covers every game any of the packages offers.
+ * Among equally cheap sets the one with the fewest packages wins.
+ *
+ * Games offered by exactly the same packages are merged into one row and rows implied by a smaller row are
+ * dropped, so the problem only has as many constraints as there are distinct coverage patterns. The search is a
+ * best-first branch and bound over the packages: every node is bounded by its LP relaxation (commons-math3
+ * simplex), fractional LP solutions are rounded to new incumbents and the node's most fractional package is
+ * branched on. The search starts from a given solution, usually the greedy one, so it never returns anything
+ * worse. When the deadline passes or the thread is interrupted, also within a simplex run, the best incumbent is
+ * returned together with the lowest open bound. A listener can follow the search: it gets every new incumbent with the bound proven so far,
+ * which is the bound of the node being branched on since nodes are expanded in bound order.
+ */
+final class ExactCoverSolver
+{
+    /**
+     * @param columns Positions of the chosen packages, ascending
+     * @param cost Total cost of the chosen packages
+     * @param lowerBound Proven lower bound of the optimal cost, equal to cost if optimal
+     * @param optimal Whether the search finished before the deadline
+     * @param nodes Number of branch and bound nodes evaluated
+     */
+    record Solution(int[] columns, double cost, double lowerBound, boolean optimal, int nodes) {}
+
+    private static final double EPSILON = 1e-6;
+
+    // Open subproblem: packages fixed in and out, LP bound and LP solution (null if the LP failed)
+    private record Node(long[] in, long[] out, double bound, double[] x, int depth) {}
+
+    private final int columnCount;
+    private final long[][] rows; /** Per distinct coverage pattern: bitset over column positions */
+    private final double[] costs;
+    private final double[] weights; /** cost * (columnCount + 1) + 1, so cost decides and the package count breaks ties */
+    private final boolean integral; /** All costs are whole numbers, so better solutions are at least 1 weight unit cheaper */
+    private final long deadline;
+    private final Consumer<Solution> listener; /** null if nobody follows the search */
+    private long[] incumbent;
+    private double incumbentWeight;
+    private double openBound; /** Lowest bound among the open nodes when the current node was taken */
+    private int nodes;
+
+    private ExactCoverSolver(double[] costs, long[][] rows, long deadline, Consumer<Solution> listener) {
+        this.columnCount = costs.length;
+        this.rows = rows;
+        this.costs = costs;
+        this.deadline = deadline;
+        this.listener = listener;
+        this.weights = new double[columnCount];
+        boolean integral = true;
+        for (int j = 0; j < columnCount; j++) {
+            weights[j] = costs[j] * (columnCount + 1) + 1;
+            integral &= costs[j] == Math.rint(costs[j]);
+        }
+        this.integral = integral;
+    }
+
+    /**
+     * @param costs Cost of every column (package)
+     * @param columns Elements (games) offered by every column, null for a column that cannot be chosen
+     * @param elements Elements to cover; those no column offers are ignored
+     * @param initial Positions of a set of columns covering all coverable elements, used as first incumbent
+     * @param deadline System.nanoTime() after which the search stops with the best incumbent
+     */
+    static Solution solve(double[] costs, long[][] columns, long[] elements, int[] initial, long deadline) {
+        return solve(costs, columns, elements, initial, deadline, null);
+    }
+
+    /**
+     * @param listener Called on the solving thread with every incumbent cheaper than the initial one, not optimal
+     *                 and with the lower bound proven at that point; null for none
+     */
+    static Solution solve(double[] costs, long[][] columns, long[] elements, int[] initial, long deadline,
+                          Consumer<Solution> listener) {
+        ExactCoverSolver solver = new ExactCoverSolver(costs, coverageRows(columns, elements), deadline, listener);
+        return solver.run(initial);
+    }
+
+    // Distinct non-empty coverage patterns of the elements, without patterns that are supersets of another one
+    private static long[][] coverageRows(long[][] columns, long[] elements) {
+        int words = (columns.length + 63) >>> 6;
+        Set<Signature> distinct = new HashSet<>();
+        for (int element = Bits.nextSetBit(elements, 0); element >= 0; element = Bits.nextSetBit(elements, element + 1)) {
+            long[] signature = new long[words];
+            boolean covered = false;
+            for (int j = 0; j < columns.length; j++) {
+                if (columns[j] != null && Bits.get(columns[j], element)) {
+                    Bits.set(signature, j);
+                    covered = true;
+                }
+            }
+            if (covered) distinct.add(new Signature(signature));
+        }
+
+        List<long[]> sorted = new ArrayList<>();
+        for (Signature signature : distinct) sorted.add(signature.words());
+        sorted.sort(Comparator.comparingInt(Bits::cardinality).thenComparing(Arrays::compare));
+        List<long[]> kept = new ArrayList<>();
+        for (long[] row : sorted) {
+            boolean implied = false;
+            for (long[] smaller : kept) {
+                if (Bits.isSubset(smaller, row)) {
+                    implied = true;
+                    break;
+                }
+            }
+            if (!implied) kept.add(row);
+        }
+        return kept.toArray(long[][]::new);
+    }
+
+    private record Signature(long[] words) {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Signature signature && Arrays.equals(words, signature.words);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(words);
+        }
+    }
+
+    private Solution run(int[] initial) {
+        long[] start = Bits.create(columnCount);
+        for (int j : initial) Bits.set(start, j);
+        completeCover(start);
+        setIncumbent(irredundant(start));
+
+        PriorityQueue<Node> open = new PriorityQueue<>(
+            Comparator.comparingDouble(Node::bound).thenComparing(Comparator.comparingInt(Node::depth).reversed()));
+        Node root = evaluate(Bits.create(columnCount), Bits.create(columnCount), 0, 0);
+        if (root != null) openBound = root.bound();
+        consider(root, open);
+
+        while (!open.isEmpty() && System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+            Node node = open.poll();
+            if (!improves(node.bound())) continue;
+            openBound = node.bound();
+            int branch = branchColumn(node);
+            if (branch < 0) continue;
+
+            long[] in = node.in().clone();
+            Bits.set(in, branch);
+            consider(evaluate(in, node.out(), node.bound(), node.depth() + 1), open);
+            long[] out = node.out().clone();
+            Bits.set(out, branch);
+            consider(evaluate(node.in(), out, node.bound(), node.depth() + 1), open);
+        }
+
+        boolean optimal = open.stream().noneMatch(node -> improves(node.bound()));
+        return solution(optimal, optimal ? incumbentWeight : open.peek().bound());
+    }
+
+    // The incumbent as a solution, with the lower bound derived from the lowest weight any better cover could have
+    private Solution solution(boolean optimal, double weightBound) {
+        double cost = cost(incumbent);
+        double lowerBound = cost;
+        if (!optimal) {
+            weightBound = Math.min(incumbentWeight, weightBound);
+            // weight = cost * (n + 1) + package count, and at most n packages are chosen
+            lowerBound = (weightBound - columnCount) / (columnCount + 1);
+            if (integral) lowerBound = Math.ceil(lowerBound - EPSILON);
+            lowerBound = Math.min(Math.max(lowerBound, 0), cost);
+        }
+        int[] columns = new int[Bits.cardinality(incumbent)];
+        int next = 0;
+        for (int j = Bits.nextSetBit(incumbent, 0); j >= 0; j = Bits.nextSetBit(incumbent, j + 1)) columns[next++] = j;
+        return new Solution(columns, cost, lowerBound, optimal, nodes);
+    }
+
+    /**
+     * Solves the LP relaxation of the subproblem where the columns in are chosen and the columns out are excluded.
+     * @param parentBound Bound used if the simplex does not converge in time, valid since a subproblem is never cheaper
+     * @return The node, or null if no cover exists within the subproblem
+     */
+    private Node evaluate(long[] in, long[] out, double parentBound, int depth) {
+        nodes++;
+        double fixedWeight = weight(in);
+        int[] free = new int[columnCount];
+        int freeCount = 0;
+        for (int j = 0; j < columnCount; j++) {
+            if (!Bits.get(in, j) && !Bits.get(out, j)) free[freeCount++] = j;
+        }
+
+        List<LinearConstraint> constraints = new ArrayList<>();
+        for (long[] row : rows) {
+            if (Bits.intersects(row, in)) continue;
+            double[] coefficients = new double[freeCount];
+            boolean coverable = false;
+            for (int k = 0; k < freeCount; k++) {
+                if (Bits.get(row, free[k])) {
+                    coefficients[k] = 1;
+                    coverable = true;
+                }
+            }
+            if (!coverable) return null;
+            constraints.add(new LinearConstraint(coefficients, Relationship.GEQ, 1));
+        }
+        double[] x = new double[columnCount];
+        if (constraints.isEmpty()) return new Node(in, out, fixedWeight, x, depth);
+
+        double[] objective = new double[freeCount];
+        for (int k = 0; k < freeCount; k++) objective[k] = weights[free[k]];
+        try {
+            PointValuePair solution = new DeadlineSimplexSolver().optimize(new MaxIter(10_000),
+                new LinearObjectiveFunction(objective, 0), new LinearConstraintSet(constraints),
+                GoalType.MINIMIZE, new NonNegativeConstraint(true), PivotSelectionRule.BLAND);
+            for (int k = 0; k < freeCount; k++) x[free[k]] = solution.getPoint()[k];
+            return new Node(in, out, Math.max(parentBound, fixedWeight + solution.getValue()), x, depth);
+        } catch (TooManyIterationsException | NoFeasibleSolutionException e) {
+            return new Node(in, out, parentBound, null, depth);
+        }
+    }
+
+    // Simplex that gives up like on too many iterations once the deadline passes or the thread is interrupted
+    private final class DeadlineSimplexSolver extends SimplexSolver {
+        @Override
+        protected void incrementIterationCount() {
+            super.incrementIterationCount();
+            if (System.nanoTime() >= deadline || Thread.currentThread().isInterrupted()) {
+                throw new TooManyIterationsException(getMaxIterations());
+            }
+        }
+    }
+
+    /**
+     * Uses a freshly evaluated node for the incumbent: an integral LP solution is the best cover below the node and
+     * closes it, a fractional one is rounded and the node stays open if its bound can still beat the incumbent.
+     */
+    private void consider(Node node, PriorityQueue<Node> open) {
+        if (node == null || !improves(node.bound())) return;
+        if (node.x() != null) {
+            if (branchColumn(node) < 0) {
+                long[] chosen = node.in().clone();
+                for (int j = 0; j < columnCount; j++) if (node.x()[j] > 1 - EPSILON) Bits.set(chosen, j);
+                if (coversAll(chosen) && improves(weight(chosen))) {
+                    setIncumbent(chosen);
+                    return;
+                }
+            }
+            round(node);
+        }
+        if (improves(node.bound())) open.add(node);
+    }
+
+    /**
+     * @return The free column whose LP value is closest to 1/2, the first free column of the smallest uncovered row
+     *         if the LP failed, or -1 if the LP solution is integral
+     */
+    private int branchColumn(Node node) {
+        if (node.x() == null) {
+            long[] smallest = null;
+            for (long[] row : rows) {
+                if (!Bits.intersects(row, node.in()) && (smallest == null || Bits.cardinality(row) < Bits.cardinality(smallest))) {
+                    smallest = row;
+                }
+            }
+            for (int j = smallest == null ? -1 : Bits.nextSetBit(smallest, 0); j >= 0; j = Bits.nextSetBit(smallest, j + 1)) {
+                if (!Bits.get(node.out(), j)) return j;
+            }
+            return -1;
+        }
+        int best = -1;
+        double bestDistance = EPSILON;
+        for (int j = 0; j < columnCount; j++) {
+            double distance = Math.min(node.x()[j], 1 - node.x()[j]);
+            if (distance > bestDistance) {
+                best = j;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    // Rounding heuristic: takes columns by decreasing LP value until everything is covered
+    private void round(Node node) {
+        long[] chosen = node.in().clone();
+        List<Integer> positive = new ArrayList<>();
+        for (int j = 0; j < columnCount; j++) if (node.x()[j] > EPSILON && !Bits.get(chosen, j)) positive.add(j);
+        positive.sort(Comparator.comparingDouble((Integer j) -> -node.x()[j]).thenComparingInt(j -> j));
+        for (int j : positive) {
+            if (coversAll(chosen)) break;
+            Bits.set(chosen, j);
+        }
+        if (!coversAll(chosen)) return;
+        chosen = irredundant(chosen);
+        if (improves(weight(chosen))) setIncumbent(chosen);
+    }
+
+    // Adds the cheapest column of every row the chosen columns miss
+    private void completeCover(long[] chosen) {
+        for (long[] row : rows) {
+            if (Bits.intersects(row, chosen)) continue;
+            int cheapest = -1;
+            for (int j = Bits.nextSetBit(row, 0); j >= 0; j = Bits.nextSetBit(row, j + 1)) {
+                if (cheapest < 0 || weights[j] < weights[cheapest]) cheapest = j;
+            }
+            Bits.set(chosen, cheapest);
+        }
+    }
+
+    // Drops columns that are not needed for the cover, most expensive first
+    private long[] irredundant(long[] chosen) {
+        long[] result = chosen.clone();
+        List<Integer> columns = new ArrayList<>();
+        for (int j = Bits.nextSetBit(result, 0); j >= 0; j = Bits.nextSetBit(result, j + 1)) columns.add(j);
+        columns.sort(Comparator.comparingDouble((Integer j) -> -weights[j]).thenComparingInt(j -> -j));
+        for (int j : columns) {
+            result[j >>> 6] &= ~(1L << j);
+            if (!coversAll(result)) Bits.set(result, j);
+        }
+        return result;
+    }
+
+    private boolean improves(double weight) {
+        return weight < incumbentWeight - (integral ? 1 - EPSILON : EPSILON);
+    }
+
+    // The initial incumbent is set before any node is evaluated and is not reported
+    private void setIncumbent(long[] chosen) {
+        incumbent = chosen;
+        incumbentWeight = weight(chosen);
+        if (listener != null && nodes > 0) listener.accept(solution(false, openBound));
+    }
+
+    private boolean coversAll(long[] chosen) {
+        for (long[] row : rows) {
+            if (!Bits.intersects(row, chosen)) return false;
+        }
+        return true;
+    }
+
+    private double weight(long[] chosen) {
+        double weight = 0;
+        for (int j = Bits.nextSetBit(chosen, 0); j >= 0; j = Bits.nextSetBit(chosen, j + 1)) weight += weights[j];
+        return weight;
+    }
+
+    private double cost(long[] chosen) {
+        double cost = 0;
+        for (int j = Bits.nextSetBit(chosen, 0); j >= 0; j = Bits.nextSetBit(chosen, j + 1)) cost += costs[j];
+        return cost;
+    }
+}
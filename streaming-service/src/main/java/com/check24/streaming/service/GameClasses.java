@@ -0,0 +1,138 @@
+package com.check24.streaming.service;
+
+import java.util.Arrays;
+
+import com.check24.streaming.model.CoveragePreference;
+
+/**
+ * Games to cover, collapsed into their coverage classes (see Dataset.getCoverageClass). Games of one class are
+ * offered by exactly the same packages, so for a set cover they behave like one element weighted by the number
+ * of games in it. A selection of thousands of games becomes a few dozen classes.
+ *
+ * Sets of classes are bitsets over the words of the dataset's class bitsets that hold any of the classes, so
+ * the classes a package offers are one AND per word (offeredBy). Weights are stored bit-sliced: one bitset per
+ * weight bit, holding the classes whose weight has that bit set. The total weight of a set of classes is then
+ * a few popcounts instead of one per game.
+ *
+ * Two instances are equal if they hold the same number of games of the same classes, which makes them the
+ * same set cover problem, also across coverage preferences.
+ */
+final class GameClasses
+{
+    private final int[] words; /** Indices of the class bitset words that hold any of the classes */
+    private final long[] present; /** The classes among the games, as a set of classes */
+    private final int[] classes; /** Coverage classes among the games, ascending */
+    private final int[] weights; /** Number of games of each class */
+    private final long[][] weightBits; /** Set of classes per weight bit, lowest bit first */
+    private final int totalWeight;
+
+    private GameClasses(int[] words, long[] present, int[] classes, int[] weights) {
+        this.words = words;
+        this.present = present;
+        this.classes = classes;
+        this.weights = weights;
+        int maxWeight = 0;
+        int total = 0;
+        for (int weight : weights) {
+            maxWeight = Math.max(maxWeight, weight);
+            total += weight;
+        }
+        this.totalWeight = total;
+        this.weightBits = new long[32 - Integer.numberOfLeadingZeros(maxWeight)][present.length];
+        int i = 0;
+        for (int k = 0; k < present.length; k++) {
+            for (long word = present[k]; word != 0; word &= word - 1, i++) {
+                long bit = Long.lowestOneBit(word);
+                for (int b = 0; b < weightBits.length; b++) {
+                    if ((weights[i] >>> b & 1) != 0) weightBits[b][k] |= bit;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param games Bitset over game indices of the dataset
+     * @param preference Which offers cover a game, null for any offer (see Dataset.getCoverageClass)
+     */
+    static GameClasses of(Dataset dataset, long[] games, CoveragePreference preference) {
+        long[] classSet = Bits.create(dataset.getCoverageClassCount());
+        int[] counts = new int[dataset.getCoverageClassCount()];
+        for (int game = Bits.nextSetBit(games, 0); game >= 0; game = Bits.nextSetBit(games, game + 1)) {
+            int coverageClass = dataset.getCoverageClass(preference, game);
+            Bits.set(classSet, coverageClass);
+            counts[coverageClass]++;
+        }
+        int wordCount = 0;
+        for (long word : classSet) {
+            if (word != 0) wordCount++;
+        }
+        int[] words = new int[wordCount];
+        long[] present = new long[wordCount];
+        int[] classes = new int[Bits.cardinality(classSet)];
+        int[] weights = new int[classes.length];
+        int i = 0;
+        for (int w = 0, k = 0; w < classSet.length; w++) {
+            if (classSet[w] == 0) continue;
+            words[k] = w;
+            present[k++] = classSet[w];
+            for (long word = classSet[w]; word != 0; word &= word - 1, i++) {
+                classes[i] = (w << 6) + Long.numberOfTrailingZeros(word);
+                weights[i] = counts[classes[i]];
+            }
+        }
+        return new GameClasses(words, present, classes, weights);
+    }
+
+    /** @return Number of distinct coverage classes among the games */
+    int size() {
+        return classes.length;
+    }
+
+    /** @return Number of games */
+    int totalWeight() {
+        return totalWeight;
+    }
+
+    /** @return Set of all classes among the games */
+    long[] all() {
+        return present.clone();
+    }
+
+    /**
+     * @param packageIndex Dense package index, negative for a package the dataset does not know
+     * @return Set of the classes among the games that the package offers
+     */
+    long[] offeredBy(Dataset dataset, int packageIndex) {
+        long[] offered = new long[words.length];
+        if (packageIndex < 0) return offered;
+        long[] offeredClasses = dataset.getOfferedCoverageClasses(packageIndex);
+        for (int k = 0; k < words.length; k++) {
+            offered[k] = offeredClasses[words[k]] & present[k];
+        }
+        return offered;
+    }
+
+    /** @return Number of games of the classes in both a and b */
+    int weight(long[] a, long[] b) {
+        int weight = 0;
+        for (int bit = 0; bit < weightBits.length; bit++) {
+            long[] layer = weightBits[bit];
+            int count = 0;
+            for (int k = 0; k < layer.length; k++) {
+                count += Long.bitCount(a[k] & b[k] & layer[k]);
+            }
+            weight += count << bit;
+        }
+        return weight;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof GameClasses that && Arrays.equals(classes, that.classes) && Arrays.equals(weights, that.weights);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(classes) + Arrays.hashCode(weights);
+    }
+}
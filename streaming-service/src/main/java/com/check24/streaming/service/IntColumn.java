@@ -0,0 +1,33 @@
+package com.check24.streaming.service;
+
+import java.util.Arrays;
+
+/**
+ * Growable primitive int column used while ingesting CSV files record by record,
+ * before the final size of the data set is known.
+ */
+final class IntColumn
+{
+    private int[] values = new int[1024];
+    private int size;
+
+    public void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    public int get(int index) {
+        return values[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** @return A trimmed copy of the column */
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
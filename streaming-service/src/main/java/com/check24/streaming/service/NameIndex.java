@@ -0,0 +1,246 @@
+package com.check24.streaming.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Autocomplete index over a fixed set of names, used for team and tournament lookup.
+ *
+ * Names are stored as lower-cased keys in a sorted array, and so are the later words of each name, so matches
+ * for a prefix are found with a binary search and a scan that stops after the requested number of names
+ * ("bay" also finds "FC Bayern München"). If that yields fewer names than requested, the remaining slots are
+ * filled with names that have a word starting with the query within a small edit distance, to tolerate typos.
+ *
+ * Results are ordered: names starting with the query, names with a later word starting with it, fuzzy matches
+ * by distance. Within each group names are ordered case-insensitively.
+ */
+final class NameIndex
+{
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final int MIN_FUZZY_LENGTH = 4; /** Shorter queries only get exact prefix matches */
+
+    private final String[] names;
+    final String[] nameKeys; /** Lower-cased names, sorted */
+    final int[] nameOwners; /** Index into names for each name key */
+    final String[] wordKeys; /** Lower-cased name suffixes starting at a later word, sorted */
+    final int[] wordOwners; /** Index into names for each word key */
+
+    /**
+     * @param names Names to index
+     */
+    NameIndex(String[] names) {
+        this.names = names;
+        List<String> firstKeys = new ArrayList<>();
+        List<Integer> firstOwners = new ArrayList<>();
+        List<String> laterKeys = new ArrayList<>();
+        List<Integer> laterOwners = new ArrayList<>();
+        for (int i = 0; i < names.length; i++) {
+            String normalized = normalize(names[i]);
+            firstKeys.add(normalized);
+            firstOwners.add(i);
+            for (int p = 1; p < normalized.length(); p++) {
+                if (!Character.isLetterOrDigit(normalized.charAt(p - 1)) && Character.isLetterOrDigit(normalized.charAt(p))) {
+                    laterKeys.add(normalized.substring(p));
+                    laterOwners.add(i);
+                }
+            }
+        }
+
+        Integer[] order = sortedOrder(firstKeys, firstOwners);
+        nameKeys = new String[order.length];
+        nameOwners = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            nameKeys[i] = firstKeys.get(order[i]);
+            nameOwners[i] = firstOwners.get(order[i]);
+        }
+        order = sortedOrder(laterKeys, laterOwners);
+        wordKeys = new String[order.length];
+        wordOwners = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            wordKeys[i] = laterKeys.get(order[i]);
+            wordOwners[i] = laterOwners.get(order[i]);
+        }
+    }
+
+    /**
+     * Wraps keys built by the other constructor, e.g. as read back from a snapshot file.
+     */
+    NameIndex(String[] names, String[] nameKeys, int[] nameOwners, String[] wordKeys, int[] wordOwners) {
+        this.names = names;
+        this.nameKeys = nameKeys;
+        this.nameOwners = nameOwners;
+        this.wordKeys = wordKeys;
+        this.wordOwners = wordOwners;
+    }
+
+    private static Integer[] sortedOrder(List<String> keys, List<Integer> owners) {
+        Integer[] order = new Integer[keys.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparing((Integer e) -> keys.get(e)).thenComparing(e -> owners.get(e)));
+        return order;
+    }
+
+    /**
+     * Finds names for a partially typed query.
+     * @param query Typed text, matched case-insensitively. An empty query returns the first names.
+     * @param limit Maximum number of names to return
+     * @return Matching names, best matches first
+     */
+    public List<String> search(String query, int limit) {
+        String prefix = normalize(query);
+        List<String> result = new ArrayList<>();
+        boolean[] taken = new boolean[names.length];
+        addPrefixMatches(result, taken, nameKeys, nameOwners, prefix, limit);
+        addPrefixMatches(result, taken, wordKeys, wordOwners, prefix, limit);
+
+        if (result.size() < limit && prefix.length() >= MIN_FUZZY_LENGTH) {
+            addFuzzyMatches(result, taken, prefix, limit);
+        }
+        return result;
+    }
+
+    private void addPrefixMatches(List<String> result, boolean[] taken, String[] keys, int[] owners, String prefix, int limit) {
+        for (int e = lowerBound(keys, prefix); e < keys.length && result.size() < limit && keys[e].startsWith(prefix); e++) {
+            add(result, taken, owners[e]);
+        }
+    }
+
+    private void add(List<String> result, boolean[] taken, int owner) {
+        if (!taken[owner]) {
+            taken[owner] = true;
+            result.add(names[owner]);
+        }
+    }
+
+    // Covers all keys, since a typo may be in the first letter
+    private void addFuzzyMatches(List<String> result, boolean[] taken, String prefix, int limit) {
+        int maxEdits = prefix.length() <= 6 ? 1 : 2;
+        int[] bestDistance = new int[names.length];
+        Arrays.fill(bestDistance, Integer.MAX_VALUE);
+        List<Integer> candidates = new ArrayList<>();
+        collectFuzzyMatches(nameKeys, nameOwners, taken, prefix, maxEdits, bestDistance, candidates);
+        collectFuzzyMatches(wordKeys, wordOwners, taken, prefix, maxEdits, bestDistance, candidates);
+
+        // Candidates were found in key order, a stable sort keeps that order among equal distances
+        candidates.sort(Comparator.comparingInt(owner -> bestDistance[owner]));
+        for (int i = 0; i < candidates.size() && result.size() < limit; i++) {
+            add(result, taken, candidates.get(i));
+        }
+    }
+
+    /**
+     * Walks the sorted keys like a trie: the edit distance table has one row per key character, so consecutive keys
+     * reuse the rows of their common prefix. Once every entry of a row exceeds maxEdits no longer key can get closer,
+     * and all keys sharing that prefix are settled at once.
+     * A key's distance is the edit distance (insertions, deletions, substitutions and swaps of adjacent letters)
+     * between the query and the closest prefix of the key.
+     */
+    private static void collectFuzzyMatches(String[] keys, int[] owners, boolean[] taken, String query, int maxEdits,
+                                            int[] bestDistance, List<Integer> candidates) {
+        int maxDepth = query.length() + maxEdits; // longer key prefixes are always too far from the query
+        int[][] rows = new int[maxDepth + 1][query.length() + 1];
+        int[] closest = new int[maxDepth + 1]; /** closest[r]: distance to the closest key prefix of length <= r */
+        for (int j = 0; j <= query.length(); j++) rows[0][j] = j;
+        closest[0] = query.length();
+
+        String previousKey = "";
+        int validRows = 0; // rows 0..validRows were computed for previousKey
+        int e = 0;
+        while (e < keys.length) {
+            String key = keys[e];
+            int depth = Math.min(commonPrefixLength(previousKey, key), validRows);
+            int end = e + 1;
+            while (depth < Math.min(key.length(), maxDepth)) {
+                depth++;
+                int rowMin = computeRow(rows, depth, key, query);
+                closest[depth] = Math.min(closest[depth - 1], rows[depth][query.length()]);
+                if (rowMin > maxEdits) {
+                    end = endOfPrefix(keys, e, key, depth);
+                    break;
+                }
+            }
+            previousKey = key;
+            validRows = depth;
+
+            if (closest[depth] <= maxEdits) {
+                for (int k = e; k < end; k++) {
+                    int owner = owners[k];
+                    if (!taken[owner] && closest[depth] < bestDistance[owner]) {
+                        if (bestDistance[owner] == Integer.MAX_VALUE) candidates.add(owner);
+                        bestDistance[owner] = closest[depth];
+                    }
+                }
+            }
+            e = end;
+        }
+    }
+
+    // Fills rows[r] for key character r and returns the row minimum
+    private static int computeRow(int[][] rows, int r, String key, String query) {
+        int[] previous = rows[r - 1];
+        int[] current = rows[r];
+        char c = key.charAt(r - 1);
+        current[0] = r;
+        int rowMin = r;
+        for (int j = 1; j <= query.length(); j++) {
+            int substitution = previous[j - 1] + (query.charAt(j - 1) == c ? 0 : 1);
+            int value = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            if (r > 1 && j > 1 && query.charAt(j - 1) == key.charAt(r - 2) && query.charAt(j - 2) == c) {
+                value = Math.min(value, rows[r - 2][j - 2] + 1);
+            }
+            current[j] = value;
+            rowMin = Math.min(rowMin, value);
+        }
+        return rowMin;
+    }
+
+    // First index after from whose key does not start with the first length characters of prefixKey, by galloping search
+    private static int endOfPrefix(String[] keys, int from, String prefixKey, int length) {
+        int low = from; // keys[low] shares the prefix
+        int step = 1;
+        while (low + step < keys.length && keys[low + step].regionMatches(0, prefixKey, 0, length)) {
+            low += step;
+            step <<= 1;
+        }
+        int high = Math.min(low + step, keys.length); // keys[high] does not share it, or high is the end
+        while (high - low > 1) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].regionMatches(0, prefixKey, 0, length)) low = mid;
+            else high = mid;
+        }
+        return high;
+    }
+
+    private static int commonPrefixLength(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < length && a.charAt(i) == b.charAt(i)) i++;
+        return i;
+    }
+
+    private static int lowerBound(String[] keys, String prefix) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(prefix) < 0) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    // Lower case, German umlauts spelled out (so "muenchen" finds "München") and other accents removed
+    private static String normalize(String name) {
+        if (name == null) {
+            return "";
+        }
+        String folded = name.trim().toLowerCase(Locale.ROOT)
+            .replace("ä", "ae").replace("ö", "oe").replace("ü", "ue").replace("ß", "ss");
+        return COMBINING_MARKS.matcher(Normalizer.normalize(folded, Normalizer.Form.NFD)).replaceAll("");
+    }
+}
@@ -1,13 +1,23 @@
 package com.check24.streaming.service;
 
+import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.check24.streaming.model.BestCombination;
+import com.check24.streaming.model.CacheStats;
+import com.check24.streaming.model.CombinationStrategy;
+import com.check24.streaming.model.CoverageFrontier;
+import com.check24.streaming.model.CoveragePreference;
 import com.check24.streaming.model.Game;
-import com.check24.streaming.model.StreamingOffer;
 import com.check24.streaming.model.StreamingPackageDTO;
+import com.check24.streaming.model.SubscriptionOptions;
+import com.check24.streaming.model.BestCombination.Billing;
 import com.check24.streaming.model.BestCombination.PackagePeriod;
 
 /**
@@ -15,14 +25,60 @@ import com.check24.streaming.model.BestCombination.PackagePeriod;
  * Implements multiple strategies for package selection:
  * - Greedy approach for cases with full coverage packages or evenly distributed games
  * - Sequential monthly approach for cases with high game density variation
+ * With the EXACT strategy every greedy cover is refined by ExactCoverSolver within a time budget.
+ * Sequential combinations can be turned into a subscription plan with yearly subscriptions and switching costs.
+ * Before any cover is solved, packages dominated by another package of the request are left out (see undominated).
+ * All solvers work on the coverage classes of the requested games (GameClasses) instead of on single games;
+ * covered and uncovered games are only expanded from the selected packages at the end.
+ * The cost/coverage frontier of a selection comes from one pass of budgeted maximum coverage (getCoverageFrontier).
+ * With a CoveragePreference only live or only highlights offers cover a game; getBestPackageCombinationsByPreference
+ * solves both preferences together, sharing everything but the covers that differ.
+ *
+ * Every request captures the published dataset once, so a reload in the middle of a computation
+ * never mixes game indices of two dataset versions.
+ *
+ * Requests name their packages by id; prices and coverage are resolved on the server (PackageFilterService.resolvePackages)
+ * only when a result is computed, so cache keys and precomputed lookups compare ids only.
  */
 
 @Service
 public class PackageCombinationService {
     private final DataService dataService;
+    private final PackageFilterService packageFilterService;
+    private final ParallelEvaluation parallelEvaluation;
+    private final PrecomputedResults precomputedResults;
+    private final long exactTimeBudgetNanos;
+    private final ResultCache<CombinationKey, BestCombination> combinationCache;
+    private final ResultCache<FrontierKey, CoverageFrontier> frontierCache;
 
     public PackageCombinationService(DataService dataService) {
+        this(dataService, new PackageFilterService(dataService), new ParallelEvaluation(), new PrecomputedResults(), 300, 64L << 20,
+            16L << 20, 2000);
+    }
+
+    /**
+     * @param packageFilterService Resolves requested package ids to the packages of the selection's search
+     * @param parallelEvaluation Splits the first greedy round, which evaluates every package, of large catalogs over a dedicated thread pool
+     * @param precomputedResults Materialized results of single team and single tournament selections
+     * @param cacheTtlSeconds How long a combination is reused for the same request (streaming.cache.ttl-seconds)
+     * @param cacheMaxBytes Approximate memory limit of the combination cache, 0 to disable it (streaming.cache.combination.max-bytes)
+     * @param frontierCacheMaxBytes Approximate memory limit of the frontier cache, 0 to disable it (streaming.cache.frontier.max-bytes)
+     * @param exactTimeBudgetMillis Wall-clock budget of one EXACT request (streaming.combination.exact.time-budget-ms)
+     */
+    @Autowired
+    public PackageCombinationService(DataService dataService, PackageFilterService packageFilterService,
+                                     ParallelEvaluation parallelEvaluation, PrecomputedResults precomputedResults,
+                                     @Value("${streaming.cache.ttl-seconds:300}") long cacheTtlSeconds,
+                                     @Value("${streaming.cache.combination.max-bytes:67108864}") long cacheMaxBytes,
+                                     @Value("${streaming.cache.frontier.max-bytes:16777216}") long frontierCacheMaxBytes,
+                                     @Value("${streaming.combination.exact.time-budget-ms:2000}") long exactTimeBudgetMillis) {
         this.dataService = dataService;
+        this.packageFilterService = packageFilterService;
+        this.parallelEvaluation = parallelEvaluation;
+        this.precomputedResults = precomputedResults;
+        this.exactTimeBudgetNanos = exactTimeBudgetMillis * 1_000_000;
+        this.combinationCache = new ResultCache<>(cacheTtlSeconds, cacheMaxBytes, PackageCombinationService::estimateBytes);
+        this.frontierCache = new ResultCache<>(cacheTtlSeconds, frontierCacheMaxBytes, PackageCombinationService::estimateBytes);
     }
     
     /**
@@ -35,25 +91,273 @@ public class PackageCombinationService {
      * @param tournaments List of tournament names to include in the analysis
      * @param packages Collection of available streaming packages
      * @return BestCombination containing selected packages, coverage details, and total cost
+     *
+     * The packages are taken as given and the result is not cached; requests by package id go through the
+     * overload below.
      */
     public BestCombination getBestPackageCombinations(List<String> teams, List<String> tournaments, Collection<StreamingPackageDTO> packages) {
+        return computeBestCombination(dataService.getDataset(), Selection.of(teams, tournaments), List.copyOf(packages));
+    }
+
+    /**
+     * Same as getBestPackageCombinations, for packages given by id and only covering the games that start between
+     * from and to. Coverage, costs and the game breakdown then refer to the games within the window.
+     *
+     * Results are cached per canonical selection (sorted, duplicates removed), package id list and dataset version.
+     * The package order is part of the key since it decides ties between equally efficient packages.
+     * A single team or tournament with exactly the packages of its search result is answered from the precomputed results.
+     *
+     * @param from First day of the window, null for no lower bound
+     * @param to Last day of the window (inclusive), null for no upper bound
+     * @param strategy GREEDY (default if null) or EXACT, which reports the optimality gap of the returned combination
+     * @param subscriptions How a sequential combination may be paid for, MONTHLY (default if null) keeps one period per month
+     * @param preference LIVE or HIGHLIGHTS to only count games offered that way as covered, null (default) for any offer
+     * @param packageIds Streaming package ids to choose from, resolved like PackageFilterService.resolvePackages
+     */
+    public BestCombination getBestPackageCombinations(List<String> teams, List<String> tournaments, LocalDate from, LocalDate to,
+                                                      CombinationStrategy strategy, SubscriptionOptions subscriptions,
+                                                      CoveragePreference preference, List<Integer> packageIds) {
+        Dataset dataset = dataService.getDataset();
+        CombinationKey key = combinationKey(teams, tournaments, from, to, strategy, subscriptions, preference, packageIds);
+        if (key.strategy() == CombinationStrategy.GREEDY && key.subscriptions().isMonthly() && key.preference() == null) {
+            BestCombination precomputed = precomputedResults.bestCombination(dataset, key.selection(), key.packageIds());
+            if (precomputed != null) {
+                return precomputed;
+            }
+        }
+        return combinationCache.get(dataset.getVersion(), key,
+            k -> computeBestCombinations(dataset, k, Collections.singletonList(k.preference()))[0]);
+    }
+
+    /**
+     * The best combinations for LIVE and for HIGHLIGHTS coverage of the same request, solved together: the selected
+     * games, their months, the choice between static and sequential combination (made on all selected games) and the
+     * requested packages are resolved once, and covers of problems that are equal for both preferences are solved
+     * once. An EXACT request shares one time budget. Each combination is cached like a request with its preference.
+     *
+     * @return The combination per preference, LIVE first
+     */
+    public Map<CoveragePreference, BestCombination> getBestPackageCombinationsByPreference(List<String> teams, List<String> tournaments,
+                                                                                         LocalDate from, LocalDate to,
+                                                                                         CombinationStrategy strategy,
+                                                                                         SubscriptionOptions subscriptions,
+                                                                                         List<Integer> packageIds) {
+        Dataset dataset = dataService.getDataset();
+        CombinationKey liveKey = combinationKey(teams, tournaments, from, to, strategy, subscriptions, CoveragePreference.LIVE, packageIds);
+        CombinationKey highlightsKey = new CombinationKey(liveKey.selection(), liveKey.packageIds(), liveKey.strategy(),
+            liveKey.subscriptions(), CoveragePreference.HIGHLIGHTS);
+        BestCombination live = combinationCache.getIfPresent(dataset.getVersion(), liveKey);
+        BestCombination highlights = combinationCache.getIfPresent(dataset.getVersion(), highlightsKey);
+        if (live == null || highlights == null) {
+            BestCombination[] combinations = computeBestCombinations(dataset, liveKey,
+                List.of(CoveragePreference.LIVE, CoveragePreference.HIGHLIGHTS));
+            live = combinations[0];
+            highlights = combinations[1];
+            combinationCache.put(dataset.getVersion(), liveKey, live);
+            combinationCache.put(dataset.getVersion(), highlightsKey, highlights);
+        }
+        Map<CoveragePreference, BestCombination> combinations = new EnumMap<>(CoveragePreference.class);
+        combinations.put(CoveragePreference.LIVE, live);
+        combinations.put(CoveragePreference.HIGHLIGHTS, highlights);
+        return combinations;
+    }
+
+    private static CombinationKey combinationKey(List<String> teams, List<String> tournaments, LocalDate from, LocalDate to,
+                                                 CombinationStrategy strategy, SubscriptionOptions subscriptions,
+                                                 CoveragePreference preference, List<Integer> packageIds) {
+        if (subscriptions != null && !(subscriptions.switchingCostCents() >= 0 && subscriptions.switchingCostCents() < Double.POSITIVE_INFINITY)) {
+            throw new IllegalArgumentException("switchingCostCents must be a non-negative number");
+        }
+        return new CombinationKey(Selection.of(teams, tournaments, TimeWindow.of(from, to)), packageIdList(packageIds),
+            strategy == null ? CombinationStrategy.GREEDY : strategy, subscriptions == null ? SubscriptionOptions.MONTHLY : subscriptions,
+            preference);
+    }
+
+    // Immutable copy of the requested package ids
+    private static List<Integer> packageIdList(List<Integer> packageIds) {
+        if (packageIds == null || packageIds.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("packageIds must be a list of streaming package ids");
+        }
+        return List.copyOf(packageIds);
+    }
+
+    /** @return Hit, miss and eviction counters of the combination cache */
+    public CacheStats getCacheStats() {
+        return combinationCache.stats();
+    }
+
+    /** @return Hit, miss and eviction counters of the frontier cache */
+    public CacheStats getFrontierCacheStats() {
+        return frontierCache.stats();
+    }
+
+    /**
+     * Cost/coverage frontier of a static combination of the selected games within the window: the combinations
+     * not dominated in monthly cost and number of covered games, cheapest first. Cached like getBestPackageCombinations
+     * per canonical selection, package id list, coverage preference and dataset version.
+     *
+     * @param from First day of the window, null for no lower bound
+     * @param to Last day of the window (inclusive), null for no upper bound
+     * @param preference LIVE or HIGHLIGHTS to only count games offered that way as covered, null for any offer
+     */
+    public CoverageFrontier getCoverageFrontier(List<String> teams, List<String> tournaments, LocalDate from, LocalDate to,
+                                                CoveragePreference preference, List<Integer> packageIds) {
+        Dataset dataset = dataService.getDataset();
+        FrontierKey key = new FrontierKey(Selection.of(teams, tournaments, TimeWindow.of(from, to)), packageIdList(packageIds), preference);
+        return frontierCache.get(dataset.getVersion(), key, k -> coverageFrontier(dataset, k.selection(), k.preference(),
+            packageFilterService.resolvePackages(dataset, k.selection(), k.packageIds())));
+    }
+
+    /**
+     * All budgets of budgeted maximum coverage in one incremental pass: packages are added by newly covered games
+     * per cent of monthlyCostCents (free packages first, then more covered games, then request order), so every prefix is the greedy
+     * answer for a budget of its cost. Since a single expensive package can beat such prefixes, every package on
+     * its own is a candidate as well; these come for free from the first round. Candidates covering no more games
+     * than a cheaper one are dropped.
+     *
+     * The pass is lazy like the greedy selection: gains only shrink, so a package whose gain is unchanged when it
+     * reaches the top of the queue is the best one. Dominated packages are pruned first, which never removes a
+     * cheaper or larger cover.
+     */
+    private CoverageFrontier coverageFrontier(Dataset dataset, Selection selection, CoveragePreference preference,
+                                              List<StreamingPackageDTO> packages) {
+        long[] games = setOfAllGames(dataset, selection.teams(), selection.tournaments(), selection.window());
+        Candidates candidates = Candidates.of(dataset, packages, preference == null);
+        GameClasses classes = GameClasses.of(dataset, games, preference);
+        long[][] offered = candidates.offered(dataset, classes, candidates.all());
+        int[] active = undominated(classes, offered, candidates, candidates.all());
+
+        List<FrontierPoint> points = new ArrayList<>();
+        points.add(new FrontierPoint(0.0, 0, new int[0]));
+        long[] uncoveredClasses = classes.all();
+        double[] prices = new double[active.length];
+        int[] gains = new int[active.length];
+        for (int i = 0; i < active.length; i++) {
+            prices[i] = monthlyCostCents(candidates.packages().get(active[i]));
+            gains[i] = classes.weight(uncoveredClasses, offered[active[i]]);
+            points.add(new FrontierPoint(prices[i], gains[i], new int[] {active[i]}));
+        }
+
+        PriorityQueue<Integer> queue = new PriorityQueue<>(Math.max(1, active.length), (a, b) -> {
+            int byRatio = Double.compare(gainPerCent(gains[b], prices[b]), gainPerCent(gains[a], prices[a]));
+            if (byRatio != 0) return byRatio;
+            return gains[a] != gains[b] ? Integer.compare(gains[b], gains[a]) : Integer.compare(a, b);
+        });
+        for (int i = 0; i < active.length; i++) {
+            if (gains[i] > 0) queue.add(i);
+        }
+        int[] chosen = new int[active.length];
+        int chosenCount = 0;
+        double cost = 0.0;
+        int covered = 0;
+        while (!queue.isEmpty() && covered < classes.totalWeight()) {
+            int top = queue.poll();
+            int gain = classes.weight(uncoveredClasses, offered[active[top]]);
+            if (gain != gains[top]) {
+                gains[top] = gain;
+                if (gain > 0) queue.add(top);
+                continue;
+            }
+            chosen[chosenCount++] = active[top];
+            Bits.andNot(uncoveredClasses, offered[active[top]]);
+            cost += prices[top];
+            covered += gain;
+            points.add(new FrontierPoint(cost, covered, Arrays.copyOf(chosen, chosenCount)));
+        }
+
+        points.sort(Comparator.comparingDouble(FrontierPoint::costCents)
+            .thenComparing(Comparator.comparingInt(FrontierPoint::coveredGames).reversed())
+            .thenComparingInt(point -> point.positions().length));
+        List<CoverageFrontier.Point> frontier = new ArrayList<>();
+        int bestCovered = -1;
+        for (FrontierPoint point : points) {
+            if (point.coveredGames() <= bestCovered) continue;
+            bestCovered = point.coveredGames();
+            List<StreamingPackageDTO> pointPackages = new ArrayList<>(candidates.packagesAt(point.positions()));
+            frontier.add(new CoverageFrontier.Point(pointPackages.stream().mapToDouble(pkg -> monthlyCostCents(pkg) / 100).sum(),
+                point.coveredGames(), classes.totalWeight() == 0 ? 0.0 : (double) point.coveredGames() / classes.totalWeight(),
+                pointPackages));
+        }
+        return new CoverageFrontier(dataset.getVersion(), classes.totalWeight(), candidates.packages().size() - active.length, frontier);
+    }
+
+    // Newly covered games per cent, free packages rank above all others
+    private static double gainPerCent(int gain, double priceCents) {
+        return priceCents == 0 ? Double.POSITIVE_INFINITY : gain / priceCents;
+    }
+
+    /**
+     * Candidate point of the frontier.
+     * @param positions Positions of the packages in the request, in the order they were added
+     */
+    private record FrontierPoint(double costCents, int coveredGames, int[] positions) {}
+
+    /** Computes the best combination of a canonical selection on the given dataset, bypassing the cache. Used by PrecomputeJob. */
+    BestCombination computeBestCombination(Dataset dataset, Selection selection, List<StreamingPackageDTO> packages) {
+        return getBestPackageCombinations(dataset, selection, packages, null, SubscriptionOptions.MONTHLY,
+            Collections.singletonList(null))[0];
+    }
+
+    // The combinations of a request for each of the preferences, the EXACT time budget is shared by all of them
+    private BestCombination[] computeBestCombinations(Dataset dataset, CombinationKey key, List<CoveragePreference> preferences) {
+        List<StreamingPackageDTO> packages = packageFilterService.resolvePackages(dataset, key.selection(), key.packageIds());
+        ExactSolve exact = key.strategy() == CombinationStrategy.EXACT ? new ExactSolve(System.nanoTime() + exactTimeBudgetNanos, null) : null;
+        return getBestPackageCombinations(dataset, key.selection(), packages, exact, key.subscriptions(), preferences);
+    }
+
+    /**
+     * Anytime version of the EXACT strategy, used by CombinationJobService. Hands the combination of the greedy
+     * covers to the listener first and every cheaper or better bounded combination after that, all with their
+     * optimality gap, and returns the final one. Stops with the best combination found so far once the time
+     * budget is spent or the calling thread is interrupted. Results are not cached.
+     *
+     * @param preference LIVE or HIGHLIGHTS to only count games offered that way as covered, null for any offer
+     * @param timeBudgetNanos Wall-clock budget of the exact solver
+     * @param listener Called on the calling thread with every intermediate combination
+     */
+    public BestCombination improveBestPackageCombinations(List<String> teams, List<String> tournaments, LocalDate from, LocalDate to,
+                                                          SubscriptionOptions subscriptions, CoveragePreference preference,
+                                                          List<Integer> packageIds,
+                                                          long timeBudgetNanos, Consumer<BestCombination> listener) {
+        Dataset dataset = dataService.getDataset();
+        Selection selection = Selection.of(teams, tournaments, TimeWindow.of(from, to));
+        return getBestPackageCombinations(dataset, selection, packageFilterService.resolvePackages(dataset, selection, packageIdList(packageIds)),
+            new ExactSolve(System.nanoTime() + timeBudgetNanos, listener), subscriptions == null ? SubscriptionOptions.MONTHLY : subscriptions,
+            Collections.singletonList(preference))[0];
+    }
+
+    /**
+     * Computes the combination of a request for each of the preferences. The selected games, the months and the
+     * choice between static and sequential combination depend on the request only; every preference with the
+     * same candidate ranking (all but null, see Candidates.liveBoost) shares the memo of solved covers, and the
+     * EXACT time left is split evenly over the preferences still to solve.
+     */
+    private BestCombination[] getBestPackageCombinations(Dataset dataset, Selection selection, List<StreamingPackageDTO> packages,
+                                                         ExactSolve exact, SubscriptionOptions subscriptions,
+                                                         List<CoveragePreference> preferences) {
+        long[] games = setOfAllGames(dataset, selection.teams(), selection.tournaments(), selection.window());
 
         // First check if any package has 100% coverage
         boolean hasFullCoverage = packages.stream()
         .anyMatch(p -> p.getLiveCoveragePercentage() == 100.0 && p.getHighlightsCoveragePercentage() == 100.0);
 
         // If we have a package with full coverage, always use greedy approach
-        if (hasFullCoverage) {
-            return greedyPackageCombination(teams, tournaments, packages);
-        }
-        
-        Map<String, Set<Game>> gamesByMonth = mapGamesByMonth(setOfAllGames(teams, tournaments));
-        if(gameDensity(gamesByMonth)) 
-        {
-            return sequentialPackageCombination(teams, tournaments, packages);
-        }
-        else return greedyPackageCombination(teams, tournaments, packages);
+        long[][] gamesByMonth = hasFullCoverage ? null : mapGamesByMonth(dataset, games);
+        boolean sequential = gamesByMonth != null && gameDensity(gamesByMonth);
 
+        Map<Boolean, Candidates> candidatesByBoost = new HashMap<>();
+        BestCombination[] combinations = new BestCombination[preferences.size()];
+        for (int i = 0; i < combinations.length; i++) {
+            CoveragePreference preference = preferences.get(i);
+            Candidates candidates = candidatesByBoost.computeIfAbsent(preference == null,
+                liveBoost -> Candidates.of(dataset, packages, liveBoost));
+            ExactSolve share = exact == null ? null : exact.share(combinations.length - i);
+            combinations[i] = sequential
+                ? sequentialPackageCombination(dataset, selection.teams(), selection.tournaments(), games, gamesByMonth, candidates,
+                    preference, share, subscriptions)
+                : greedyPackageCombination(dataset, selection.teams(), selection.tournaments(), games, candidates, preference, share);
+        }
+        return combinations;
     }
 
     /**
@@ -65,96 +369,41 @@ public class PackageCombinationService {
      * @param packages Available streaming packages to choose from
      * @return BestCombination containing selected packages and coverage details
      */
-    @SuppressWarnings("unused")
     public BestCombination greedyPackageCombination(List<String> teams, List<String> tournaments, Collection<StreamingPackageDTO> packages) {
-        Set<Game> games = setOfAllGames(teams, tournaments);
-        Set<Game> uncoveredGames = new HashSet<>(games);
-        Set<StreamingPackageDTO> selectedPackages = new HashSet<>();
-        double currentCoverage = 0.0;
-        double currentPrice = 0.0;
-        
-        while(!uncoveredGames.isEmpty()) {
-            Map<StreamingPackageDTO, Double> packageEfficiencies = new HashMap<>();
-            for (StreamingPackageDTO pkg : packages) {
-                
-                if (!selectedPackages.contains(pkg)) {
-                    double additionalCoverage = calculateAdditionalCoverage(pkg.getStreamingPackageId(), uncoveredGames);
-                    if(additionalCoverage > 0) {
-                        double efficiency = calculateEfficiency(pkg, additionalCoverage);
-                        packageEfficiencies.put(pkg, efficiency);
-                    }
-                }
-            }
-
-            if (packageEfficiencies.isEmpty()) {
-                break;
-            }
-
-            StreamingPackageDTO bestPackage = Collections.max(packageEfficiencies.entrySet(), Map.Entry.comparingByValue()).getKey();
-            selectedPackages.add(bestPackage);
-            currentCoverage += packageEfficiencies.get(bestPackage);
-            currentPrice += bestPackage.getMonthlyPrice();
-
-            for(Game game : new HashSet<>(uncoveredGames)) {
-                for(StreamingOffer offer : dataService.getOffersForGame(game.getId())) {
-                    if(offer.getStreamingPackageId() == bestPackage.getStreamingPackageId()) {
-                        uncoveredGames.remove(game);
-                        break;
-                    }
-                }
-            }
-        }
-        Set<Game> coveredGames = new HashSet<>(games);
-        coveredGames.removeAll(uncoveredGames);
-        Map<String, Set<Game>> coveredGamesOverall = new HashMap<>(); 
-        Map<String, Set<Game>> uncoveredGamesOverall = new HashMap<>();
-
-        for(String team : teams) {
-            coveredGamesOverall.put(team, new HashSet<>());
-            uncoveredGamesOverall.put(team, new HashSet<>());
-        }
+        Dataset dataset = dataService.getDataset();
+        return greedyPackageCombination(dataset, teams, tournaments, setOfAllGames(dataset, teams, tournaments, TimeWindow.ALL),
+            Candidates.of(dataset, packages, true), null, null);
+    }
 
-        for(String tournament : tournaments) {
-            coveredGamesOverall.put(tournament, new HashSet<>());
-            uncoveredGamesOverall.put(tournament, new HashSet<>());
-        }
+    private BestCombination greedyPackageCombination(Dataset dataset, List<String> teams, List<String> tournaments, long[] games,
+                                                     Candidates candidates, CoveragePreference preference, ExactSolve exact) {
+        GameClasses classes = GameClasses.of(dataset, games, preference);
+        long[][] offered = candidates.offered(dataset, classes, candidates.all());
+        int[] active = undominated(classes, offered, candidates, candidates.all());
+        return solveCovers(List.of(new CoverProblem(classes, offered, active, 1)), candidates, exact, false,
+            covers -> staticCombination(dataset, teams, tournaments, games, candidates, preference, active, covers[0]));
+    }
 
-        for(Game game : coveredGames) {
-            for(String team : teams) {
-                if(dataService.getGamesByTeam(team).contains(game)) {
-                    coveredGamesOverall.get(team).add(game);
-                }
-            }
-            for(String tournament : tournaments)
-            {
-                if(dataService.getGamesByTournament(tournament).contains(game))
-                {
-                    coveredGamesOverall.get(tournament).add(game);
-                }
-            }
-        }
+    private BestCombination staticCombination(Dataset dataset, List<String> teams, List<String> tournaments, long[] games,
+                                              Candidates candidates, CoveragePreference preference, int[] active, MonthCover cover) {
+        Set<StreamingPackageDTO> selectedPackages = cover.packages();
+        double currentPrice = 0.0;
 
-        for(Game game : uncoveredGames) {
-            for(String team : teams)
-            {
-                if(dataService.getGamesByTeam(team).contains(game))
-                {
-                    uncoveredGamesOverall.get(team).add(game);
-                }
-            }
-            for(String tournament : tournaments) {
-                if(dataService.getGamesByTournament(tournament).contains(game))
-                {
-                    uncoveredGamesOverall.get(tournament).add(game);
-                }
-            }
+        long[] coveredGames = Bits.create(dataset.getGameCount());
+        for (int position : cover.positions()) {
+            currentPrice += monthlyCostCents(candidates.packages().get(position)) / 100;
+            Bits.orAnd(coveredGames, games, dataset.getOfferedGames(preference, candidates.packageIndices()[position]));
         }
+        long[] uncoveredGames = games.clone();
+        Bits.andNot(uncoveredGames, coveredGames);
 
-        double coveragePercentage = (double) coveredGames.size() / games.size();
+        int gameCount = Bits.cardinality(games);
+        double coveragePercentage = gameCount == 0 ? 0.0 : (double) Bits.cardinality(coveredGames) / gameCount;
 
-        return new BestCombination(currentPrice, selectedPackages, coveredGamesOverall, uncoveredGamesOverall, coveragePercentage);
-    
-        
+        BestCombination combination = new BestCombination(currentPrice, selectedPackages,
+            gamesByEntity(dataset, teams, tournaments, coveredGames), gamesByEntity(dataset, teams, tournaments, uncoveredGames), coveragePercentage);
+        combination.setPrunedPackages(candidates.packages().size() - active.length);
+        return combination;
     }
 
 
@@ -168,227 +417,631 @@ public class PackageCombinationService {
      * @return BestCombination containing selected packages and coverage details
      */
     public BestCombination sequentialPackageCombination(List<String> teams, List<String> tournaments, Collection<StreamingPackageDTO> packages) {
-        Set<Game> games = setOfAllGames(teams, tournaments);
-        Map<String, Set<Game>> gamesByMonth = mapGamesByMonth(games);
+        Dataset dataset = dataService.getDataset();
+        long[] games = setOfAllGames(dataset, teams, tournaments, TimeWindow.ALL);
+        return sequentialPackageCombination(dataset, teams, tournaments, games, mapGamesByMonth(dataset, games),
+            Candidates.of(dataset, packages, true), null, null, SubscriptionOptions.MONTHLY);
+    }
+
+    /**
+     * Packages dominated over all games are left out of every month, each month then prunes the remaining ones
+     * over its own games. Months with the same number of games per coverage class (equal GameClasses) share one
+     * cover problem, and problems already solved for the candidates (Candidates.solved) are not set up again.
+     * Unless the subscription options are MONTHLY, the monthly covers are then handed to SubscriptionPlanner
+     * and the periods become the planned subscriptions.
+     */
+    private BestCombination sequentialPackageCombination(Dataset dataset, List<String> teams, List<String> tournaments, long[] games,
+                                                         long[][] gamesByMonth, Candidates candidates, CoveragePreference preference,
+                                                         ExactSolve exact, SubscriptionOptions subscriptions) {
+        GameClasses allClasses = GameClasses.of(dataset, games, preference);
+        int[] active = undominated(allClasses, candidates.offered(dataset, allClasses, candidates.all()), candidates, candidates.all());
+
+        // Months with equal GameClasses share one cover problem, numbered in order of their first month
+        Map<GameClasses, Integer> problemIndices = new HashMap<>();
+        List<GameClasses> distinctClasses = new ArrayList<>();
+        int[] problemOfMonth = new int[gamesByMonth.length];
+        for (int month = 0; month < gamesByMonth.length; month++) {
+            problemOfMonth[month] = gamesByMonth[month] == null ? -1
+                : problemIndices.computeIfAbsent(GameClasses.of(dataset, gamesByMonth[month], preference), classes -> {
+                    distinctClasses.add(classes);
+                    return distinctClasses.size() - 1;
+                });
+        }
+        int[] monthCounts = new int[distinctClasses.size()];
+        for (int problem : problemOfMonth) {
+            if (problem >= 0) monthCounts[problem]++;
+        }
+        List<CoverProblem> problems = new ArrayList<>();
+        for (int i = 0; i < distinctClasses.size(); i++) {
+            GameClasses classes = distinctClasses.get(i);
+            if (candidates.solved().containsKey(classes)) {
+                problems.add(new CoverProblem(classes, null, null, monthCounts[i]));
+                continue;
+            }
+            long[][] offered = candidates.offered(dataset, classes, active);
+            problems.add(new CoverProblem(classes, offered, undominated(classes, offered, candidates, active), monthCounts[i]));
+        }
+        return solveCovers(problems, candidates, exact, !subscriptions.isMonthly(), covers -> sequentialCombination(dataset, teams, tournaments, games, gamesByMonth,
+            candidates, preference, active, subscriptions, problemOfMonth, covers));
+    }
+
+    private BestCombination sequentialCombination(Dataset dataset, List<String> teams, List<String> tournaments, long[] games,
+                                                  long[][] gamesByMonth, Candidates candidates, CoveragePreference preference, int[] active,
+                                                  SubscriptionOptions subscriptions, int[] problemOfMonth, MonthCover[] covers) {
+        long[][] neededMonths = subscriptions.isMonthly() ? null : new long[candidates.packages().size()][];
         List<PackagePeriod> packagePeriods = new ArrayList<>();
         double totalCost = 0.0;
 
-        Set<Game> allCoveredGames = new HashSet<>();
-        Set<Game> allUncoveredGames = new HashSet<>(games);
+        long[] allCoveredGames = Bits.create(dataset.getGameCount());
 
-        List<String> months = new ArrayList<>(gamesByMonth.keySet());
-        Collections.sort(months, (a, b) -> {
-            // Split "MM-YYYY" format
-            String[] partsA = a.split("-");
-            String[] partsB = b.split("-");
-            
-            // Compare years first
-            int yearCompare = partsA[1].compareTo(partsB[1]);
-            if (yearCompare != 0) {
-                return yearCompare;
+        // Months are indexed in chronological order, so no sorting is needed
+        for(int month = 0; month < gamesByMonth.length; month++) {
+            long[] gamesInMonth = gamesByMonth[month];
+            if (gamesInMonth == null) {
+                continue;
             }
-            
-            // If years are equal, compare months
-            return partsA[0].compareTo(partsB[0]);
-        });
-        
-        for(String monthYear : months) {
-            Set<Game> gamesInMonth = gamesByMonth.get(monthYear);
-            Set<StreamingPackageDTO> bestPackages = findBestPackagesForMonth(gamesInMonth, packages);
+            String monthYear = Dataset.formatMonth(dataset.getFirstMonth() + month);
+            MonthCover cover = covers[problemOfMonth[month]];
+            Set<StreamingPackageDTO> bestPackages = cover.packages();
 
             double monthCost = bestPackages.stream()
-            .mapToDouble(StreamingPackageDTO::getMonthlyPrice)
+            .mapToDouble(pkg -> monthlyCostCents(pkg) / 100)
             .sum();
             
             totalCost += monthCost;
     
             packagePeriods.add(new PackagePeriod(monthYear, monthYear, bestPackages, monthCost));
 
-            for(Game game : gamesInMonth)
-            {
-                for(StreamingPackageDTO pkg : bestPackages)
-                {
-                    for(StreamingOffer offer : dataService.getOffersForGame(game.getId()))
-                    {
-                        if(offer.getStreamingPackageId() == pkg.getStreamingPackageId())
-                        {
-                            allCoveredGames.add(game);
-                            allUncoveredGames.remove(game);
-                            break;
-                        }
-                    }
+            for (int position : cover.positions()) {
+                Bits.orAnd(allCoveredGames, gamesInMonth, dataset.getOfferedGames(preference, candidates.packageIndices()[position]));
+                if (neededMonths != null) {
+                    if (neededMonths[position] == null) neededMonths[position] = Bits.create(gamesByMonth.length);
+                    Bits.set(neededMonths[position], month);
                 }
             }
         }
 
-        Map<String, Set<Game>> coveredGamesOverall = new HashMap<>();
-        Map<String, Set<Game>> uncoveredGamesOverall = new HashMap<>();
+        if (neededMonths != null) {
+            packagePeriods = planSubscriptions(dataset, candidates.packages(), neededMonths, gamesByMonth.length, subscriptions);
+            totalCost = packagePeriods.stream().mapToDouble(PackagePeriod::getPeriodCost).sum();
+        }
 
-        for(String team : teams)
-        {
-            coveredGamesOverall.put(team, new HashSet<>());
-            uncoveredGamesOverall.put(team, new HashSet<>());
+        long[] allUncoveredGames = games.clone();
+        Bits.andNot(allUncoveredGames, allCoveredGames);
+
+        int gameCount = Bits.cardinality(games);
+        double coveragePercentage = gameCount == 0 ? 0.0 : (double) Bits.cardinality(allCoveredGames) / gameCount;
+        BestCombination combination = new BestCombination(totalCost, packagePeriods,
+            gamesByEntity(dataset, teams, tournaments, allCoveredGames), gamesByEntity(dataset, teams, tournaments, allUncoveredGames), coveragePercentage);
+        combination.setPrunedPackages(candidates.packages().size() - active.length);
+        return combination;
+    }
+
+    /**
+     * Turns the packages needed per month into subscriptions. Subscriptions with the same months and billing
+     * share a period; a period's cost is the price of its subscriptions over all their months.
+     * Yearly-only packages (see monthlyCostCents) are planned as not bookable monthly, so they are always billed yearly.
+     */
+    private List<PackagePeriod> planSubscriptions(Dataset dataset, List<StreamingPackageDTO> candidates, long[][] neededMonths,
+                                                  int monthCount, SubscriptionOptions subscriptions) {
+        double[] monthlyCents = new double[candidates.size()];
+        double[] yearlyCents = new double[candidates.size()];
+        for (int i = 0; i < candidates.size(); i++) {
+            StreamingPackageDTO pkg = candidates.get(i);
+            yearlyCents[i] = pkg.getYearlyPriceCents();
+            monthlyCents[i] = isYearlyOnly(pkg) ? Double.POSITIVE_INFINITY : pkg.getMonthlyPriceCents();
+        }
+        List<PackagePeriod> periods = new ArrayList<>();
+        SubscriptionPlanner.Subscription previous = null;
+        for (SubscriptionPlanner.Subscription subscription : SubscriptionPlanner.plan(neededMonths, monthCount, monthlyCents, yearlyCents,
+                subscriptions.allowYearly(), subscriptions.switchingCostCents())) {
+            PackagePeriod period;
+            if (previous != null && previous.firstMonth() == subscription.firstMonth() && previous.lastMonth() == subscription.lastMonth()
+                    && previous.yearly() == subscription.yearly()) {
+                period = periods.get(periods.size() - 1);
+            } else {
+                period = new PackagePeriod(Dataset.formatMonth(dataset.getFirstMonth() + subscription.firstMonth()),
+                    Dataset.formatMonth(dataset.getFirstMonth() + subscription.lastMonth()), new LinkedHashSet<>(), 0.0,
+                    subscription.yearly() ? Billing.YEARLY : Billing.MONTHLY);
+                periods.add(period);
+            }
+            period.getPackages().add(candidates.get(subscription.position()));
+            period.setPeriodCost(period.getPeriodCost() + subscription.costCents() / 100);
+            previous = subscription;
         }
+        return periods;
+    }
+
+    /**
+     * Greedy selection used for a whole selection as well as for a single month: repeatedly picks the package
+     * with the best efficiency on the still uncovered games until no package adds coverage.
+     * Ties go to the package that comes first in the given collection.
+     *
+     * @param gamesInMonth Bitset over game indices of the games to cover, of the currently published dataset
+     * @param packages Available streaming packages to choose from
+     * @return The selected packages in selection order
+     */
+    public Set<StreamingPackageDTO> findBestPackagesForMonth(long[] gamesInMonth, Collection<StreamingPackageDTO> packages) {
+        Dataset dataset = dataService.getDataset();
+        Candidates candidates = Candidates.of(dataset, packages, true);
+        GameClasses classes = GameClasses.of(dataset, gamesInMonth, null);
+        long[][] offered = candidates.offered(dataset, classes, candidates.all());
+        int[] active = undominated(classes, offered, candidates, candidates.all());
+        return candidates.packagesAt(findBestPackagesForMonth(classes, offered, candidates, active));
+    }
 
-        for(String tournament : tournaments)
-        {
-            coveredGamesOverall.put(tournament, new HashSet<>());
-            uncoveredGamesOverall.put(tournament, new HashSet<>());
+    /**
+     * Lazy (CELF) implementation of the greedy selection. Within a round every efficiency is the package's gain
+     * (newly covered games) scaled by the same uncovered count, so packages can be ranked by their unscaled
+     * score calculateEfficiency(pkg, gain). Gains only shrink as games get covered, so a score computed in an
+     * earlier round is an upper bound of the current one. The queue holds the packages by that bound and only the
+     * top is re-evaluated until it is current. All packages whose bound could still tie with it are then
+     * re-evaluated too and compared with the original efficiency in collection order, which keeps the selection
+     * identical to scanning every package in every round.
+     *
+     * Gains are counted over the coverage classes of the games, each weighted by its number of games, which gives
+     * the same numbers as counting the games.
+     *
+     * @param offered Per position: the classes among the games the package offers, see Candidates.offered
+     * @param active Ascending positions of the packages to choose from
+     * @return Positions of the selected packages in selection order
+     */
+    private int[] findBestPackagesForMonth(GameClasses classes, long[][] offered, Candidates selection, int[] active) {
+        List<StreamingPackageDTO> candidates = new ArrayList<>(active.length);
+        long[][] columns = new long[active.length][];
+        for (int i = 0; i < active.length; i++) {
+            candidates.add(selection.packages().get(active[i]));
+            columns[i] = offered[active[i]];
         }
 
-        for(Game game : allCoveredGames)
-        {
-            for(String team : teams)
-            {
-                if(dataService.getGamesByTeam(team).contains(game))
-                {
-                    coveredGamesOverall.get(team).add(game);
-                }
+        long[] uncoveredClasses = classes.all();
+        int uncoveredCount = classes.totalWeight();
+        int[] selectedPositions = new int[candidates.size()];
+        int selectedCount = 0;
+        if (uncoveredCount == 0) {
+            return new int[0];
+        }
+
+        // The first round evaluates every package, split over the pool for large catalogs
+        int[] gains = new int[candidates.size()];
+        List<int[]> rangeGains = parallelEvaluation.mapChunks(candidates.size(), (from, to) -> {
+            int[] range = new int[to - from];
+            for (int i = from; i < to; i++) {
+                range[i - from] = classes.weight(uncoveredClasses, columns[i]);
             }
-            for(String tournament : tournaments)
-            {
-                if(dataService.getGamesByTournament(tournament).contains(game))
-                {
-                    coveredGamesOverall.get(tournament).add(game);
-                }
+            return range;
+        });
+        int offset = 0;
+        for (int[] range : rangeGains) {
+            System.arraycopy(range, 0, gains, offset, range.length);
+            offset += range.length;
+        }
+
+        double[] scores = new double[candidates.size()];
+        int[] evaluatedRound = new int[candidates.size()];
+        PriorityQueue<Integer> queue = new PriorityQueue<>(Math.max(1, candidates.size()),
+            (a, b) -> scores[a] != scores[b] ? Double.compare(scores[b], scores[a]) : Integer.compare(a, b));
+        for (int i = 0; i < candidates.size(); i++) {
+            if (gains[i] > 0) {
+                scores[i] = calculateEfficiency(candidates.get(i), gains[i], selection.liveBoost());
+                evaluatedRound[i] = 1;
+                queue.add(i);
             }
         }
 
-        for(Game game : allUncoveredGames)
-        {
-            for(String team : teams)
-            {
-                if(dataService.getGamesByTeam(team).contains(game))
-                {
-                    uncoveredGamesOverall.get(team).add(game);
+        for (int round = 1; uncoveredCount > 0 && !queue.isEmpty(); round++) {
+            // Refresh the top until its score is current, packages without gain never return
+            while (!queue.isEmpty() && evaluatedRound[queue.peek()] != round) {
+                int top = queue.poll();
+                if (evaluate(classes, candidates, selection.liveBoost(), columns, uncoveredClasses, top, gains, scores)) {
+                    evaluatedRound[top] = round;
+                    queue.add(top);
                 }
             }
-            for(String tournament : tournaments)
-            {
-                if(dataService.getGamesByTournament(tournament).contains(game))
-                {
-                    uncoveredGamesOverall.get(tournament).add(game);
+            if (queue.isEmpty()) {
+                break;
+            }
+
+            // Scores within rounding distance of the top could still win on the original efficiency or on position.
+            // At a score of 0 every package with a gain ties, so the first one in collection order wins.
+            double threshold = scores[queue.peek()] * (1 - 1e-9);
+            List<Integer> contenders = new ArrayList<>();
+            while (!queue.isEmpty() && scores[queue.peek()] >= threshold && (threshold > 0 || contenders.isEmpty())) {
+                int position = queue.poll();
+                if (evaluatedRound[position] == round
+                        || evaluate(classes, candidates, selection.liveBoost(), columns, uncoveredClasses, position, gains, scores)) {
+                    evaluatedRound[position] = round;
+                    contenders.add(position);
                 }
             }
+            contenders.sort(null);
+
+            int bestPackage = -1;
+            double bestEfficiency = 0.0;
+            for (int position : contenders) {
+                double efficiency = calculateEfficiency(candidates.get(position), (double) gains[position] / uncoveredCount,
+                    selection.liveBoost());
+                if (bestPackage < 0 || efficiency > bestEfficiency) {
+                    bestPackage = position;
+                    bestEfficiency = efficiency;
+                }
+            }
+            for (int position : contenders) {
+                if (position != bestPackage) queue.add(position);
+            }
+
+            selectedPositions[selectedCount++] = active[bestPackage];
+            Bits.andNot(uncoveredClasses, columns[bestPackage]);
+            uncoveredCount -= gains[bestPackage];
         }
+        return Arrays.copyOf(selectedPositions, selectedCount);
+    }
 
-        double coveragePercentage = (double) allCoveredGames.size() / games.size();
-        return new BestCombination(totalCost, packagePeriods, coveredGamesOverall, uncoveredGamesOverall, coveragePercentage);
-        
+    /**
+     * Recomputes the gain and score of the package at a position on the current uncovered classes.
+     * @return Whether the package still adds coverage
+     */
+    private boolean evaluate(GameClasses classes, List<StreamingPackageDTO> candidates, boolean liveBoost, long[][] columns,
+                             long[] uncoveredClasses, int position, int[] gains, double[] scores) {
+        gains[position] = classes.weight(uncoveredClasses, columns[position]);
+        scores[position] = calculateEfficiency(candidates.get(position), gains[position], liveBoost);
+        return gains[position] > 0;
     }
 
-    // Helper method to find best packages for a given month, based on the same greedy algorithm as above.
+    /**
+     * Covers the games of every problem with the greedy selection and, for the EXACT strategy, replaces the covers
+     * one problem after the other by the cheapest cover ExactCoverSolver finds before the request's deadline, then
+     * assembles the combination from the covers. Both cover every game any of the packages offers; the exact
+     * solver covers the coverage classes, which covers exactly the same games.
+     *
+     * An EXACT combination reports the relative gap between its cost and the sum of the proven lower bounds of its
+     * covers, each counted once per month it is used for. With a listener (ExactSolve.listener) the combination is
+     * also assembled from the greedy covers and after every cheaper cover a solver finds; covers not solved yet
+     * add nothing to the lower bound. A subscription plan reports no gap (null): its cost is not the cost of the
+     * monthly covers, which is all the lower bounds bound.
+     *
+     * Covers are memoized per GameClasses in Candidates.solved: a problem solved before for the same candidates,
+     * e.g. for another coverage preference, takes that cover (and lower bound) instead of being solved again.
+     *
+     * @param exact Deadline and listener of an EXACT request, null for the greedy strategy
+     * @param planned Whether assemble plans subscriptions (SubscriptionPlanner) instead of paying every cover monthly
+     * @param assemble Builds the combination from the covers, indexed like problems
+     */
+    private BestCombination solveCovers(List<CoverProblem> problems, Candidates candidates, ExactSolve exact, boolean planned,
+                                        Function<MonthCover[], BestCombination> assemble) {
+        MonthCover[] covers = new MonthCover[problems.size()];
+        double[] lowerBounds = new double[covers.length];
+        boolean[] memoized = new boolean[covers.length];
+        for (int i = 0; i < covers.length; i++) {
+            CoverProblem problem = problems.get(i);
+            SolvedCover solved = candidates.solved().get(problem.classes());
+            if (solved != null) {
+                covers[i] = solved.cover();
+                lowerBounds[i] = solved.lowerBound();
+                memoized[i] = true;
+                continue;
+            }
+            int[] greedy = findBestPackagesForMonth(problem.classes(), problem.offered(), candidates, problem.active());
+            covers[i] = new MonthCover(candidates.packagesAt(greedy), greedy);
+            if (exact == null) candidates.solved().put(problem.classes(), new SolvedCover(covers[i], 0.0));
+        }
+        if (exact == null) {
+            return assemble.apply(covers);
+        }
+        if (exact.listener() != null) {
+            exact.listener().accept(withGap(assemble.apply(covers), planned, problems, candidates, covers, lowerBounds));
+        }
+        for (int i = 0; i < covers.length; i++) {
+            if (memoized[i]) continue;
+            int index = i;
+            CoverProblem problem = problems.get(i);
+            Consumer<ExactCoverSolver.Solution> improved = exact.listener() == null ? null : solution -> {
+                covers[index] = exactCover(problem, candidates, solution);
+                lowerBounds[index] = solution.lowerBound();
+                exact.listener().accept(withGap(assemble.apply(covers), planned, problems, candidates, covers, lowerBounds));
+            };
+            ExactCoverSolver.Solution solution = solveExactly(problem, candidates, covers[i].positions(), exact.deadline(), improved);
+            covers[i] = exactCover(problem, candidates, solution);
+            lowerBounds[i] = solution.lowerBound();
+            candidates.solved().put(problem.classes(), new SolvedCover(covers[i], lowerBounds[i]));
+        }
+        return withGap(assemble.apply(covers), planned, problems, candidates, covers, lowerBounds);
+    }
 
-    public Set<StreamingPackageDTO> findBestPackagesForMonth(Set<Game> gamesInMonth, Collection<StreamingPackageDTO> packages) {
-        Set<Game> uncoveredGames = new HashSet<>(gamesInMonth);
-        Set<StreamingPackageDTO> selectedPackages = new HashSet<>();
-        
-        while(!uncoveredGames.isEmpty()) {
-            Map<StreamingPackageDTO, Double> packageEfficiencies = new HashMap<>();
-            for (StreamingPackageDTO pkg : packages) {
-                
-                if (!selectedPackages.contains(pkg)) {
-                    double additionalCoverage = calculateAdditionalCoverage(pkg.getStreamingPackageId(), uncoveredGames);
-                    if(additionalCoverage > 0) 
-                    {
-                        double efficiency = calculateEfficiency(pkg, additionalCoverage);
-                        packageEfficiencies.put(pkg, efficiency);
-                    }
-                }
+    /**
+     * Runs ExactCoverSolver on a cover problem, starting from the given cover, with the packages' monthlyCostCents
+     * as costs. The solver works on columns, which are the positions within problem.active.
+     */
+    private ExactCoverSolver.Solution solveExactly(CoverProblem problem, Candidates candidates, int[] initialPositions, long deadline,
+                                                   Consumer<ExactCoverSolver.Solution> improved) {
+        int[] active = problem.active();
+        double[] costs = new double[active.length];
+        long[][] columns = new long[active.length][];
+        for (int i = 0; i < active.length; i++) {
+            costs[i] = monthlyCostCents(candidates.packages().get(active[i]));
+            columns[i] = problem.offered()[active[i]];
+        }
+        int[] initial = new int[initialPositions.length];
+        for (int i = 0; i < initialPositions.length; i++) {
+            initial[i] = Arrays.binarySearch(active, initialPositions[i]);
+        }
+        Arrays.sort(initial);
+        return ExactCoverSolver.solve(costs, columns, problem.classes().all(), initial, deadline, improved);
+    }
+
+    // The packages of a solver solution, in request order
+    private MonthCover exactCover(CoverProblem problem, Candidates candidates, ExactCoverSolver.Solution solution) {
+        int[] positions = new int[solution.columns().length];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = problem.active()[solution.columns()[i]];
+        }
+        return new MonthCover(candidates.packagesAt(positions), positions);
+    }
+
+    // Sets the relative gap between the cost of the covers and the sum of their lower bounds, both per month,
+    // or no gap for a subscription plan, whose cost they do not bound
+    private BestCombination withGap(BestCombination combination, boolean planned, List<CoverProblem> problems, Candidates candidates,
+                                    MonthCover[] covers, double[] lowerBounds) {
+        if (planned) {
+            combination.setOptimalityGap(null);
+            return combination;
+        }
+        double cost = 0.0;
+        double lowerBound = 0.0;
+        for (int i = 0; i < covers.length; i++) {
+            for (int position : covers[i].positions()) {
+                cost += problems.get(i).months() * monthlyCostCents(candidates.packages().get(position));
             }
+            lowerBound += problems.get(i).months() * lowerBounds[i];
+        }
+        combination.setOptimalityGap(cost == 0 ? 0.0 : (cost - lowerBound) / cost);
+        return combination;
+    }
 
-            if (packageEfficiencies.isEmpty()) {
-                break;
+    /**
+     * Dominance pruning: leaves out every package that another package of the request makes redundant on the given
+     * games. Package b dominates package a if b offers every game a offers among them, costs at most as much
+     * (monthlyCostCents, so a yearly-only package is not taken for free) and
+     * scores at least the same efficiency per game, and either scores a higher efficiency or comes first in the
+     * request. The greedy selection then never picks a (b always ranks at least as high and wins ties), and
+     * replacing a by b in any cover keeps it a cover at no higher cost, so neither solver loses anything.
+     * Packages that offer none of the games are left out as well. Dominance is transitive, so every left out
+     * package is dominated by one that is kept. Packages are compared on the coverage classes they offer.
+     *
+     * @param offered Per position: the classes among the games the package offers, see Candidates.offered
+     * @param active Ascending positions of the packages to consider
+     * @return Ascending positions of the packages that are not dominated
+     */
+    private int[] undominated(GameClasses classes, long[][] offered, Candidates candidates, int[] active) {
+        int[] classCounts = new int[active.length];
+        double[] prices = new double[active.length];
+        double[] efficiencies = new double[active.length];
+        for (int i = 0; i < active.length; i++) {
+            StreamingPackageDTO pkg = candidates.packages().get(active[i]);
+            classCounts[i] = Bits.cardinality(offered[active[i]]);
+            prices[i] = monthlyCostCents(pkg);
+            efficiencies[i] = calculateEfficiency(pkg, 1.0, candidates.liveBoost());
+        }
+
+        // A dominating package offers at least as many classes, so each package only checks a prefix of the
+        // packages ordered by descending class count ((count, position) packed into longs)
+        long[] byClassCount = new long[active.length];
+        for (int i = 0; i < active.length; i++) byClassCount[i] = (long) -classCounts[i] << 32 | i;
+        Arrays.sort(byClassCount);
+
+        boolean[] dominated = new boolean[active.length];
+        for (int a = 0; a < active.length; a++) {
+            dominated[a] = classCounts[a] == 0;
+            for (int k = 0; k < active.length && !dominated[a]; k++) {
+                int b = (int) byClassCount[k];
+                if (classCounts[b] < classCounts[a]) break;
+                dominated[a] = b != a && prices[b] <= prices[a]
+                    && efficiencies[b] >= efficiencies[a] && (efficiencies[b] > efficiencies[a] || b < a)
+                    && Bits.isSubset(offered[active[a]], offered[active[b]]);
             }
+        }
+        int[] kept = new int[active.length];
+        int keptCount = 0;
+        for (int i = 0; i < active.length; i++) {
+            if (!dominated[i]) kept[keptCount++] = active[i];
+        }
+        return Arrays.copyOf(kept, keptCount);
+    }
 
-            StreamingPackageDTO bestPackage = Collections.max(packageEfficiencies.entrySet(), Map.Entry.comparingByValue()).getKey();
-            selectedPackages.add(bestPackage);
-
-            for(Game game : new HashSet<>(uncoveredGames))
-            {
-                for(StreamingOffer offer : dataService.getOffersForGame(game.getId()))
-                {
-                    if(offer.getStreamingPackageId() == bestPackage.getStreamingPackageId())
-                    {
-                        uncoveredGames.remove(game);
-                        break;
-                    }
-                }
+    /**
+     * Packages of a request with their dataset package indices, -1 for packages the dataset does not know.
+     * Resolved once per request and shared by all covers computed for it.
+     *
+     * Covers only depend on the GameClasses of their games (the pruning of a month equals the pruning over all
+     * candidates, see undominated) and on how packages are ranked, so the covers solved for one coverage
+     * preference are memoized in solved and reused for another one with the same ranking.
+     * @param liveBoost Whether packages with live coverage rank higher, see calculateEfficiency
+     * @param solved Covers solved for these candidates, by the games they cover
+     */
+    private record Candidates(List<StreamingPackageDTO> packages, int[] packageIndices, boolean liveBoost,
+                              Map<GameClasses, SolvedCover> solved) {
+        static Candidates of(Dataset dataset, Collection<StreamingPackageDTO> packages, boolean liveBoost) {
+            List<StreamingPackageDTO> candidates = new ArrayList<>(packages);
+            int[] packageIndices = new int[candidates.size()];
+            for (int i = 0; i < candidates.size(); i++) {
+                packageIndices[i] = dataset.getPackageIndex(candidates.get(i).getStreamingPackageId());
+            }
+            return new Candidates(candidates, packageIndices, liveBoost, new HashMap<>());
+        }
+
+        int[] all() {
+            int[] positions = new int[packages.size()];
+            for (int i = 0; i < positions.length; i++) positions[i] = i;
+            return positions;
+        }
+
+        /** @return Per position: the classes among the games the package offers (GameClasses.offeredBy), null for positions not asked for */
+        long[][] offered(Dataset dataset, GameClasses classes, int[] positions) {
+            long[][] offered = new long[packages.size()][];
+            for (int position : positions) {
+                offered[position] = classes.offeredBy(dataset, packageIndices[position]);
+            }
+            return offered;
+        }
+
+        Set<StreamingPackageDTO> packagesAt(int[] positions) {
+            Set<StreamingPackageDTO> result = new LinkedHashSet<>();
+            for (int position : positions) {
+                result.add(packages.get(position));
             }
+            return result;
+        }
+    }
+
+    /**
+     * Games of a combination that are covered by the same packages: all games of a static combination, or the
+     * games of the months with equal GameClasses of a sequential one.
+     * @param offered Per position: the classes among the games the package offers, see Candidates.offered
+     * @param active Ascending positions of the packages to choose from
+     * @param months Number of months the cover is paid for, 1 for a static combination
+     */
+    private record CoverProblem(GameClasses classes, long[][] offered, int[] active, int months) {}
+
+    /**
+     * A cover memoized in Candidates.solved.
+     * @param lowerBound Proven lower bound of an exact cover in cents, 0 for a greedy one
+     */
+    private record SolvedCover(MonthCover cover, double lowerBound) {}
+
+    /**
+     * Packages covering a set of games.
+     * @param positions Positions of the packages in the request, in selection order for a greedy cover and in request order for an exact one
+     */
+    private record MonthCover(Set<StreamingPackageDTO> packages, int[] positions) {}
+
+    /**
+     * Deadline of an EXACT request.
+     * @param listener Receives the intermediate combinations of an anytime request, null otherwise
+     */
+    private record ExactSolve(long deadline, Consumer<BestCombination> listener) {
+        // Same request with an even share of the time left, for the first of the given number of solves
+        ExactSolve share(int solves) {
+            long now = System.nanoTime();
+            return new ExactSolve(now + (deadline - now) / solves, listener);
         }
-        return selectedPackages;
-   
     }
 
     // Helper Methods
 
-    private Set<Game> setOfAllGames(List<String> teams, List<String> tournaments) {
-        Set<Game> games = new HashSet<>();
+    // Cache key of getBestPackageCombinations, package ids keep their request order
+    private record CombinationKey(Selection selection, List<Integer> packageIds, CombinationStrategy strategy,
+                                  SubscriptionOptions subscriptions, CoveragePreference preference) {}
+
+    // Cache key of getCoverageFrontier
+    private record FrontierKey(Selection selection, List<Integer> packageIds, CoveragePreference preference) {}
+
+    // Approximate retained size of a result: materialized games dominate, packages are shared with the request
+    private static long estimateBytes(BestCombination combination) {
+        long bytes = 256;
+        for (List<Game> games : combination.getCoveredGames().values()) bytes += 64 + 128L * games.size();
+        for (List<Game> games : combination.getUncoveredGames().values()) bytes += 64 + 128L * games.size();
+        for (PackagePeriod period : combination.getPackages()) bytes += 96 + 16L * period.getPackages().size();
+        return bytes;
+    }
+
+    private static long estimateBytes(CoverageFrontier frontier) {
+        long bytes = 128;
+        for (CoverageFrontier.Point point : frontier.points()) bytes += 64 + 16L * point.packages().size();
+        return bytes;
+    }
+
+    // Games of the selected teams and tournaments within the window, a window is located in the start time index
+    private long[] setOfAllGames(Dataset dataset, List<String> teams, List<String> tournaments, TimeWindow window) {
+        long[] games = Bits.create(dataset.getGameCount());
         for (String team : teams) {
-            games.addAll(dataService.getGamesByTeam(team));
+            for (int game : dataset.getGamesByTeam(team, window)) {
+                Bits.set(games, game);
+            }
         }
         for (String tournament : tournaments) {
-            games.addAll(dataService.getGamesByTournament(tournament));
+            for (int game : dataset.getGamesByTournament(tournament, window)) {
+                Bits.set(games, game);
+            }
         }
         return games;
     }
 
-    private Map<String, Set<Game>> mapGamesByMonth(Set<Game> games) {
-        Map<String, Set<Game>> gamesByMonth = new HashMap<>();
-        for (Game game : games) {
-            String monthKey = dataService.getGameMonth(game.getId()) + "-" + dataService.getGameYear(game.getId());
-            gamesByMonth.computeIfAbsent(monthKey, k -> new HashSet<>()).add(game);
+    /**
+     * Splits the selected games by start month using the dataset's month index.
+     *
+     * @return Per month since dataset.getFirstMonth(): bitset of the selected games in that month, null if there are none
+     */
+    long[][] mapGamesByMonth(Dataset dataset, long[] games) {
+        long[][] gamesByMonth = new long[dataset.getMonthCount()][];
+        for (int month = 0; month < gamesByMonth.length; month++) {
+            long[] monthGames = dataset.getGamesInMonth(dataset.getFirstMonth() + month);
+            if (Bits.andCardinality(games, monthGames) > 0) {
+                gamesByMonth[month] = games.clone();
+                Bits.and(gamesByMonth[month], monthGames);
+            }
         }
         return gamesByMonth;
     }
 
     /**
-     * Calculates how many additional games would be covered by adding a specific package.
+     * Builds the per team/tournament game breakdown of a result, walking each entity's sorted game index.
      *
-     * @param selectedPackageId ID of the package to evaluate
-     * @param uncoveredGames Set of currently uncovered games
-     * @return Percentage of uncovered games that would be covered by this package
+     * @param dataset Dataset the game indices refer to
+     * @param teams Selected teams
+     * @param tournaments Selected tournaments
+     * @param games Bitset of the games to include (e.g. all covered games)
+     * @return Map from team or tournament name to its games contained in the bitset
      */
+    private Map<String, List<Game>> gamesByEntity(Dataset dataset, List<String> teams, List<String> tournaments, long[] games) {
+        Map<String, List<Game>> gamesByEntity = new HashMap<>();
+        for (String team : teams) {
+            gamesByEntity.put(team, collectGames(dataset, dataset.getGamesByTeam(team), games));
+        }
+        for (String tournament : tournaments) {
+            gamesByEntity.put(tournament, collectGames(dataset, dataset.getGamesByTournament(tournament), games));
+        }
+        return gamesByEntity;
+    }
 
-    private double calculateAdditionalCoverage(int selectedPackageId, Set<Game> uncoveredGames)
-    {
-        if (uncoveredGames.isEmpty()) {
-            return 0.0;
-        }
-
-        int additionalGames = 0;
-        for(Game game : uncoveredGames)
-        {
-            for(StreamingOffer offer : dataService.getOffersForGame(game.getId()))
-            {
-                if(offer.getStreamingPackageId() == selectedPackageId)
-                {
-                    additionalGames++;
-                    break;
-                }
+    private List<Game> collectGames(Dataset dataset, int[] entityGames, long[] games) {
+        List<Game> result = new ArrayList<>();
+        for (int game : entityGames) {
+            if (Bits.get(games, game)) {
+                result.add(dataset.getGame(game));
             }
         }
-        return (double) additionalGames / uncoveredGames.size();
+        return result;
     }
 
     /**
      * Calculates the game density characteristics to determine the appropriate package selection strategy.
      * Uses coefficient of variation and average games per month to assess distribution.
      *
-     * @param gamesByMonth Map of games grouped by month
-     * @return true if games are unevenly distributed (high variance), false otherwise
+     * @param gamesByMonth Games grouped by month as returned by mapGamesByMonth
+     * @return true if games are unevenly distributed (high variance), false otherwise or if there are no games
      */
-    private boolean gameDensity(Map<String, Set<Game>> gamesByMonth) {
-        int noOfMonths = gamesByMonth.size();
-        int noOfGames = gamesByMonth.values().stream()
-        .mapToInt(Set::size)
-        .sum();
+    private boolean gameDensity(long[][] gamesByMonth) {
+        int noOfMonths = 0;
+        int noOfGames = 0;
+        for (long[] games : gamesByMonth) {
+            if (games != null) {
+                noOfMonths++;
+                noOfGames += Bits.cardinality(games);
+            }
+        }
+        if (noOfMonths == 0) {
+            return false;
+        }
 
         double averageGamesPerMonth = (double) noOfGames / noOfMonths;
 
-        double variance = gamesByMonth.values().stream()
-            .mapToDouble(games -> Math.pow(games.size() - averageGamesPerMonth, 2))
-            .sum() / noOfMonths;
+        double variance = 0.0;
+        for (long[] games : gamesByMonth) {
+            if (games != null) {
+                variance += Math.pow(Bits.cardinality(games) - averageGamesPerMonth, 2);
+            }
+        }
+        variance /= noOfMonths;
         
         // Calculate coefficient of variation 
         double stdDev = Math.sqrt(variance);
@@ -400,20 +1053,36 @@ public class PackageCombinationService {
 
 
     /**
-     * Calculates the efficiency score of a package based on its coverage and price.
+     * Calculates the efficiency score of a package based on its coverage and monthly cost (monthlyCostCents).
      * Includes a boost factor for packages offering live coverage.
      *
      * @param pkg The package to evaluate
      * @param additionalCoverage The additional coverage this package would provide
+     * @param liveBoost Whether to apply the boost, off when the coverage already only counts one kind of offer
      * @return Efficiency score (higher is better)
      */
 
-    private double calculateEfficiency(StreamingPackageDTO pkg, double additionalCoverage) {
-        double coverageBoost = pkg.getLiveCoveragePercentage() > 0 ? 0.5 : 0.0; // Boost for packages with live coverage
-        if (pkg.getMonthlyPrice() == 0) {
+    private double calculateEfficiency(StreamingPackageDTO pkg, double additionalCoverage, boolean liveBoost) {
+        double coverageBoost = !liveBoost ? 1.0 : pkg.getLiveCoveragePercentage() > 0 ? 0.5 : 0.0; // Boost for packages with live coverage
+        double price = monthlyCostCents(pkg) / 100;
+        if (price == 0) {
          return additionalCoverage * 100 * coverageBoost; // Multiply by 100 to give free packages with good coverage priority and avoid division by zero
         }
-        return additionalCoverage / pkg.getMonthlyPrice() * coverageBoost;
+        return additionalCoverage / price * coverageBoost;
+    }
+
+    /**
+     * Price of a package for one month in cents, the cost model of the greedy and exact selection, the pruning and the
+     * reported costs and the coverage frontier. Subscription plans bill by SubscriptionPlanner instead. Yearly-only packages have an empty monthly price in the CSV,
+     * which loads as 0 (free packages have no yearly price either); they cost their monthly price under the
+     * yearly subscription instead of being taken for free.
+     */
+    static double monthlyCostCents(StreamingPackageDTO pkg) {
+        return isYearlyOnly(pkg) ? pkg.getYearlyPriceCents() : pkg.getMonthlyPriceCents();
+    }
+
+    private static boolean isYearlyOnly(StreamingPackageDTO pkg) {
+        return pkg.getMonthlyPriceCents() == 0 && pkg.getYearlyPriceCents() > 0;
     }
 
 }
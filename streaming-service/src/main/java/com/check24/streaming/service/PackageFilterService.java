@@ -1,21 +1,36 @@
 package com.check24.streaming.service;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import com.check24.streaming.model.CoveragePreference;
+import com.check24.streaming.model.BatchSearchResult;
+import com.check24.streaming.model.CacheStats;
 import com.check24.streaming.model.FilterOptions;
-import com.check24.streaming.model.StreamingPackage;
+import com.check24.streaming.model.FilteredPackages;
+import com.check24.streaming.model.SearchRequest;
+import com.check24.streaming.model.SearchResult;
 import com.check24.streaming.model.StreamingPackageDTO;
+import com.check24.streaming.service.SearchResultStore.StoredSearch;
 
 
 /**
  * Service responsible for filtering and searching streaming packages based on teams, tournaments, and user preferences.
  * Provides functionality to calculate coverage percentages and filter packages based on various criteria.
+ * Search results are kept on the server for a short time, so filtering works on a result id instead of
+ * packages sent back by the client.
  */
 
 @Service
@@ -23,176 +38,384 @@ public class PackageFilterService
 {
 
     private final DataService dataService;
+    private final ParallelEvaluation parallelEvaluation;
+    private final PrecomputedResults precomputedResults;
+    private final SearchResultStore searchResults;
+    private final ResultCache<Selection, SearchResult> searchCache;
+    private final int maxBatchSize;
 
     public PackageFilterService(DataService dataService)
+    {
+        this(dataService, new ParallelEvaluation(), new PrecomputedResults(), 600, 10_000, 300, 16L << 20, 1000);
+    }
+
+    /**
+     * @param parallelEvaluation Splits large package catalogs over a dedicated thread pool
+     * @param precomputedResults Materialized results of single team and single tournament selections
+     * @param resultTtlSeconds How long search results stay available to /api/filter (streaming.search.result-ttl-seconds)
+     * @param maxStoredResults Maximum number of stored search results, the oldest are dropped first (streaming.search.max-results)
+     * @param cacheTtlSeconds How long a search response is reused for the same selection (streaming.cache.ttl-seconds)
+     * @param cacheMaxBytes Approximate memory limit of the search cache, 0 to disable it (streaming.cache.search.max-bytes)
+     * @param maxBatchSize Maximum number of selections in one batch search (streaming.search.max-batch-size)
+     */
+    @Autowired
+    public PackageFilterService(DataService dataService, ParallelEvaluation parallelEvaluation, PrecomputedResults precomputedResults,
+                                @Value("${streaming.search.result-ttl-seconds:600}") long resultTtlSeconds,
+                                @Value("${streaming.search.max-results:10000}") int maxStoredResults,
+                                @Value("${streaming.cache.ttl-seconds:300}") long cacheTtlSeconds,
+                                @Value("${streaming.cache.search.max-bytes:16777216}") long cacheMaxBytes,
+                                @Value("${streaming.search.max-batch-size:1000}") int maxBatchSize)
     {
         this.dataService = dataService;
+        this.parallelEvaluation = parallelEvaluation;
+        this.precomputedResults = precomputedResults;
+        this.searchResults = new SearchResultStore(resultTtlSeconds, maxStoredResults);
+        this.searchCache = new ResultCache<>(cacheTtlSeconds, cacheMaxBytes, result -> 128 + 192L * result.packages().size());
+        this.maxBatchSize = maxBatchSize;
     }
 
     /**
      * Searches for relevant streaming packages based on selected teams and tournaments.
      * A package is considered relevant if it has any coverage (live or highlights) for any of the selected teams or tournaments.
+     * Every package is relevant when nothing is selected.
+     *
+     * Live and highlights coverage of all packages are accumulated in a single sweep over the selected entities'
+     * coverage cube rows; relevance and both averages are read from those sums.
      *
      * @param teams List of team names to search for
      * @param tournaments List of tournament names to search for
      * @return Collection of StreamingPackageDTO with calculated coverage percentages
      */
     public Collection<StreamingPackageDTO> searchByTeamsAndTournaments(List<String> teams, List<String> tournaments) {
-        Collection<StreamingPackage> allPackages = dataService.getAllPackages();
-        System.out.println("Total packages before filtering: " + allPackages.size());
-        
-        Collection<StreamingPackage> relevantPackages = allPackages.stream()
-            .filter(pkg -> {
-                if (teams.isEmpty() && tournaments.isEmpty()) {
-                    return true;
-                }
-                
-                // Check teams
-                for (String team : teams) {
-                    double liveCoverage = dataService.getTeamLiveCoverageByPackageId(team, pkg.getStreamingPackageId());
-                    double highlightsCoverage = dataService.getTeamHighlightsCoverageByPackageId(team, pkg.getStreamingPackageId());
-                    
-                    if (liveCoverage > 0 || highlightsCoverage > 0) {
-                        return true;
-                    }
-                }
-                
-                // Check tournaments
-                for (String tournament : tournaments) {
-                    double liveCoverage = dataService.getTournamentLiveCoverageByPackageId(tournament, pkg.getStreamingPackageId());
-                    double highlightsCoverage = dataService.getTournamentHighlightsCoverageByPackageId(tournament, pkg.getStreamingPackageId());
-                    
-                    if (liveCoverage > 0 || highlightsCoverage > 0) {
-                        return true;
-                    }
-                }
-                
-                return false;
-            })
-            .collect(Collectors.toList());
-        
-        System.out.println("Packages after filtering: " + relevantPackages.size());
+        return searchByTeamsAndTournaments(dataService.getDataset(), teams, tournaments, TimeWindow.ALL);
+    }
+
+    private Collection<StreamingPackageDTO> searchByTeamsAndTournaments(Dataset dataset, List<String> teams, List<String> tournaments, TimeWindow window) {
+        int packageCount = dataset.getPackageCount();
+
+        int[] teamIndices = teams.stream().mapToInt(dataset::getTeamIndex).toArray();
+        int[] tournamentIndices = tournaments.stream().mapToInt(dataset::getTournamentIndex).toArray();
+
+        // Coverage values are never negative, so a package is relevant exactly when one of its sums is positive.
+        int numSources = teamIndices.length + tournamentIndices.length;
         Collection<StreamingPackageDTO> result = new ArrayList<>();
-        for(StreamingPackage pkg : relevantPackages) {
-           double liveCoverage = calculateTotalCoverage(pkg.getStreamingPackageId(),teams, tournaments, new FilterOptions(null, CoveragePreference.LIVE, null));
-           double highlightsCoverage = calculateTotalCoverage(pkg.getStreamingPackageId(), teams, tournaments, new FilterOptions(null, CoveragePreference.HIGHLIGHTS, null));
-              result.add(StreamingPackageDTO.fromStreamingPackage(pkg, liveCoverage, highlightsCoverage));
+        if (!window.isAll()) {
+            // Only the games inside the window count, they are read from the start time index in one pass
+            double[] liveSums = new double[packageCount];
+            double[] highlightsSums = new double[packageCount];
+            dataset.sumCoverage(teamIndices, tournamentIndices, window, liveSums, highlightsSums);
+            addRelevantPackages(dataset, numSources, liveSums, highlightsSums, 0, result);
+            return result;
+        }
+
+        // Large catalogs are split into package ranges; the ranges are concatenated in order, as if run sequentially.
+        List<List<StreamingPackageDTO>> chunks = parallelEvaluation.mapChunks(packageCount, (from, to) -> {
+            double[] liveSums = new double[to - from];
+            double[] highlightsSums = new double[to - from];
+            dataset.sumCoverage(teamIndices, tournamentIndices, from, to, liveSums, highlightsSums);
+
+            List<StreamingPackageDTO> relevant = new ArrayList<>();
+            addRelevantPackages(dataset, numSources, liveSums, highlightsSums, from, relevant);
+            return relevant;
+        });
+        chunks.forEach(result::addAll);
+        return result;
+    }
+
+    // Adds the packages from, from + 1, ... whose coverage sums are positive, with the sums averaged over numSources
+    private static void addRelevantPackages(Dataset dataset, int numSources, double[] liveSums, double[] highlightsSums, int from,
+                                            Collection<StreamingPackageDTO> result) {
+        for (int i = 0; i < liveSums.length; i++) {
+            if (numSources > 0 && liveSums[i] <= 0 && highlightsSums[i] <= 0) {
+                continue;
+            }
+            double liveCoverage = numSources > 0 ? liveSums[i] / numSources : 0.0;
+            double highlightsCoverage = numSources > 0 ? highlightsSums[i] / numSources : 0.0;
+            result.add(StreamingPackageDTO.fromStreamingPackage(dataset.getPackageByIndex(from + i), liveCoverage, highlightsCoverage));
+        }
+    }
+
+    /**
+     * Searches like searchByTeamsAndTournaments and keeps the result on the server, so later filter requests
+     * only need to send its id. The selection is canonicalized (sorted, duplicates removed) and responses are
+     * cached per canonical selection and dataset version; a cached response is reused as long as its stored
+     * result is still available to filter. Selections of a single team or tournament are taken from the
+     * precomputed results once those are ready.
+     *
+     * @param teams List of team names to search for
+     * @param tournaments List of tournament names to search for
+     * @return The relevant packages together with the id to pass to filter
+     */
+    public SearchResult search(List<String> teams, List<String> tournaments) {
+        return search(teams, tournaments, null, null);
+    }
+
+    /**
+     * Same as search, only counting the games that start between from and to. Coverage is then the share of
+     * the games within the window, and packages are relevant if they cover any of them.
+     *
+     * @param from First day of the window, null for no lower bound
+     * @param to Last day of the window (inclusive), null for no upper bound
+     */
+    public SearchResult search(List<String> teams, List<String> tournaments, LocalDate from, LocalDate to) {
+        Dataset dataset = dataService.getDataset();
+        Selection selection = Selection.of(teams, tournaments, TimeWindow.of(from, to));
+        List<StreamingPackageDTO> precomputed = precomputedResults.search(dataset, selection);
+        if (precomputed != null) {
+            return storeSearch(dataset, precomputed);
+        }
+        SearchResult cached = searchCache.getIfPresent(dataset.getVersion(), selection);
+        if (cached != null && searchResults.get(cached.resultId()) != null) {
+            return cached;
         }
+        SearchResult result = storeSearch(dataset, List.copyOf(searchByTeamsAndTournaments(dataset, selection.teams(), selection.tournaments(), selection.window())));
+        searchCache.put(dataset.getVersion(), selection, result);
         return result;
     }
 
     /**
-     * Filters and sorts streaming packages based on specified options.
+     * Searches many selections at once, for callers that need coverage for hundreds of selections.
+     * Every selection is canonicalized like in search and yields the same packages and coverage values.
+     *
+     * The coverage of each distinct team and tournament in the batch is taken from the coverage cube once and
+     * reused by every selection containing it, identical selections are only evaluated once, and nothing is
+     * logged or stored per selection. Results are not kept for /api/filter.
+     *
+     * @param requests Selections to search with optional time windows, at most streaming.search.max-batch-size
+     * @return Lazily evaluated results in request order, all computed on the dataset version current at the call
+     */
+    public Stream<BatchSearchResult> searchBatch(List<SearchRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("A batch needs at least one selection");
+        }
+        if (requests.size() > maxBatchSize) {
+            throw new IllegalArgumentException("A batch may contain at most " + maxBatchSize + " selections");
+        }
+        // Selections are built up front, so invalid time windows are rejected before anything is streamed
+        List<Selection> selections = requests.stream()
+            .map(request -> request == null ? Selection.of(null, null)
+                : Selection.of(request.teams(), request.tournaments(), TimeWindow.of(request.from(), request.to())))
+            .toList();
+        Dataset dataset = dataService.getDataset();
+        BatchCoverage coverage = new BatchCoverage(dataset);
+        Map<Selection, List<StreamingPackageDTO>> evaluated = new HashMap<>();
+        return IntStream.range(0, requests.size()).mapToObj(index -> {
+            Selection selection = selections.get(index);
+            List<StreamingPackageDTO> packages = evaluated.computeIfAbsent(selection, s -> {
+                List<StreamingPackageDTO> precomputed = precomputedResults.search(dataset, s);
+                return precomputed != null ? precomputed : coverage.search(s);
+            });
+            SearchRequest request = requests.get(index);
+            return new BatchSearchResult(index, dataset.getVersion(), selection.teams(), selection.tournaments(),
+                request == null ? null : request.from(), request == null ? null : request.to(), packages);
+        });
+    }
+
+    /**
+     * Relevant packages of a canonical selection on the given dataset, like searchByTeamsAndTournaments but
+     * without logging. Used by PrecomputeJob.
+     */
+    List<StreamingPackageDTO> searchPackages(Dataset dataset, Selection selection) {
+        return new BatchCoverage(dataset).search(selection);
+    }
+
+    /**
+     * Packages with the given ids as the selection's search returns them, so combinations of client-chosen packages
+     * are computed on the server's prices and coverage. The search result is taken from the precomputed results or
+     * the search cache when possible. A package that is not relevant to the selection has zero coverage.
+     *
+     * @param packageIds Streaming package ids, the result keeps their order
+     * @throws IllegalArgumentException If an id is not a package of the dataset
+     */
+    List<StreamingPackageDTO> resolvePackages(Dataset dataset, Selection selection, List<Integer> packageIds) {
+        Collection<StreamingPackageDTO> relevant = precomputedResults.search(dataset, selection);
+        if (relevant == null) {
+            SearchResult cached = searchCache.getIfPresent(dataset.getVersion(), selection);
+            relevant = cached != null ? cached.packages() : searchPackages(dataset, selection);
+        }
+        StreamingPackageDTO[] byIndex = new StreamingPackageDTO[dataset.getPackageCount()];
+        for (StreamingPackageDTO pkg : relevant) {
+            byIndex[dataset.getPackageIndex(pkg.getStreamingPackageId())] = pkg;
+        }
+        List<StreamingPackageDTO> packages = new ArrayList<>(packageIds.size());
+        for (int packageId : packageIds) {
+            int packageIndex = dataset.getPackageIndex(packageId);
+            if (packageIndex < 0) {
+                throw new IllegalArgumentException("Unknown streaming package id " + packageId);
+            }
+            if (byIndex[packageIndex] == null) {
+                byIndex[packageIndex] = StreamingPackageDTO.fromStreamingPackage(dataset.getPackageByIndex(packageIndex), 0.0, 0.0);
+            }
+            packages.add(byIndex[packageIndex]);
+        }
+        return packages;
+    }
+
+    /**
+     * Per-package live and highlights coverage of the teams and tournaments of one batch, computed on first use
+     * per entity and time window. Summing these rows in the same order as Dataset.sumCoverage gives bit-identical results.
+     */
+    private static final class BatchCoverage
+    {
+        private record Key(String name, TimeWindow window) {}
+
+        private final Dataset dataset;
+        private final Map<Key, double[][]> teams = new HashMap<>();
+        private final Map<Key, double[][]> tournaments = new HashMap<>();
+
+        BatchCoverage(Dataset dataset) {
+            this.dataset = dataset;
+        }
+
+        List<StreamingPackageDTO> search(Selection selection) {
+            int packageCount = dataset.getPackageCount();
+            double[] liveSums = new double[packageCount];
+            double[] highlightsSums = new double[packageCount];
+            TimeWindow window = selection.window();
+            for (String team : selection.teams()) {
+                add(teams.computeIfAbsent(new Key(team, window),
+                    key -> row(new int[] { dataset.getTeamIndex(team) }, new int[0], window)), liveSums, highlightsSums);
+            }
+            for (String tournament : selection.tournaments()) {
+                add(tournaments.computeIfAbsent(new Key(tournament, window),
+                    key -> row(new int[0], new int[] { dataset.getTournamentIndex(tournament) }, window)), liveSums, highlightsSums);
+            }
+            List<StreamingPackageDTO> result = new ArrayList<>();
+            addRelevantPackages(dataset, selection.teams().size() + selection.tournaments().size(), liveSums, highlightsSums, 0, result);
+            return List.copyOf(result);
+        }
+
+        private double[][] row(int[] teamRows, int[] tournamentRows, TimeWindow window) {
+            double[][] row = new double[2][dataset.getPackageCount()];
+            dataset.sumCoverage(teamRows, tournamentRows, window, row[0], row[1]);
+            return row;
+        }
+
+        private static void add(double[][] row, double[] liveSums, double[] highlightsSums) {
+            for (int p = 0; p < liveSums.length; p++) {
+                liveSums[p] += row[0][p];
+                highlightsSums[p] += row[1][p];
+            }
+        }
+    }
+
+    /** @return Hit, miss and eviction counters of the search cache */
+    public CacheStats getCacheStats() {
+        return searchCache.stats();
+    }
+
+    private SearchResult storeSearch(Dataset dataset, List<StreamingPackageDTO> packages) {
+        int count = packages.size();
+        double[] monthlyPrices = new double[count];
+        double[] liveCoverage = new double[count];
+        double[] highlightsCoverage = new double[count];
+        double[] bestCoverage = new double[count];
+        for (int i = 0; i < count; i++) {
+            StreamingPackageDTO pkg = packages.get(i);
+            monthlyPrices[i] = pkg.getMonthlyPrice();
+            liveCoverage[i] = pkg.getLiveCoveragePercentage();
+            highlightsCoverage[i] = pkg.getHighlightsCoveragePercentage();
+            bestCoverage[i] = Math.max(liveCoverage[i], highlightsCoverage[i]);
+        }
+        String resultId = searchResults.put(new StoredSearch(System.nanoTime(), dataset.getVersion(),
+            packages.toArray(StreamingPackageDTO[]::new), monthlyPrices, liveCoverage, highlightsCoverage, bestCoverage));
+        return new SearchResult(resultId, dataset.getVersion(), packages);
+    }
+
+    /**
+     * Filters and sorts a stored search result based on specified options.
      * Filtering criteria include:
      * - Maximum price threshold
      * - Coverage preference (live/highlights)
      * Sorting options include:
      * - Price (ascending)
-     * - Coverage percentage (descending)
+     * - Coverage percentage (ascending, of the preferred kind or the better of both)
+     * Packages with equal sort keys keep their search order.
      *
-     * @param packages Collection of packages to filter
+     * The sort keys were extracted when the result was stored, so the comparator is chosen once per request
+     * and only compares primitives. For a page, only the first offset + limit packages are selected with a
+     * bounded heap instead of sorting every match.
+     *
+     * @param resultId Id returned by search
      * @param options FilterOptions containing price limits, coverage preferences, and sorting criteria
-     * @return Filtered and sorted collection of StreamingPackageDTO
+     * @param offset Number of sorted matches to skip, null for 0
+     * @param limit Maximum number of packages to return, null for all
+     * @return The requested page of the filtered and sorted packages
      */
-    public Collection<StreamingPackageDTO> filter(Collection<StreamingPackageDTO> packages, FilterOptions options) {
-        return packages.stream()
-            .filter(pkg -> {
-            
-                if(options.maxPrice() != null && pkg.getMonthlyPrice() > options.maxPrice()) {
-                    return false;
-                }
-
-                if(options.preference() != null)
-                {
-                    double relevantCoverage = switch(options.preference()) {
-                        case LIVE -> pkg.getLiveCoveragePercentage();
-                        case HIGHLIGHTS -> pkg.getHighlightsCoveragePercentage();
-                    };
-
-                    if(relevantCoverage <= 0) {
-                        return false;
-                    }
-                }
-                return true;
-            })
-            .sorted((pkg1, pkg2) -> {
-                if(options.sortingOption() == null) {
-                    return 0;
-                }
-
-                return switch(options.sortingOption()) {
-                    case PRICE -> Double.compare(pkg1.getMonthlyPrice(), pkg2.getMonthlyPrice());
-                    case COVERAGE -> {
-                        if(options.preference() == null) {
-                            yield Double.compare(
-                                Math.max(pkg1.getLiveCoveragePercentage(), pkg1.getHighlightsCoveragePercentage()),
-                                Math.max(pkg2.getLiveCoveragePercentage(), pkg2.getHighlightsCoveragePercentage())
-                            );
-                        } else {
-                            double coverage1 = switch(options.preference()) {
-                                case LIVE -> pkg1.getLiveCoveragePercentage();
-                                case HIGHLIGHTS -> pkg1.getHighlightsCoveragePercentage();
-                            };
-                            double coverage2 = switch(options.preference()) {
-                                case LIVE -> pkg2.getLiveCoveragePercentage();
-                                case HIGHLIGHTS -> pkg2.getHighlightsCoveragePercentage();
-                            };
-                            yield Double.compare(coverage1, coverage2);
-                        }
-                    }
-                };
-            })
-            .collect(Collectors.toList());
+    public FilteredPackages filter(String resultId, FilterOptions options, Integer offset, Integer limit) {
+        StoredSearch search = searchResults.get(resultId);
+        if (search == null) {
+            throw new UnknownSearchResultException(resultId);
+        }
+        if (offset != null && offset < 0) {
+            throw new IllegalArgumentException("offset must not be negative");
+        }
+        if (limit != null && limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        FilterOptions filterOptions = options != null ? options : new FilterOptions(null, null, null);
+
+        double[] preferredCoverage = filterOptions.preference() == null ? null : switch (filterOptions.preference()) {
+            case LIVE -> search.liveCoverage();
+            case HIGHLIGHTS -> search.highlightsCoverage();
+        };
+        int[] matches = new int[search.packages().length];
+        int total = 0;
+        for (int i = 0; i < matches.length; i++) {
+            if (filterOptions.maxPrice() != null && search.monthlyPrices()[i] > filterOptions.maxPrice()) {
+                continue;
+            }
+            if (preferredCoverage != null && preferredCoverage[i] <= 0) {
+                continue;
+            }
+            matches[total++] = i;
+        }
 
+        double[] sortKeys = filterOptions.sortingOption() == null ? null : switch (filterOptions.sortingOption()) {
+            case PRICE -> search.monthlyPrices();
+            case COVERAGE -> preferredCoverage != null ? preferredCoverage : search.bestCoverage();
+        };
+        int from = offset == null ? 0 : offset;
+        int end = limit == null ? total : (int) Math.min(total, (long) from + limit);
+        int[] sorted = firstSorted(matches, total, sortKeys, end);
+
+        List<StreamingPackageDTO> page = new ArrayList<>();
+        for (int i = from; i < end; i++) {
+            page.add(search.packages()[sorted[i]]);
+        }
+        return new FilteredPackages(resultId, total, from, page);
     }
 
     /**
-     * Calculates the average coverage percentage across all selected teams and tournaments for a package.
-     * Coverage can be calculated for either live streaming or highlights based on the provided options.
-     *
-     * @param packageId ID of the package to calculate coverage for
-     * @param teams List of teams to include in calculation
-     * @param tournaments List of tournaments to include in calculation
-     * @param options FilterOptions containing coverage preference
-     * @return Average coverage percentage between 0.0 and 1.0
+     * Selects the first k matches in ascending key order, ties broken by position in the search result.
+     * @param matches Positions of the matching packages in ascending order, the first count entries are used
+     * @param sortKeys Sort key per position, null to keep the search order
+     * @return The first k positions in sorted order
      */
-    private double calculateTotalCoverage(int packageId, List<String> teams, List<String> tournaments, FilterOptions options) {
-        double totalCoverage = 0.0;
-
-        int numSources = teams.size() + tournaments.size();
-        
-        for (String team : teams) {
-            if (options.preference() == null) {
-                totalCoverage += Math.max(
-                    dataService.getTeamLiveCoverageByPackageId(team, packageId),
-                    dataService.getTeamHighlightsCoverageByPackageId(team, packageId)
-                );
-            } else {
-                totalCoverage += switch (options.preference()) {
-                    case LIVE -> dataService.getTeamLiveCoverageByPackageId(team, packageId);
-                    case HIGHLIGHTS -> dataService.getTeamHighlightsCoverageByPackageId(team, packageId);
-                };
-            }
+    private int[] firstSorted(int[] matches, int count, double[] sortKeys, int k) {
+        if (sortKeys == null || k <= 0) {
+            return Arrays.copyOf(matches, Math.max(k, 0));
         }
-    
-        for (String tournament : tournaments) {
-            if (options.preference() == null) {
-                totalCoverage += Math.max(
-                    dataService.getTournamentLiveCoverageByPackageId(tournament, packageId),
-                    dataService.getTournamentHighlightsCoverageByPackageId(tournament, packageId)
-                );
-            } else {
-                totalCoverage += switch (options.preference()) {
-                    case LIVE -> dataService.getTournamentLiveCoverageByPackageId(tournament, packageId);
-                    case HIGHLIGHTS -> dataService.getTournamentHighlightsCoverageByPackageId(tournament, packageId);
-                };
+        Comparator<Integer> order = (a, b) -> {
+            int byKey = Double.compare(sortKeys[a], sortKeys[b]);
+            return byKey != 0 ? byKey : Integer.compare(a, b);
+        };
+
+        // Max-heap of the best k seen so far: a new match only enters if it sorts before the current worst
+        PriorityQueue<Integer> best = new PriorityQueue<>(k, order.reversed());
+        for (int i = 0; i < count; i++) {
+            if (best.size() < k) {
+                best.add(matches[i]);
+            } else if (order.compare(matches[i], best.peek()) < 0) {
+                best.poll();
+                best.add(matches[i]);
             }
         }
-        
-        return numSources > 0 ? totalCoverage / numSources : 0.0;
+        int[] sorted = new int[best.size()];
+        for (int i = sorted.length - 1; i >= 0; i--) {
+            sorted[i] = best.poll();
+        }
+        return sorted;
     }
 
-    
-
-
 }
@@ -0,0 +1,75 @@
+package com.check24.streaming.service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
+import java.util.stream.IntStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Opt-in parallel evaluation of package ranges for large package catalogs.
+ *
+ * Work is split into contiguous chunks of package positions that run on a dedicated, bounded ForkJoinPool,
+ * never on the common pool, so request threads and other parallel streams are not starved. Chunk results are
+ * returned in chunk order, which lets callers combine them exactly like the sequential loop would.
+ * Below the configured number of packages, or when disabled, everything runs as one chunk on the calling thread.
+ */
+@Service
+public class ParallelEvaluation
+{
+    private static final int MIN_CHUNK_SIZE = 16;
+
+    private final ForkJoinPool pool; /** null when parallel evaluation is disabled */
+    private final int minPackages;
+
+    /** Sequential evaluation only. */
+    public ParallelEvaluation()
+    {
+        this(false, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param enabled Whether packages may be evaluated in parallel (streaming.parallel.enabled)
+     * @param threads Size of the dedicated pool, 0 for the number of available processors (streaming.parallel.threads)
+     * @param minPackages Smallest number of packages evaluated in parallel (streaming.parallel.min-packages)
+     */
+    @Autowired
+    public ParallelEvaluation(@Value("${streaming.parallel.enabled:false}") boolean enabled,
+                              @Value("${streaming.parallel.threads:0}") int threads,
+                              @Value("${streaming.parallel.min-packages:128}") int minPackages)
+    {
+        int parallelism = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.pool = enabled ? new ForkJoinPool(parallelism) : null;
+        this.minPackages = minPackages;
+    }
+
+    /**
+     * Applies the function to consecutive ranges [from, to) covering 0 until count.
+     * @param count Number of packages to evaluate
+     * @param chunk Evaluates the packages at positions from (inclusive) to to (exclusive)
+     * @return One result per chunk, in ascending position order. Results may be null.
+     */
+    public <T> List<T> mapChunks(int count, BiFunction<Integer, Integer, T> chunk) {
+        if (pool == null || count < minPackages) {
+            return Collections.singletonList(chunk.apply(0, count));
+        }
+        int chunks = Math.max(1, Math.min(pool.getParallelism() * 4, count / MIN_CHUNK_SIZE));
+        return pool.submit(() -> IntStream.range(0, chunks).parallel()
+            .mapToObj(c -> chunk.apply((int) ((long) count * c / chunks), (int) ((long) count * (c + 1) / chunks)))
+            .toList()
+        ).join();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+}
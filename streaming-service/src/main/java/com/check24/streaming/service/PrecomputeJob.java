@@ -0,0 +1,186 @@
+package com.check24.streaming.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.check24.streaming.model.BestCombination;
+import com.check24.streaming.model.BestCombination.PackagePeriod;
+import com.check24.streaming.model.Game;
+import com.check24.streaming.model.StreamingPackageDTO;
+import com.check24.streaming.service.PrecomputedResults.Entry;
+import com.check24.streaming.service.PrecomputedResults.Snapshot;
+
+/**
+ * Computes the search and best combination results of every single team and every single tournament in the
+ * background, once the application is ready and again after every published dataset version, and hands them
+ * to PrecomputedResults.
+ *
+ * The entities are evaluated in parallel on a pool that only lives for the run. When a path is configured the
+ * results are persisted there and reused by later runs on a dataset with the same content.
+ */
+@Service
+public class PrecomputeJob
+{
+    private static final Logger log = LoggerFactory.getLogger(PrecomputeJob.class);
+
+    private final DataService dataService;
+    private final PackageFilterService packageFilterService;
+    private final PackageCombinationService packageCombinationService;
+    private final PrecomputedResults precomputedResults;
+    private final boolean enabled;
+    private final Path path; /** null if the results are not persisted */
+    private final int threads;
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "precompute");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param enabled Whether single team and tournament results are precomputed (streaming.precompute.enabled)
+     * @param path File the results are persisted to (streaming.precompute.path), empty to keep them in memory only
+     * @param threads Threads used for the computation, 0 for the number of available processors (streaming.precompute.threads)
+     */
+    public PrecomputeJob(DataService dataService, PackageFilterService packageFilterService,
+                         PackageCombinationService packageCombinationService, PrecomputedResults precomputedResults,
+                         @Value("${streaming.precompute.enabled:true}") boolean enabled,
+                         @Value("${streaming.precompute.path:}") String path,
+                         @Value("${streaming.precompute.threads:0}") int threads)
+    {
+        this.dataService = dataService;
+        this.packageFilterService = packageFilterService;
+        this.packageCombinationService = packageCombinationService;
+        this.precomputedResults = precomputedResults;
+        this.enabled = enabled;
+        this.path = path.isBlank() ? null : Path.of(path);
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) return;
+        dataService.addPublishListener(this::schedule);
+        schedule(dataService.getDataset());
+    }
+
+    // Runs are queued on one thread; a run whose dataset was replaced in the meantime is skipped
+    private void schedule(Dataset dataset) {
+        runner.execute(() -> {
+            if (dataset != dataService.getDataset()) return;
+            try {
+                run(dataset);
+            } catch (RuntimeException e) {
+                log.error("Precomputing results failed for dataset version {}", dataset.getVersion(), e);
+            }
+        });
+    }
+
+    private void run(Dataset dataset) {
+        long start = System.nanoTime();
+        long fingerprint = DatasetSnapshotFile.contentFingerprint(dataset);
+        Snapshot snapshot = null;
+        if (path != null) {
+            try {
+                snapshot = PrecomputedResultsFile.read(path, fingerprint, dataset.getVersion());
+            } catch (IOException | RuntimeException e) {
+                log.warn("Ignoring unreadable precomputed results {}", path, e);
+            }
+        }
+
+        if (snapshot != null) {
+            log.info("Using precomputed results {}", path);
+        } else {
+            snapshot = compute(dataset);
+            if (path != null) {
+                try {
+                    PrecomputedResultsFile.write(snapshot, fingerprint, path);
+                    log.info("Wrote precomputed results {}", path);
+                } catch (IOException e) {
+                    log.warn("Could not write precomputed results {}", path, e);
+                }
+            }
+        }
+        precomputedResults.publish(snapshot);
+        log.info("Precomputed results for {} selections of dataset version {} ready in {} ms", precomputedResults.size(dataset),
+            dataset.getVersion(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private Snapshot compute(Dataset dataset) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            Entry[] teams = pool.submit(() -> IntStream.range(0, dataset.teamNames.length).parallel()
+                .mapToObj(row -> compute(dataset, Selection.of(List.of(dataset.teamNames[row]), List.of()),
+                    dataset.teamNames[row], dataset.gamesByTeam[row]))
+                .toArray(Entry[]::new)).join();
+            Entry[] tournaments = pool.submit(() -> IntStream.range(0, dataset.tournamentNames.length).parallel()
+                .mapToObj(row -> compute(dataset, Selection.of(List.of(), List.of(dataset.tournamentNames[row])),
+                    dataset.tournamentNames[row], dataset.gamesByTournament[row]))
+                .toArray(Entry[]::new)).join();
+            return new Snapshot(dataset.getVersion(), teams, tournaments);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Runs the regular search and best combination for one entity and keeps what is needed to rebuild them:
+     * packages as indices and coverage values, period packages as positions in the search result and
+     * covered games as a bitset over the entity's games.
+     */
+    private Entry compute(Dataset dataset, Selection selection, String name, int[] entityGames) {
+        List<StreamingPackageDTO> packages = packageFilterService.searchPackages(dataset, selection);
+        BestCombination combination = packageCombinationService.computeBestCombination(dataset, selection, packages);
+
+        int[] packageIndices = new int[packages.size()];
+        double[] liveCoverage = new double[packages.size()];
+        double[] highlightsCoverage = new double[packages.size()];
+        Map<Integer, Integer> positions = new HashMap<>();
+        for (int i = 0; i < packages.size(); i++) {
+            StreamingPackageDTO pkg = packages.get(i);
+            packageIndices[i] = dataset.getPackageIndex(pkg.getStreamingPackageId());
+            liveCoverage[i] = pkg.getLiveCoveragePercentage();
+            highlightsCoverage[i] = pkg.getHighlightsCoveragePercentage();
+            positions.put(pkg.getStreamingPackageId(), i);
+        }
+
+        List<PackagePeriod> periods = combination.getPackages();
+        String[] periodStarts = new String[periods.size()];
+        String[] periodEnds = new String[periods.size()];
+        double[] periodCosts = new double[periods.size()];
+        int[][] periodPackages = new int[periods.size()][];
+        for (int p = 0; p < periods.size(); p++) {
+            PackagePeriod period = periods.get(p);
+            periodStarts[p] = period.getStartMonthYear();
+            periodEnds[p] = period.getEndMonthYear();
+            periodCosts[p] = period.getPeriodCost();
+            periodPackages[p] = period.getPackages().stream().mapToInt(pkg -> positions.get(pkg.getStreamingPackageId())).toArray();
+        }
+
+        Set<Integer> coveredIds = new HashSet<>();
+        for (Game game : combination.getCoveredGames().get(name)) coveredIds.add(game.getId());
+        long[] coveredGames = Bits.create(entityGames.length);
+        for (int i = 0; i < entityGames.length; i++) {
+            if (coveredIds.contains(dataset.gameIds[entityGames[i]])) Bits.set(coveredGames, i);
+        }
+
+        return new Entry(packageIndices, liveCoverage, highlightsCoverage,
+            combination.getType() == BestCombination.CombinationType.SEQUENTIAL, combination.getTotalCost(),
+            combination.getCoveragePercentage(), combination.getPrunedPackages(), periodStarts, periodEnds, periodCosts, periodPackages, coveredGames);
+    }
+}
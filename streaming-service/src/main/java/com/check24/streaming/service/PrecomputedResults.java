@@ -0,0 +1,163 @@
+package com.check24.streaming.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.stereotype.Service;
+
+import com.check24.streaming.model.BestCombination;
+import com.check24.streaming.model.BestCombination.PackagePeriod;
+import com.check24.streaming.model.Game;
+import com.check24.streaming.model.StreamingPackageDTO;
+
+/**
+ * Materialized /api/search and /api/best-combination results for every selection of exactly one team or exactly
+ * one tournament without a time window, which is what most requests ask for. The results are computed ahead of time by PrecomputeJob.
+ *
+ * Results are stored in compact form (package indices, coverage values, package positions per period and a bitset
+ * over the entity's games) and only turned into response objects on a hit. They belong to one dataset version:
+ * lookups against any other version miss until the job has caught up.
+ */
+@Service
+public class PrecomputedResults
+{
+    /**
+     * Results of one team or tournament.
+     * @param packageIndices Relevant packages in search order
+     * @param liveCoverage Live coverage per relevant package
+     * @param highlightsCoverage Highlights coverage per relevant package
+     * @param sequential Whether the best combination is a sequential (per month) one
+     * @param totalCost Total cost of the best combination
+     * @param coveragePercentage Covered share of the entity's games
+     * @param prunedPackages Number of dominated packages left out of the combination
+     * @param periodStarts Start month of each period, "" for a static combination
+     * @param periodEnds End month of each period
+     * @param periodCosts Cost of each period
+     * @param periodPackages Positions within the relevant packages of each period's packages, in selection order
+     * @param coveredGames Bitset over positions in the entity's sorted game indices, set for covered games
+     */
+    record Entry(int[] packageIndices, double[] liveCoverage, double[] highlightsCoverage,
+                 boolean sequential, double totalCost, double coveragePercentage, int prunedPackages,
+                 String[] periodStarts, String[] periodEnds, double[] periodCosts, int[][] periodPackages,
+                 long[] coveredGames) {}
+
+    /**
+     * All entries of one dataset version, indexed like the dataset's team and tournament rows.
+     * A null entry means the entity was not materialized.
+     */
+    record Snapshot(long datasetVersion, Entry[] teams, Entry[] tournaments) {}
+
+    private volatile Snapshot snapshot;
+
+    void publish(Snapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /** @return Number of materialized selections for the dataset version, 0 if they are not ready for it */
+    public int size(Dataset dataset) {
+        Snapshot current = snapshot;
+        if (current == null || current.datasetVersion() != dataset.getVersion()) return 0;
+        int size = 0;
+        for (Entry entry : current.teams()) if (entry != null) size++;
+        for (Entry entry : current.tournaments()) if (entry != null) size++;
+        return size;
+    }
+
+    /**
+     * @return The relevant packages of the selection as searchByTeamsAndTournaments would return them,
+     *         or null if the selection is not materialized for this dataset version
+     */
+    List<StreamingPackageDTO> search(Dataset dataset, Selection selection) {
+        Entry entry = find(dataset, selection);
+        return entry == null ? null : packagesOf(dataset, entry);
+    }
+
+    /**
+     * Answers a best combination request from the materialized result. This only applies when the request asks for
+     * exactly the packages of the selection's search result, in search order; their prices and coverage come from
+     * the same dataset version, so they are all the combination depends on.
+     *
+     * @param packageIds Streaming package ids of the request
+     * @return The best combination, or null if the request cannot be answered from the materialized results
+     */
+    BestCombination bestCombination(Dataset dataset, Selection selection, List<Integer> packageIds) {
+        Entry entry = find(dataset, selection);
+        if (entry == null || !matches(dataset, entry, packageIds)) return null;
+        List<StreamingPackageDTO> packages = packagesOf(dataset, entry);
+
+        boolean team = !selection.teams().isEmpty();
+        String name = team ? selection.teams().get(0) : selection.tournaments().get(0);
+        int[] entityGames = team ? dataset.getGamesByTeam(name) : dataset.getGamesByTournament(name);
+        List<Game> covered = new ArrayList<>();
+        List<Game> uncovered = new ArrayList<>();
+        for (int i = 0; i < entityGames.length; i++) {
+            (Bits.get(entry.coveredGames(), i) ? covered : uncovered).add(dataset.getGame(entityGames[i]));
+        }
+        Map<String, List<Game>> coveredGames = new HashMap<>();
+        coveredGames.put(name, covered);
+        Map<String, List<Game>> uncoveredGames = new HashMap<>();
+        uncoveredGames.put(name, uncovered);
+
+        BestCombination combination;
+        if (!entry.sequential()) {
+            combination = new BestCombination(entry.totalCost(), packagesAt(packages, entry.periodPackages()[0]),
+                coveredGames, uncoveredGames, entry.coveragePercentage());
+            combination.setPrunedPackages(entry.prunedPackages());
+            return combination;
+        }
+        List<PackagePeriod> periods = new ArrayList<>();
+        for (int p = 0; p < entry.periodStarts().length; p++) {
+            periods.add(new PackagePeriod(entry.periodStarts()[p], entry.periodEnds()[p],
+                packagesAt(packages, entry.periodPackages()[p]), entry.periodCosts()[p]));
+        }
+        combination = new BestCombination(entry.totalCost(), periods, coveredGames, uncoveredGames, entry.coveragePercentage());
+        combination.setPrunedPackages(entry.prunedPackages());
+        return combination;
+    }
+
+    private Entry find(Dataset dataset, Selection selection) {
+        Snapshot current = snapshot;
+        if (current == null || current.datasetVersion() != dataset.getVersion() || !selection.window().isAll()) return null;
+        if (selection.teams().size() == 1 && selection.tournaments().isEmpty()) {
+            int row = dataset.getTeamIndex(selection.teams().get(0));
+            return row < 0 ? null : current.teams()[row];
+        }
+        if (selection.tournaments().size() == 1 && selection.teams().isEmpty()) {
+            int row = dataset.getTournamentIndex(selection.tournaments().get(0));
+            return row < 0 ? null : current.tournaments()[row];
+        }
+        return null;
+    }
+
+    private static boolean matches(Dataset dataset, Entry entry, List<Integer> packageIds) {
+        if (packageIds.size() != entry.packageIndices().length) return false;
+        for (int i = 0; i < packageIds.size(); i++) {
+            if (packageIds.get(i) != dataset.getPackageByIndex(entry.packageIndices()[i]).getStreamingPackageId()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The relevant packages of an entry in search order
+    private static List<StreamingPackageDTO> packagesOf(Dataset dataset, Entry entry) {
+        List<StreamingPackageDTO> packages = new ArrayList<>(entry.packageIndices().length);
+        for (int i = 0; i < entry.packageIndices().length; i++) {
+            packages.add(StreamingPackageDTO.fromStreamingPackage(dataset.getPackageByIndex(entry.packageIndices()[i]),
+                entry.liveCoverage()[i], entry.highlightsCoverage()[i]));
+        }
+        return List.copyOf(packages);
+    }
+
+    private static Set<StreamingPackageDTO> packagesAt(List<StreamingPackageDTO> packages, int[] positions) {
+        Set<StreamingPackageDTO> result = new LinkedHashSet<>();
+        for (int position : positions) {
+            result.add(packages.get(position));
+        }
+        return result;
+    }
+}
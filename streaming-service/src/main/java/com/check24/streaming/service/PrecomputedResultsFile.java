@@ -0,0 +1,154 @@
+package com.check24.streaming.service;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import com.check24.streaming.service.PrecomputedResults.Entry;
+import com.check24.streaming.service.PrecomputedResults.Snapshot;
+
+/**
+ * Binary file holding the precomputed single team and single tournament results, so later starts can skip
+ * the precomputation.
+ *
+ * Layout (big endian), framed like DatasetSnapshotFile:
+ * - header: magic, format version, content fingerprint of the dataset, payload length, CRC32 of the payload
+ * - payload: number of teams and tournaments, then one entry per team row and tournament row, each starting
+ *   with a presence flag, every array prefixed with its length
+ *
+ * The fingerprint covers the complete dataset content, so the file is also reused after a reload or an offer
+ * delta that ends up with the same data. FORMAT_VERSION must be increased whenever search or best combination
+ * results change for the same data, otherwise stale results would be served.
+ */
+final class PrecomputedResultsFile
+{
+    private static final int MAGIC = 0x53435052; // "SCPR"
+    private static final int FORMAT_VERSION = 4;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 8;
+
+    private PrecomputedResultsFile() {}
+
+    /**
+     * Writes the results to a temporary file next to the target and atomically moves it into place.
+     * @param snapshot Results to persist
+     * @param fingerprint DatasetSnapshotFile.contentFingerprint of the dataset the results were computed on
+     * @param path Target file
+     */
+    public static void write(Snapshot snapshot, long fingerprint, Path path) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            CRC32 crc = new CRC32();
+            try (OutputStream file = Files.newOutputStream(temp)) {
+                file.write(new byte[HEADER_BYTES]); // placeholder, rewritten once the payload checksum is known
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(file, crc), 1 << 16));
+                out.writeInt(snapshot.teams().length);
+                out.writeInt(snapshot.tournaments().length);
+                for (Entry entry : snapshot.teams()) writeEntry(out, entry);
+                for (Entry entry : snapshot.tournaments()) writeEntry(out, entry);
+                out.flush();
+            }
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(fingerprint)
+                    .putLong(channel.size() - HEADER_BYTES).putLong(crc.getValue()).flip();
+                channel.write(header, 0);
+                channel.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * @param path Results file
+     * @param fingerprint Content fingerprint of the current dataset
+     * @param datasetVersion Version to assign to the results
+     * @return The results, or null if the file is missing, stale or corrupt
+     */
+    public static Snapshot read(Path path, long fingerprint, long datasetVersion) throws IOException {
+        if (!Files.isRegularFile(path)) return null;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) return null;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION || buffer.getLong() != fingerprint) return null;
+            long payloadLength = buffer.getLong();
+            long payloadCrc = buffer.getLong();
+            if (payloadLength != channel.size() - HEADER_BYTES) return null;
+
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice());
+            if (crc.getValue() != payloadCrc) return null;
+
+            Entry[] teams = new Entry[buffer.getInt()];
+            Entry[] tournaments = new Entry[buffer.getInt()];
+            for (int i = 0; i < teams.length; i++) teams[i] = readEntry(buffer);
+            for (int i = 0; i < tournaments.length; i++) tournaments[i] = readEntry(buffer);
+            return new Snapshot(datasetVersion, teams, tournaments);
+        }
+    }
+
+    private static void writeEntry(DataOutputStream out, Entry entry) throws IOException {
+        out.writeBoolean(entry != null);
+        if (entry == null) return;
+        DatasetSnapshotFile.writeInts(out, entry.packageIndices());
+        writeDoubles(out, entry.liveCoverage());
+        writeDoubles(out, entry.highlightsCoverage());
+        out.writeBoolean(entry.sequential());
+        out.writeDouble(entry.totalCost());
+        out.writeDouble(entry.coveragePercentage());
+        out.writeInt(entry.prunedPackages());
+        DatasetSnapshotFile.writeStrings(out, entry.periodStarts());
+        DatasetSnapshotFile.writeStrings(out, entry.periodEnds());
+        writeDoubles(out, entry.periodCosts());
+        out.writeInt(entry.periodPackages().length);
+        for (int[] positions : entry.periodPackages()) DatasetSnapshotFile.writeInts(out, positions);
+        out.writeInt(entry.coveredGames().length);
+        for (long word : entry.coveredGames()) out.writeLong(word);
+    }
+
+    private static Entry readEntry(ByteBuffer in) {
+        if (in.get() == 0) return null;
+        int[] packageIndices = DatasetSnapshotFile.readInts(in);
+        double[] liveCoverage = readDoubles(in);
+        double[] highlightsCoverage = readDoubles(in);
+        boolean sequential = in.get() != 0;
+        double totalCost = in.getDouble();
+        double coveragePercentage = in.getDouble();
+        int prunedPackages = in.getInt();
+        String[] periodStarts = DatasetSnapshotFile.readStrings(in);
+        String[] periodEnds = DatasetSnapshotFile.readStrings(in);
+        double[] periodCosts = readDoubles(in);
+        int[][] periodPackages = new int[in.getInt()][];
+        for (int p = 0; p < periodPackages.length; p++) periodPackages[p] = DatasetSnapshotFile.readInts(in);
+        long[] coveredGames = new long[in.getInt()];
+        in.asLongBuffer().get(coveredGames);
+        in.position(in.position() + 8 * coveredGames.length);
+        return new Entry(packageIndices, liveCoverage, highlightsCoverage, sequential, totalCost, coveragePercentage,
+            prunedPackages, periodStarts, periodEnds, periodCosts, periodPackages, coveredGames);
+    }
+
+    private static void writeDoubles(DataOutputStream out, double[] values) throws IOException {
+        out.writeInt(values.length);
+        for (double value : values) out.writeDouble(value);
+    }
+
+    private static double[] readDoubles(ByteBuffer in) {
+        double[] values = new double[in.getInt()];
+        in.asDoubleBuffer().get(values);
+        in.position(in.position() + 8 * values.length);
+        return values;
+    }
+}
@@ -0,0 +1,124 @@
+package com.check24.streaming.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import com.check24.streaming.model.CacheStats;
+
+/**
+ * Bounded LRU cache for computed responses, scoped to one dataset version.
+ *
+ * Entries are weighed with an approximate byte size and the least recently used ones are evicted once the total
+ * weight exceeds the limit. Entries also expire after a fixed time. When a request arrives for a newer dataset
+ * version, everything cached for the old version is dropped, so keys never need to contain the version.
+ *
+ * The critical sections are a few map operations, so a single lock is used; values are computed outside of it.
+ * Two concurrent misses for the same key may both compute the value, the second result replaces the first.
+ */
+final class ResultCache<K, V>
+{
+    private final long ttlNanos;
+    private final long maxWeight; /** Approximate bytes, 0 disables the cache */
+    private final ToLongFunction<V> weigher;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long version = Long.MIN_VALUE;
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    /**
+     * @param ttlSeconds Time after which an entry is no longer served
+     * @param maxWeight Approximate memory limit in bytes, 0 to disable caching
+     * @param weigher Approximate size of a value in bytes
+     */
+    ResultCache(long ttlSeconds, long maxWeight, ToLongFunction<V> weigher) {
+        this.ttlNanos = ttlSeconds * 1_000_000_000L;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    /**
+     * Returns the cached value for the key, computing and caching it on a miss.
+     * @param datasetVersion Version of the dataset the value is computed from
+     */
+    public V get(long datasetVersion, K key, Function<K, V> compute) {
+        V value = getIfPresent(datasetVersion, key);
+        if (value == null) {
+            value = compute.apply(key);
+            put(datasetVersion, key, value);
+        }
+        return value;
+    }
+
+    /** @return The cached value, or null on a miss */
+    public synchronized V getIfPresent(long datasetVersion, K key) {
+        if (maxWeight <= 0 || datasetVersion < version) {
+            misses++;
+            return null;
+        }
+        switchVersion(datasetVersion);
+        Entry<V> entry = entries.get(key);
+        if (entry != null && System.nanoTime() - entry.createdAt > ttlNanos) {
+            remove(key, entry);
+            expirations++;
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    public synchronized void put(long datasetVersion, K key, V value) {
+        if (maxWeight <= 0 || value == null || datasetVersion < version) {
+            return;
+        }
+        switchVersion(datasetVersion);
+        long entryWeight = weigher.applyAsLong(value);
+        if (entryWeight > maxWeight) {
+            return;
+        }
+        Entry<V> previous = entries.put(key, new Entry<>(value, entryWeight, System.nanoTime()));
+        if (previous != null) {
+            weight -= previous.weight;
+        }
+        weight += entryWeight;
+
+        // Access order: the head of the map is the least recently used entry
+        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+        while (weight > maxWeight && iterator.hasNext()) {
+            Entry<V> eldest = iterator.next().getValue();
+            iterator.remove();
+            weight -= eldest.weight;
+            evictions++;
+        }
+    }
+
+    public synchronized CacheStats stats() {
+        return new CacheStats(hits, misses, evictions, expirations, entries.size(), weight, maxWeight);
+    }
+
+    private void switchVersion(long datasetVersion) {
+        if (datasetVersion > version) {
+            evictions += entries.size();
+            entries.clear();
+            weight = 0;
+            version = datasetVersion;
+        }
+    }
+
+    private void remove(K key, Entry<V> entry) {
+        entries.remove(key);
+        weight -= entry.weight;
+    }
+
+    private record Entry<V>(V value, long weight, long createdAt) {}
+}
@@ -0,0 +1,72 @@
+package com.check24.streaming.service;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.check24.streaming.model.StreamingPackageDTO;
+
+/**
+ * Short-lived server-side store for search results, addressed by random, unguessable ids.
+ *
+ * All entries live for the same time, so insertion order is also expiry order: ids are queued as they are added
+ * and expired or surplus entries are dropped from the head of the queue whenever a new result is stored.
+ */
+final class SearchResultStore
+{
+    private final long ttlNanos;
+    private final int capacity;
+    private final Map<String, StoredSearch> results = new ConcurrentHashMap<>();
+    private final Queue<String> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final SecureRandom random = new SecureRandom();
+
+    SearchResultStore(long ttlSeconds, int capacity) {
+        this.ttlNanos = ttlSeconds * 1_000_000_000L;
+        this.capacity = capacity;
+    }
+
+    /** @return The id under which the result can be fetched until it expires */
+    public String put(StoredSearch search) {
+        byte[] bytes = new byte[16];
+        random.nextBytes(bytes);
+        String id = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        results.put(id, search);
+        insertionOrder.add(id);
+        evict(search.createdAt());
+        return id;
+    }
+
+    /** @return The stored result, or null if the id is unknown or has expired */
+    public StoredSearch get(String id) {
+        StoredSearch search = id == null ? null : results.get(id);
+        if (search == null || System.nanoTime() - search.createdAt() > ttlNanos) {
+            return null;
+        }
+        return search;
+    }
+
+    private void evict(long now) {
+        String oldest;
+        while ((oldest = insertionOrder.peek()) != null) {
+            StoredSearch search = results.get(oldest);
+            boolean expired = search == null || now - search.createdAt() > ttlNanos;
+            if (!expired && results.size() <= capacity) {
+                return;
+            }
+            if (insertionOrder.remove(oldest)) {
+                results.remove(oldest);
+            }
+        }
+    }
+
+    /**
+     * A search result with the sort keys of every package extracted once, so filter requests only compare primitives.
+     * bestCoverage is the larger of live and highlights coverage. All arrays are indexed by the package's position in the original result.
+     */
+    record StoredSearch(long createdAt, long datasetVersion, StreamingPackageDTO[] packages,
+                        double[] monthlyPrices, double[] liveCoverage, double[] highlightsCoverage,
+                        double[] bestCoverage) {}
+}
@@ -0,0 +1,23 @@
+package com.check24.streaming.service;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Canonical form of a team/tournament selection: sorted and without duplicates, so selections that only differ
+ * in order or repetition share cache entries and are computed identically. The time window is part of the selection.
+ */
+record Selection(List<String> teams, List<String> tournaments, TimeWindow window)
+{
+    static Selection of(List<String> teams, List<String> tournaments) {
+        return of(teams, tournaments, TimeWindow.ALL);
+    }
+
+    static Selection of(List<String> teams, List<String> tournaments, TimeWindow window) {
+        return new Selection(canonical(teams), canonical(tournaments), window);
+    }
+
+    private static List<String> canonical(List<String> names) {
+        return names == null ? List.of() : names.stream().filter(Objects::nonNull).distinct().sorted().toList();
+    }
+}
@@ -0,0 +1,127 @@
+package com.check24.streaming.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Chooses how to pay for the packages a sequential combination needs month by month: monthly subscriptions,
+ * which may run on through months without need, or yearly subscriptions billed for 12 consecutive months at the
+ * package's yearly subscription price. An optional switching cost is charged for every subscription that is
+ * started, which favours keeping a subscription over cancelling and resubscribing. Packages that cannot be booked
+ * monthly (infinite monthly price) are always billed yearly, whether or not yearly subscriptions are allowed otherwise.
+ *
+ * Packages are planned independently with a dynamic program over the months, so the runtime is linear in the
+ * number of months and packages. The switching cost only steers the plan and is not part of the subscription costs.
+ */
+final class SubscriptionPlanner
+{
+    static final int YEAR = 12;
+
+    /**
+     * One subscription of one package.
+     * @param position Position of the package in the request
+     * @param firstMonth First month, as offset from the first planned month
+     * @param lastMonth Last month (inclusive); a yearly subscription may end after the last planned month
+     * @param yearly Whether this is a yearly subscription
+     * @param costCents Price of the subscription over all its months
+     */
+    record Subscription(int position, int firstMonth, int lastMonth, boolean yearly, double costCents) {}
+
+    // State a transition started from: no monthly subscription in the previous month, or a monthly one
+    private static final byte FROM_NONE = 0, FROM_MONTHLY = 1;
+
+    private SubscriptionPlanner() {}
+
+    /**
+     * @param needed Per package position: bitset over month offsets in which the package is part of the combination
+     * @param monthCount Number of planned months
+     * @param monthlyCents Monthly price of every package, positive infinity if it has no monthly subscription
+     * @param yearlyCents Monthly price of every package under a yearly subscription, 0 if there is none
+     * @param allowYearly Whether yearly subscriptions may be used for packages that also have a monthly subscription
+     * @param switchingCostCents Cost charged for every started subscription
+     * @return The cheapest subscriptions, ordered by first month, last month, monthly before yearly and position
+     */
+    static List<Subscription> plan(long[][] needed, int monthCount, double[] monthlyCents, double[] yearlyCents,
+                                   boolean allowYearly, double switchingCostCents) {
+        List<Subscription> subscriptions = new ArrayList<>();
+        for (int position = 0; position < needed.length; position++) {
+            if (needed[position] == null || Bits.nextSetBit(needed[position], 0) < 0) continue;
+            boolean yearly = (allowYearly || monthlyCents[position] == Double.POSITIVE_INFINITY) && yearlyCents[position] > 0;
+            plan(position, needed[position], monthCount, monthlyCents[position], yearly ? YEAR * yearlyCents[position] : -1,
+                switchingCostCents, subscriptions);
+        }
+        subscriptions.sort(Comparator.comparingInt(Subscription::firstMonth).thenComparingInt(Subscription::lastMonth)
+            .thenComparing(Subscription::yearly).thenComparingInt(Subscription::position));
+        return subscriptions;
+    }
+
+    /**
+     * none[m] and monthly[m] are the cheapest costs of the months before m, ending without respectively with a
+     * monthly subscription in month m - 1. A month is either skipped (only if not needed) or paid monthly, and
+     * a yearly subscription jumps from month m to m + 12. Ties keep the first transition in that order, so
+     * unneeded months are not paid and monthly is preferred over yearly; a running monthly subscription is
+     * continued rather than restarted.
+     *
+     * @param yearCents Price of a yearly subscription, negative if there is none
+     */
+    private static void plan(int position, long[] needed, int monthCount, double monthCents, double yearCents,
+                             double switchingCostCents, List<Subscription> subscriptions) {
+        double[] none = new double[monthCount + 1];
+        double[] monthly = new double[monthCount + 1];
+        byte[] noneFrom = new byte[monthCount + 1];
+        int[] noneYearStart = new int[monthCount + 1]; // Start month of the yearly subscription ending here, -1 for a skipped month
+        byte[] monthlyFrom = new byte[monthCount + 1];
+        Arrays.fill(none, Double.POSITIVE_INFINITY);
+        Arrays.fill(monthly, Double.POSITIVE_INFINITY);
+        Arrays.fill(noneYearStart, -1);
+        none[0] = 0;
+
+        for (int month = 0; month < monthCount; month++) {
+            boolean fromMonthly = monthly[month] < none[month];
+            double best = fromMonthly ? monthly[month] : none[month];
+            if (!Bits.get(needed, month) && best < none[month + 1]) {
+                none[month + 1] = best;
+                noneFrom[month + 1] = fromMonthly ? FROM_MONTHLY : FROM_NONE;
+                noneYearStart[month + 1] = -1;
+            }
+            double started = none[month] + switchingCostCents + monthCents;
+            double continued = monthly[month] + monthCents;
+            if (Math.min(started, continued) < monthly[month + 1]) {
+                monthly[month + 1] = Math.min(started, continued);
+                monthlyFrom[month + 1] = continued <= started ? FROM_MONTHLY : FROM_NONE;
+            }
+            int end = Math.min(month + YEAR, monthCount);
+            if (yearCents >= 0 && best + switchingCostCents + yearCents < none[end]) {
+                none[end] = best + switchingCostCents + yearCents;
+                noneFrom[end] = fromMonthly ? FROM_MONTHLY : FROM_NONE;
+                noneYearStart[end] = month;
+            }
+        }
+
+        // Walk back from the cheaper final state and collect the subscriptions
+        boolean inMonthly = monthly[monthCount] < none[monthCount];
+        int month = monthCount;
+        int runEnd = -1;
+        while (month > 0) {
+            if (inMonthly) {
+                if (runEnd < 0) runEnd = month - 1;
+                inMonthly = monthlyFrom[month] == FROM_MONTHLY;
+                if (!inMonthly) {
+                    subscriptions.add(new Subscription(position, month - 1, runEnd, false, (runEnd - month + 2) * monthCents));
+                    runEnd = -1;
+                }
+                month--;
+            } else if (noneYearStart[month] >= 0) {
+                int start = noneYearStart[month];
+                subscriptions.add(new Subscription(position, start, start + YEAR - 1, true, yearCents));
+                inMonthly = noneFrom[month] == FROM_MONTHLY;
+                month = start;
+            } else {
+                inMonthly = noneFrom[month] == FROM_MONTHLY;
+                month--;
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.check24.streaming.service;
+
+import java.time.LocalDate;
+
+/**
+ * Restriction of a selection to the games starting on or after from and on or before to (whole days, in the
+ * local time of the game start times). Either bound may be open; ALL places no restriction at all.
+ * @param fromMinute First start minute inside the window
+ * @param toMinute First start minute after the window
+ */
+record TimeWindow(int fromMinute, int toMinute)
+{
+    static final TimeWindow ALL = new TimeWindow(Integer.MIN_VALUE, Integer.MAX_VALUE);
+
+    /**
+     * @param from First day of the window, null for no lower bound
+     * @param to Last day of the window (inclusive), null for no upper bound
+     */
+    static TimeWindow of(LocalDate from, LocalDate to) {
+        if (from == null && to == null) {
+            return ALL;
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        return new TimeWindow(from == null ? Integer.MIN_VALUE : startMinute(from),
+            to == null ? Integer.MAX_VALUE : startMinute(to.plusDays(1)));
+    }
+
+    boolean isAll() {
+        return fromMinute == Integer.MIN_VALUE && toMinute == Integer.MAX_VALUE;
+    }
+
+    private static int startMinute(LocalDate day) {
+        return (int) Math.max(Integer.MIN_VALUE + 1, Math.min(Integer.MAX_VALUE - 1, day.toEpochDay() * 24 * 60));
+    }
+}
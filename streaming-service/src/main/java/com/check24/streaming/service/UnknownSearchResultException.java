@@ -0,0 +1,12 @@
+package com.check24.streaming.service;
+
+/**
+ * Thrown for a search result id that is unknown or has expired (SearchResultStore). Clients can recover by
+ * searching again, so it is answered with 410 Gone instead of the 400 of other invalid arguments.
+ */
+public class UnknownSearchResultException extends IllegalArgumentException
+{
+    public UnknownSearchResultException(String resultId) {
+        super("Search result " + resultId + " is unknown or has expired, please search again");
+    }
+}
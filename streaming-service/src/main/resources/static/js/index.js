@@ -1,35 +1,24 @@
+const LOOKUP_LIMIT = 50;
+
 $(document).ready(function() {
-    $('.select2').select2({
-        width: '100%',
-        placeholder: 'Select options...'
-    });
-    
-    fetchTeams();
-    fetchTournaments();
+    initLookup('#teamSelect', '/api/teams');
+    initLookup('#tournamentSelect', '/api/tournaments');
 });
 
-function fetchTeams() {
-    fetch('/api/teams')
-        .then(response => response.json())
-        .then(teams => {
-            const teamSelect = document.getElementById('teamSelect');
-            teams.forEach(team => {
-                const option = new Option(team, team);
-                teamSelect.appendChild(option);
-            });
-        });
-}
-
-function fetchTournaments() {
-    fetch('/api/tournaments')
-        .then(response => response.json())
-        .then(tournaments => {
-            const tournamentSelect = document.getElementById('tournamentSelect');
-            tournaments.forEach(tournament => {
-                const option = new Option(tournament, tournament);
-                tournamentSelect.appendChild(option);
-            });
-        });
+// Options are fetched from the prefix lookup while typing instead of loading every name up front
+function initLookup(selector, url) {
+    $(selector).select2({
+        width: '100%',
+        placeholder: 'Select options...',
+        ajax: {
+            url: url,
+            delay: 150,
+            data: params => ({ prefix: params.term || '', limit: LOOKUP_LIMIT }),
+            processResults: names => ({
+                results: names.map(name => ({ id: name, text: name }))
+            })
+        }
+    });
 }
 
 function findPackages() {
@@ -1,9 +1,11 @@
 /**
  * Global state for packages and selected packages
  * packages: Stores all available packages from initial search
+ * searchResultId: Server-side handle of the search, used by /api/filter
  * selectedPackages: Tracks user-selected packages for comparison
  */
 let packages = [];
+let searchResultId = null;
 let selectedPackages = new Set();
 
 $(document).ready(function() {
@@ -26,7 +28,7 @@ $(document).ready(function() {
 function searchPackages(teams, tournaments) {
     console.log('Searching packages for teams:', teams, 'tournaments:', tournaments);
     
-    fetch('/api/search', {
+    return fetch('/api/search', {
         method: 'POST',
         headers: {
             'Content-Type': 'application/json'
@@ -47,8 +49,9 @@ function searchPackages(teams, tournaments) {
     })
     .then(data => {
         console.log('Received packages:', data);
-        packages = data; // Store initial results
-        displayPackages(data);
+        packages = data.packages; // Store initial results
+        searchResultId = data.resultId;
+        displayPackages(packages);
         // Show filter section after initial results load
         document.querySelector('.filter-section').style.display = 'block';
     })
@@ -117,16 +120,16 @@ function setupFilterListeners() {
 
 }
 
-function applyFilters() {
+function applyFilters(retried = false) {
     if (!packages || packages.length === 0) {
         console.error('No packages available to filter');
         return;
     }
 
   
-    // Send both the current packages and filter options
+    // The packages stay on the server, only the search result id and the filter options are sent
     const requestBody = {
-        packages: packages,  
+        resultId: searchResultId,
         filterOptions: {
             sortingOption: filterState.sortingOption,
             preference: filterState.preference,
@@ -143,16 +146,27 @@ function applyFilters() {
     })
     .then(response => {
         if (!response.ok) {
-            throw new Error('Network response was not ok');
+            return response.text().then(text => {
+                const error = new Error(text);
+                error.status = response.status;
+                throw error;
+            });
         }
         return response.json();
     })
     .then(data => {
-        displayPackages(data);
+        displayPackages(data.packages);
     })
     .catch(error => {
+        if (error.status === 410 && !retried) {
+            // The search result expired on the server: search again and retry once
+            const selectedTeams = JSON.parse(sessionStorage.getItem('selectedTeams') || '[]');
+            const selectedTournaments = JSON.parse(sessionStorage.getItem('selectedTournaments') || '[]');
+            searchPackages(selectedTeams, selectedTournaments).then(() => applyFilters(true));
+            return;
+        }
         console.error('Error applying filters:', error);
-        alert('Error applying filters. Please try again.');
+        alert('Error applying filters: ' + error.message);
     });
 }
 
@@ -198,16 +212,6 @@ function displayPackages(receivedPackages) {
 function findBestCombination() {
     const selectedTeams = JSON.parse(sessionStorage.getItem('selectedTeams') || '[]');
     const selectedTournaments = JSON.parse(sessionStorage.getItem('selectedTournaments') || '[]');
-    const packageDTOs = packages.map(pkg => ({
-        streamingPackageId: pkg.streamingPackageId,
-        name: pkg.name,
-        monthlyPriceCents: pkg.monthlyPriceCents,
-        liveCoveragePercentage: pkg.liveCoveragePercentage,
-        highlightsCoveragePercentage: pkg.highlightsCoveragePercentage
-    }));
-
-
-    console.log('Original packages:', packages); // Log original packages
 
     // Check if packages exists and has data
     if (!packages || packages.length === 0) {
@@ -215,7 +219,8 @@ function findBestCombination() {
         alert('No packages available for comparison');
         return;
     }
-    console.log('Package DTOs:', packageDTOs);
+    // Only the ids are sent, prices and coverage are looked up on the server
+    const packageIds = packages.map(pkg => pkg.streamingPackageId);
 
     fetch('api/best-combination', {
         method: 'POST',
@@ -225,7 +230,7 @@ function findBestCombination() {
         body: JSON.stringify({
             teams: selectedTeams,
             tournaments : selectedTournaments,
-            packages: packageDTOs
+            packageIds: packageIds
         })
     })
     .then(response => {
@@ -0,0 +1,101 @@
+package com.check24.streaming.service;
+
+import java.util.Arrays;
+import java.util.function.IntToLongFunction;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Minimal timing harness for the test classes tagged Benchmark.TAG. They are left out of the regular test run
+ * and only run with the benchmark profile (mvn test -Pbenchmark).
+ *
+ * A measurement first runs warm-up rounds so the code is compiled, then times several rounds of a fixed duration
+ * and reports the median time per operation. Every batch returns a checksum that is folded into a volatile
+ * field, so the JIT cannot drop the measured work. Rounds can be tuned with -Dbenchmark.rounds,
+ * -Dbenchmark.warmup-rounds and -Dbenchmark.round-ms.
+ */
+final class Benchmark
+{
+    static final String TAG = "benchmark";
+
+    private static final Logger log = LoggerFactory.getLogger(Benchmark.class);
+
+    private static final int WARMUP_ROUNDS = Integer.getInteger("benchmark.warmup-rounds", 3);
+    private static final int ROUNDS = Integer.getInteger("benchmark.rounds", 5);
+    private static final long ROUND_NANOS = Long.getLong("benchmark.round-ms", 1000) * 1_000_000;
+
+    private static volatile long sink;
+
+    private Benchmark() {}
+
+    /**
+     * @param name Label of the measurement in the report
+     * @param batch Runs operations operations and returns a checksum of their results
+     * @param operations Number of operations one batch runs
+     * @return Median time per operation in microseconds
+     */
+    static double microsPerOp(String name, LongSupplier batch, int operations) {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            timeRound(batch, operations);
+        }
+        double[] rounds = new double[ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            rounds[round] = timeRound(batch, operations);
+        }
+        Arrays.sort(rounds);
+        double median = rounds[rounds.length / 2];
+        log.info("{}: {} us/op (rounds {} to {} us/op)", name, format(median), format(rounds[0]), format(rounds[rounds.length - 1]));
+        return median;
+    }
+
+    /**
+     * Times every operation on its own, for operations whose cost varies a lot between inputs.
+     * @param name Label of the measurement in the report
+     * @param operation Runs the i-th operation and returns a checksum of its result
+     * @param operations Number of distinct operations
+     * @return Time of each operation in microseconds, sorted ascending
+     */
+    static double[] distributionMicros(String name, IntToLongFunction operation, int operations) {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            for (int i = 0; i < operations; i++) sink += operation.applyAsLong(i);
+        }
+        double[] micros = new double[operations];
+        for (int i = 0; i < operations; i++) {
+            long start = System.nanoTime();
+            sink += operation.applyAsLong(i);
+            micros[i] = (System.nanoTime() - start) / 1e3;
+        }
+        Arrays.sort(micros);
+        log.info("{}: p50 {} us, p90 {} us, p99 {} us, max {} us over {} operations", name, format(percentile(micros, 0.5)),
+            format(percentile(micros, 0.9)), format(percentile(micros, 0.99)), format(micros[micros.length - 1]), operations);
+        return micros;
+    }
+
+    static void report(String message, Object... arguments) {
+        log.info(message, arguments);
+    }
+
+    /** @param sorted Values in ascending order */
+    static double percentile(double[] sorted, double quantile) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+    }
+
+    static String format(double micros) {
+        return String.format(micros < 10 ? "%.2f" : "%.1f", micros);
+    }
+
+    // Runs batches for ROUND_NANOS and returns microseconds per operation
+    private static double timeRound(LongSupplier batch, int operations) {
+        long start = System.nanoTime();
+        long batches = 0;
+        long elapsed;
+        do {
+            sink += batch.getAsLong();
+            batches++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ROUND_NANOS);
+        return elapsed / 1e3 / (batches * operations);
+    }
+}
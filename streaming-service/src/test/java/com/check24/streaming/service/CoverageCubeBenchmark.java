@@ -0,0 +1,101 @@
+package com.check24.streaming.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.check24.streaming.model.StreamingOffer;
+import com.check24.streaming.model.StreamingPackageDTO;
+
+/**
+ * Search over the coverage cube against the per request scan it replaced: for every package, selected entity and
+ * kind of coverage, every game of the entity is looked up in the offers. Runs on the bundled CSV files over random
+ * selections of up to five teams and two tournaments.
+ */
+@Tag(Benchmark.TAG)
+class CoverageCubeBenchmark
+{
+    @Test
+    void searchReadsTheCubeInsteadOfScanningOffers() {
+        DataService dataService = new DataService();
+        Dataset dataset = dataService.getDataset();
+        PackageFilterService packageFilterService = new PackageFilterService(dataService);
+        int[] gameIds = new int[dataset.getGameCount()];
+        for (int game = 0; game < gameIds.length; game++) gameIds[game] = dataset.getGame(game).getId();
+
+        Random random = new Random(2);
+        List<List<String>> teams = new ArrayList<>();
+        List<List<String>> tournaments = new ArrayList<>();
+        for (int selection = 0; selection < 200; selection++) {
+            teams.add(TestDatasets.randomNames(random, dataset.getAllTeams(), 1 + random.nextInt(5)));
+            tournaments.add(TestDatasets.randomNames(random, dataset.getAllTournaments(), random.nextInt(3)));
+        }
+
+        for (int selection = 0; selection < teams.size(); selection++) {
+            assertEquals(searchWithoutCube(dataset, gameIds, teams.get(selection), tournaments.get(selection)),
+                new ArrayList<>(packageFilterService.searchByTeamsAndTournaments(teams.get(selection), tournaments.get(selection))),
+                "selection " + selection);
+        }
+
+        Benchmark.report("Coverage cube: {} teams and {} tournaments x {} packages, {} bytes", dataset.getAllTeams().size(),
+            dataset.getAllTournaments().size(), dataset.getPackageCount(), dataset.getCoverageCubeBytes());
+        double scan = Benchmark.microsPerOp("search, offer scan per request", () -> {
+            long checksum = 0;
+            for (int selection = 0; selection < teams.size(); selection++) {
+                checksum += searchWithoutCube(dataset, gameIds, teams.get(selection), tournaments.get(selection)).size();
+            }
+            return checksum;
+        }, teams.size());
+        double cube = Benchmark.microsPerOp("search, coverage cube", () -> {
+            long checksum = 0;
+            for (int selection = 0; selection < teams.size(); selection++) {
+                checksum += packageFilterService.searchByTeamsAndTournaments(teams.get(selection), tournaments.get(selection)).size();
+            }
+            return checksum;
+        }, teams.size());
+        Benchmark.report("Coverage cube speedup: {}x", Benchmark.format(scan / cube));
+    }
+
+
+    // The search as computed before the cube, giving the same packages and coverage values
+    private static List<StreamingPackageDTO> searchWithoutCube(Dataset dataset, int[] gameIds, List<String> teams, List<String> tournaments) {
+        List<int[]> entities = new ArrayList<>();
+        teams.forEach(team -> entities.add(dataset.getGamesByTeam(team)));
+        tournaments.forEach(tournament -> entities.add(dataset.getGamesByTournament(tournament)));
+
+        List<StreamingPackageDTO> result = new ArrayList<>();
+        for (int pkg = 0; pkg < dataset.getPackageCount(); pkg++) {
+            int packageId = dataset.getPackageByIndex(pkg).getStreamingPackageId();
+            double live = 0;
+            double highlights = 0;
+            for (int[] games : entities) {
+                live += coverage(dataset, gameIds, games, packageId, true);
+                highlights += coverage(dataset, gameIds, games, packageId, false);
+            }
+            if (!entities.isEmpty() && live <= 0 && highlights <= 0) continue;
+            int numSources = entities.size();
+            result.add(StreamingPackageDTO.fromStreamingPackage(dataset.getPackageByIndex(pkg),
+                numSources > 0 ? live / numSources : 0.0, numSources > 0 ? highlights / numSources : 0.0));
+        }
+        return result;
+    }
+
+    private static double coverage(Dataset dataset, int[] gameIds, int[] games, int packageId, boolean live) {
+        if (games.length == 0) return 0.0;
+        int covered = 0;
+        for (int game : games) {
+            for (StreamingOffer offer : dataset.getOffersForGame(gameIds[game])) {
+                if (offer.getStreamingPackageId() == packageId && (live ? offer.isHasLive() : offer.isHasHighlights())) {
+                    covered++;
+                    break;
+                }
+            }
+        }
+        return (double) covered / games.length;
+    }
+}
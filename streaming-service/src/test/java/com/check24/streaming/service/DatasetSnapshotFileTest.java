@@ -0,0 +1,147 @@
+package com.check24.streaming.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.check24.streaming.model.CoveragePreference;
+
+class DatasetSnapshotFileTest
+{
+    private static final long[] STAMP = {647310, 1740096000000L, 376046, 1740096000000L, 1202, 1740096000000L};
+
+    @TempDir
+    Path directory;
+
+    private Dataset dataset;
+    private Path snapshot;
+
+    @BeforeEach
+    void writeSnapshot() throws IOException {
+        TestDatasets.write(directory, new Random(5), 16, 400, 30, 6);
+        dataset = new CsvDatasetLoader(directory).load(1);
+        snapshot = directory.resolve("dataset.snapshot");
+        DatasetSnapshotFile.write(dataset, STAMP, snapshot);
+    }
+
+    @Test
+    void readsBackTheWrittenDataset() throws IOException {
+        Dataset read = DatasetSnapshotFile.read(snapshot, STAMP, 7);
+
+        assertNotNull(read);
+        assertEquals(7, read.getVersion());
+        assertEquals(DatasetSnapshotFile.contentFingerprint(dataset), DatasetSnapshotFile.contentFingerprint(read));
+        assertEquals(dataset.getAllTeams(), read.getAllTeams());
+        assertEquals(dataset.getAllTournaments(), read.getAllTournaments());
+        assertEquals(dataset.getAllPackages(), read.getAllPackages());
+        assertEquals(dataset.getOfferCount(), read.getOfferCount());
+        for (int game = 0; game < dataset.getGameCount(); game++) {
+            assertEquals(dataset.getGame(game), read.getGame(game));
+            assertEquals(dataset.getMonthOrdinal(game), read.getMonthOrdinal(game));
+        }
+        assertEquals(dataset.getCoverageClassCount(), read.getCoverageClassCount());
+        for (CoveragePreference preference : new CoveragePreference[] {null, CoveragePreference.LIVE, CoveragePreference.HIGHLIGHTS}) {
+            for (int game = 0; game < dataset.getGameCount(); game++) {
+                assertEquals(dataset.getCoverageClass(preference, game), read.getCoverageClass(preference, game));
+            }
+            for (int pkg = 0; pkg < dataset.getPackageCount(); pkg++) {
+                assertArrayEquals(dataset.getOfferedGames(preference, pkg), read.getOfferedGames(preference, pkg));
+            }
+        }
+    }
+
+    @Test
+    void restoresTheDerivedIndexes() throws IOException {
+        Dataset read = DatasetSnapshotFile.read(snapshot, STAMP, 2);
+
+        Dataset.Indexes expected = dataset.indexes();
+        Dataset.Indexes actual = read.indexes();
+        assertArrayEquals(expected.monthOrdinals(), actual.monthOrdinals());
+        assertEquals(expected.firstMonth(), actual.firstMonth());
+        assertArrayEquals(expected.gamesByMonth(), actual.gamesByMonth());
+        assertArrayEquals(expected.gamesByTeamByTime(), actual.gamesByTeamByTime());
+        assertArrayEquals(expected.gamesByTournamentByTime(), actual.gamesByTournamentByTime());
+        assertArrayEquals(expected.coverageClasses(), actual.coverageClasses());
+        assertArrayEquals(expected.liveCoverageClasses(), actual.liveCoverageClasses());
+        assertArrayEquals(expected.highlightsCoverageClasses(), actual.highlightsCoverageClasses());
+        assertEquals(expected.coverageClassCount(), actual.coverageClassCount());
+        assertArrayEquals(expected.offeredClassesByPackage(), actual.offeredClassesByPackage());
+        for (NameIndex[] indexes : new NameIndex[][] {{expected.teamNameIndex(), actual.teamNameIndex()},
+                                                      {expected.tournamentNameIndex(), actual.tournamentNameIndex()}}) {
+            assertArrayEquals(indexes[0].nameKeys, indexes[1].nameKeys);
+            assertArrayEquals(indexes[0].nameOwners, indexes[1].nameOwners);
+            assertArrayEquals(indexes[0].wordKeys, indexes[1].wordKeys);
+            assertArrayEquals(indexes[0].wordOwners, indexes[1].wordOwners);
+        }
+
+        for (int month = dataset.getFirstMonth(); month < dataset.getFirstMonth() + dataset.getMonthCount(); month++) {
+            assertArrayEquals(dataset.getGamesInMonth(month), read.getGamesInMonth(month));
+        }
+        TimeWindow window = TimeWindow.of(LocalDate.of(2024, 9, 10), LocalDate.of(2024, 11, 20));
+        for (String team : dataset.getAllTeams()) {
+            assertArrayEquals(dataset.getGamesByTeam(team, window), read.getGamesByTeam(team, window));
+        }
+        assertEquals(dataset.searchTeams("team 1", 5), read.searchTeams("team 1", 5));
+        assertEquals(dataset.searchTournaments("tournamnet", 5), read.searchTournaments("tournamnet", 5));
+    }
+
+    @Test
+    void rejectsSnapshotsOfOtherSources() throws IOException {
+        for (int i = 0; i < STAMP.length; i++) {
+            long[] otherStamp = STAMP.clone();
+            otherStamp[i]++;
+            assertNull(DatasetSnapshotFile.read(snapshot, otherStamp, 2));
+        }
+    }
+
+    @Test
+    void stampsTheCsvFilesWithoutReadingThem() throws IOException {
+        CsvDatasetLoader loader = new CsvDatasetLoader(directory);
+        long[] stamp = loader.sourceStamp();
+        assertArrayEquals(stamp, loader.sourceStamp());
+        assertEquals(Files.size(directory.resolve(CsvDatasetLoader.OFFER_FILE)), stamp[2]);
+
+        Path packages = directory.resolve(CsvDatasetLoader.PACKAGE_FILE);
+        Files.setLastModifiedTime(packages, FileTime.fromMillis(stamp[5] + 2000));
+        long[] touched = loader.sourceStamp();
+        assertEquals(stamp[5] + 2000, touched[5]);
+
+        DatasetSnapshotFile.write(dataset, stamp, snapshot);
+        assertNotNull(DatasetSnapshotFile.read(snapshot, stamp, 2));
+        assertNull(DatasetSnapshotFile.read(snapshot, touched, 2));
+    }
+
+    @Test
+    void rejectsCorruptOrTruncatedSnapshots() throws IOException {
+        byte[] bytes = Files.readAllBytes(snapshot);
+
+        byte[] corrupt = bytes.clone();
+        corrupt[corrupt.length / 2] ^= 1;
+        Files.write(snapshot, corrupt);
+        assertNull(DatasetSnapshotFile.read(snapshot, STAMP, 2));
+
+        Files.write(snapshot, Arrays.copyOf(bytes, bytes.length - 1));
+        assertNull(DatasetSnapshotFile.read(snapshot, STAMP, 2));
+
+        Files.write(snapshot, Arrays.copyOf(bytes, 10));
+        assertNull(DatasetSnapshotFile.read(snapshot, STAMP, 2));
+    }
+
+    @Test
+    void returnsNullForAMissingSnapshot() throws IOException {
+        assertNull(DatasetSnapshotFile.read(directory.resolve("missing.snapshot"), STAMP, 2));
+    }
+}
@@ -0,0 +1,187 @@
+package com.check24.streaming.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.check24.streaming.model.StreamingPackageDTO;
+
+/**
+ * Compares ExactCoverSolver with a brute force over all subsets of the columns on small random instances.
+ */
+class ExactCoverSolverTest
+{
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    @Test
+    void findsTheCheapestCoverOnRandomInstances() {
+        Random random = new Random(17);
+        for (int instance = 0; instance < 300; instance++) {
+            int columnCount = 1 + random.nextInt(12);
+            int elementCount = 1 + random.nextInt(40);
+            double[] costs = randomCosts(random, columnCount, instance % 2 == 0);
+            long[][] columns = randomColumns(random, columnCount, elementCount);
+            long[] elements = allElements(elementCount);
+
+            ExactCoverSolver.Solution solution = ExactCoverSolver.solve(costs, columns, elements, allColumns(columns), NO_DEADLINE);
+            Optimum optimum = bruteForce(costs, columns, elements);
+
+            assertTrue(solution.optimal(), "instance " + instance);
+            assertTrue(covers(columns, elements, solution.columns()), "instance " + instance);
+            assertEquals(optimum.cost, solution.cost(), 1e-6, "instance " + instance);
+            assertEquals(optimum.cost, cost(costs, solution.columns()), 1e-6, "instance " + instance);
+            assertEquals(optimum.size, solution.columns().length, "instance " + instance);
+            assertEquals(solution.cost(), solution.lowerBound(), 1e-6, "instance " + instance);
+        }
+    }
+
+    @Test
+    void ignoresUnavailableColumnsAndUncoverableElements() {
+        double[] costs = {100, 1, 250, 300};
+        long[][] columns = {columnOf(0, 1), null, columnOf(1, 2), columnOf(2)};
+        long[] elements = columnOf(0, 1, 2, 5); // element 5 is offered by no column
+
+        ExactCoverSolver.Solution solution = ExactCoverSolver.solve(costs, columns, elements, new int[] {0, 2, 3}, NO_DEADLINE);
+
+        assertArrayEquals(new int[] {0, 2}, solution.columns());
+        assertEquals(350, solution.cost(), 1e-9);
+        assertTrue(solution.optimal());
+    }
+
+    @Test
+    void stopsWithTheInitialCoverAndAValidBoundWhenTheDeadlineHasPassed() {
+        Random random = new Random(3);
+        double[] costs = randomCosts(random, 10, true);
+        long[][] columns = randomColumns(random, 10, 30);
+        long[] elements = allElements(30);
+        int[] initial = allColumns(columns);
+
+        ExactCoverSolver.Solution solution = ExactCoverSolver.solve(costs, columns, elements, initial, System.nanoTime() - 1);
+
+        assertFalse(solution.optimal());
+        assertTrue(covers(columns, elements, solution.columns()));
+        assertTrue(solution.cost() <= cost(costs, initial) + 1e-9);
+        assertTrue(solution.lowerBound() <= bruteForce(costs, columns, elements).cost + 1e-6);
+    }
+
+    @Test
+    void reportsOnlyImprovingIncumbentsToTheListener() {
+        Random random = new Random(5);
+        for (int instance = 0; instance < 50; instance++) {
+            double[] costs = randomCosts(random, 12, true);
+            long[][] columns = randomColumns(random, 12, 40);
+            long[] elements = allElements(40);
+            int[] initial = allColumns(columns);
+            List<ExactCoverSolver.Solution> incumbents = new ArrayList<>();
+
+            ExactCoverSolver.Solution solution = ExactCoverSolver.solve(costs, columns, elements, initial, NO_DEADLINE, incumbents::add);
+
+            double optimum = bruteForce(costs, columns, elements).cost;
+            double previous = cost(costs, initial);
+            for (ExactCoverSolver.Solution incumbent : incumbents) {
+                assertTrue(incumbent.cost() < previous - 1e-9, "instance " + instance);
+                assertFalse(incumbent.optimal(), "instance " + instance);
+                assertTrue(incumbent.lowerBound() <= optimum + 1e-6, "instance " + instance);
+                assertTrue(covers(columns, elements, incumbent.columns()), "instance " + instance);
+                previous = incumbent.cost();
+            }
+            assertEquals(optimum, solution.cost(), 1e-6, "instance " + instance);
+            if (!incumbents.isEmpty()) assertEquals(previous, solution.cost(), 1e-6, "instance " + instance);
+        }
+    }
+
+    @Test
+    void paysYearlyOnlyPackagesTheirYearlyPrice() {
+        List<StreamingPackageDTO> packages = List.of(new StreamingPackageDTO(1, "Yearly only", 0, 1500, 100, 100),
+            new StreamingPackageDTO(2, "Monthly", 999, 0, 100, 100), new StreamingPackageDTO(3, "Free", 0, 0, 50, 50));
+        double[] costs = packages.stream().mapToDouble(PackageCombinationService::monthlyCostCents).toArray();
+        long[][] columns = {columnOf(0, 1, 2), columnOf(0, 1, 2), columnOf(0)};
+
+        ExactCoverSolver.Solution solution = ExactCoverSolver.solve(costs, columns, columnOf(0, 1, 2), new int[] {0}, NO_DEADLINE);
+
+        assertArrayEquals(new int[] {1}, solution.columns());
+        assertEquals(999, solution.cost(), 1e-9);
+        assertEquals(999, solution.lowerBound(), 1e-6);
+        assertTrue(solution.optimal());
+    }
+
+    // Cost and size of the cheapest, then smallest cover
+    private record Optimum(double cost, int size) {}
+
+    private static Optimum bruteForce(double[] costs, long[][] columns, long[] elements) {
+        int[] available = allColumns(columns);
+        Optimum best = null;
+        for (int subset = 0; subset < 1 << available.length; subset++) {
+            int chosenSubset = subset;
+            int[] chosen = IntStream.range(0, available.length).filter(i -> (chosenSubset >> i & 1) != 0).map(i -> available[i]).toArray();
+            if (!covers(columns, elements, chosen)) continue;
+            double cost = cost(costs, chosen);
+            if (best == null || cost < best.cost - 1e-9 || cost < best.cost + 1e-9 && chosen.length < best.size) {
+                best = new Optimum(cost, chosen.length);
+            }
+        }
+        return best;
+    }
+
+    // Whether the chosen columns cover every element that any column offers
+    private static boolean covers(long[][] columns, long[] elements, int[] chosen) {
+        long[] coverable = new long[elements.length];
+        long[] covered = new long[elements.length];
+        for (int j = 0; j < columns.length; j++) {
+            if (columns[j] != null) Bits.orAnd(coverable, elements, columns[j]);
+        }
+        for (int j : chosen) Bits.orAnd(covered, elements, columns[j]);
+        return Bits.isSubset(coverable, covered);
+    }
+
+    private static double cost(double[] costs, int[] chosen) {
+        double cost = 0;
+        for (int j : chosen) cost += costs[j];
+        return cost;
+    }
+
+    private static int[] allColumns(long[][] columns) {
+        return IntStream.range(0, columns.length).filter(j -> columns[j] != null).toArray();
+    }
+
+    // Whole cents, or fractional prices that make ties unlikely
+    private static double[] randomCosts(Random random, int columnCount, boolean integral) {
+        double[] costs = new double[columnCount];
+        for (int j = 0; j < columnCount; j++) {
+            costs[j] = random.nextInt(8) == 0 ? 0 : integral ? 100 * (1 + random.nextInt(30)) : 1 + random.nextDouble() * 3000;
+        }
+        return costs;
+    }
+
+    private static long[][] randomColumns(Random random, int columnCount, int elementCount) {
+        double density = 0.1 + random.nextDouble() * 0.4;
+        long[][] columns = new long[columnCount][];
+        for (int j = 0; j < columnCount; j++) {
+            columns[j] = Bits.create(elementCount);
+            for (int element = 0; element < elementCount; element++) {
+                if (random.nextDouble() < density) Bits.set(columns[j], element);
+            }
+        }
+        return columns;
+    }
+
+    private static long[] allElements(int elementCount) {
+        long[] elements = Bits.create(elementCount);
+        for (int element = 0; element < elementCount; element++) Bits.set(elements, element);
+        return elements;
+    }
+
+    private static long[] columnOf(int... elements) {
+        long[] column = Bits.create(64);
+        for (int element : elements) Bits.set(column, element);
+        return column;
+    }
+}
@@ -0,0 +1,78 @@
+package com.check24.streaming.service;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.check24.streaming.model.BestCombination;
+import com.check24.streaming.model.CombinationStrategy;
+import com.check24.streaming.model.StreamingPackageDTO;
+import com.check24.streaming.model.SubscriptionOptions;
+
+/**
+ * Solve time distribution of EXACT best combinations on the bundled CSV files, over random selections of one to
+ * five teams and up to two tournaments with the packages of their search result. Every request is timed on its
+ * own, with caches and precomputed results disabled and the default time budget of 2 s; GREEDY is timed the same
+ * way for comparison.
+ */
+@Tag(Benchmark.TAG)
+class ExactSolverBenchmark
+{
+    @Test
+    void exactCombinationsSolveWithinTheBudget() {
+        DataService dataService = new DataService();
+        Dataset dataset = dataService.getDataset();
+        ParallelEvaluation parallelEvaluation = new ParallelEvaluation();
+        PrecomputedResults precomputedResults = new PrecomputedResults();
+        PackageFilterService packageFilterService = new PackageFilterService(dataService, parallelEvaluation, precomputedResults,
+            600, 10_000, 300, 0, 1000);
+        PackageCombinationService packageCombinationService = new PackageCombinationService(dataService, packageFilterService,
+            parallelEvaluation, precomputedResults, 300, 0, 0, 2000);
+
+        Random random = new Random(17);
+        List<List<String>> teams = new ArrayList<>();
+        List<List<String>> tournaments = new ArrayList<>();
+        List<List<Integer>> packageIds = new ArrayList<>();
+        for (int selection = 0; selection < 200; selection++) {
+            List<String> selectedTeams = TestDatasets.randomNames(random, dataset.getAllTeams(), 1 + random.nextInt(5));
+            List<String> selectedTournaments = TestDatasets.randomNames(random, dataset.getAllTournaments(), random.nextInt(3));
+            teams.add(selectedTeams);
+            tournaments.add(selectedTournaments);
+            packageIds.add(packageFilterService.searchByTeamsAndTournaments(selectedTeams, selectedTournaments).stream()
+                .map(StreamingPackageDTO::getStreamingPackageId).toList());
+        }
+
+        int optimal = 0;
+        double savings = 0;
+        for (int selection = 0; selection < teams.size(); selection++) {
+            BestCombination greedy = combination(packageCombinationService, teams, tournaments, packageIds, selection, CombinationStrategy.GREEDY);
+            BestCombination exact = combination(packageCombinationService, teams, tournaments, packageIds, selection, CombinationStrategy.EXACT);
+            String message = "selection " + selection + ", teams " + teams.get(selection) + ", tournaments " + tournaments.get(selection);
+            assertTrue(exact.getTotalCost() <= greedy.getTotalCost() + 1e-9, message);
+            assertTrue(exact.getOptimalityGap() >= 0, message);
+            if (exact.getOptimalityGap() == 0) optimal++;
+            if (greedy.getTotalCost() > 0) savings += 1 - exact.getTotalCost() / greedy.getTotalCost();
+        }
+        Benchmark.report("EXACT proved {} of {} combinations optimal, {}% cheaper than GREEDY on average", optimal, teams.size(),
+            Benchmark.format(100 * savings / teams.size()));
+
+        Benchmark.distributionMicros("best combination, GREEDY", selection -> Double.doubleToLongBits(
+            combination(packageCombinationService, teams, tournaments, packageIds, selection, CombinationStrategy.GREEDY).getTotalCost()),
+            teams.size());
+        Benchmark.distributionMicros("best combination, EXACT", selection -> Double.doubleToLongBits(
+            combination(packageCombinationService, teams, tournaments, packageIds, selection, CombinationStrategy.EXACT).getTotalCost()),
+            teams.size());
+    }
+
+    private static BestCombination combination(PackageCombinationService packageCombinationService, List<List<String>> teams,
+                                               List<List<String>> tournaments, List<List<Integer>> packageIds, int selection,
+                                               CombinationStrategy strategy) {
+        return packageCombinationService.getBestPackageCombinations(teams.get(selection), tournaments.get(selection), null, null,
+            strategy, SubscriptionOptions.MONTHLY, null, packageIds.get(selection));
+    }
+}
@@ -0,0 +1,130 @@
+package com.check24.streaming.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.check24.streaming.model.BestCombination;
+import com.check24.streaming.model.Game;
+import com.check24.streaming.model.StreamingPackageDTO;
+
+/**
+ * Month bucketing of the sequential combination over the month index against the string keys it replaced, where
+ * every game's start time was split into "MM-YYYY" and the keys were sorted by splitting them again. Runs on the
+ * bundled CSV files over random selections of one to five teams, half of them with a tournament; the whole
+ * sequential combination is timed as well for scale.
+ */
+@Tag(Benchmark.TAG)
+class MonthBucketBenchmark
+{
+    @Test
+    void bucketsByMonthOrdinalInsteadOfStringKeys() {
+        DataService dataService = new DataService();
+        Dataset dataset = dataService.getDataset();
+        PackageFilterService packageFilterService = new PackageFilterService(dataService);
+        PackageCombinationService packageCombinationService = new PackageCombinationService(dataService);
+        Game[] gamesByIndex = new Game[dataset.getGameCount()];
+        for (int game = 0; game < gamesByIndex.length; game++) gamesByIndex[game] = dataset.getGame(game);
+
+        Random random = new Random(7);
+        List<List<String>> teams = new ArrayList<>();
+        List<List<String>> tournaments = new ArrayList<>();
+        List<long[]> games = new ArrayList<>();
+        List<Set<Game>> gameSets = new ArrayList<>();
+        List<Collection<StreamingPackageDTO>> packages = new ArrayList<>();
+        for (int selection = 0; selection < 50; selection++) {
+            List<String> selectedTeams = TestDatasets.randomTeams(random, dataset, 5);
+            List<String> selectedTournaments = random.nextBoolean()
+                ? List.of(dataset.getAllTournaments().get(random.nextInt(dataset.getAllTournaments().size()))) : List.of();
+            long[] selected = TestDatasets.gamesOf(dataset, selectedTeams);
+            for (String tournament : selectedTournaments) {
+                for (int game : dataset.getGamesByTournament(tournament)) Bits.set(selected, game);
+            }
+            Set<Game> gameSet = new HashSet<>();
+            for (int game = Bits.nextSetBit(selected, 0); game >= 0; game = Bits.nextSetBit(selected, game + 1)) gameSet.add(gamesByIndex[game]);
+            teams.add(selectedTeams);
+            tournaments.add(selectedTournaments);
+            games.add(selected);
+            gameSets.add(gameSet);
+            packages.add(packageFilterService.searchByTeamsAndTournaments(selectedTeams, selectedTournaments));
+        }
+
+        for (int selection = 0; selection < games.size(); selection++) {
+            Map<String, Set<Integer>> expected = new LinkedHashMap<>();
+            bucketByStringKeys(gameSets.get(selection)).forEach((month, monthGames) ->
+                expected.put(month, monthGames.stream().map(Game::getId).collect(Collectors.toSet())));
+            Map<String, Set<Integer>> actual = new LinkedHashMap<>();
+            long[][] gamesByMonth = packageCombinationService.mapGamesByMonth(dataset, games.get(selection));
+            for (int month = 0; month < gamesByMonth.length; month++) {
+                if (gamesByMonth[month] == null) continue;
+                Set<Integer> ids = new HashSet<>();
+                for (int game = Bits.nextSetBit(gamesByMonth[month], 0); game >= 0; game = Bits.nextSetBit(gamesByMonth[month], game + 1)) {
+                    ids.add(gamesByIndex[game].getId());
+                }
+                actual.put(Dataset.formatMonth(dataset.getFirstMonth() + month), ids);
+            }
+            assertEquals(List.copyOf(expected.keySet()), List.copyOf(actual.keySet()), "selection " + selection);
+            assertEquals(expected, actual, "selection " + selection);
+        }
+
+        Benchmark.microsPerOp("month buckets, string keys", () -> {
+            long checksum = 0;
+            for (Set<Game> gameSet : gameSets) checksum += bucketByStringKeys(gameSet).size();
+            return checksum;
+        }, gameSets.size());
+        // Like the sequential combination, the period label is formatted once per month with games
+        Benchmark.microsPerOp("month buckets, month index", () -> {
+            long checksum = 0;
+            for (long[] selected : games) {
+                long[][] gamesByMonth = packageCombinationService.mapGamesByMonth(dataset, selected);
+                for (int month = 0; month < gamesByMonth.length; month++) {
+                    if (gamesByMonth[month] != null) checksum += Dataset.formatMonth(dataset.getFirstMonth() + month).length();
+                }
+            }
+            return checksum;
+        }, games.size());
+        Benchmark.microsPerOp("sequential combination", () -> {
+            long checksum = 0;
+            for (int selection = 0; selection < games.size(); selection++) {
+                BestCombination combination = packageCombinationService.sequentialPackageCombination(teams.get(selection),
+                    tournaments.get(selection), packages.get(selection));
+                checksum += combination.getPackages().size();
+            }
+            return checksum;
+        }, games.size());
+    }
+
+    // The bucketing before the month index: "MM-YYYY" keys split from the start time and sorted by splitting them again
+    private static Map<String, Set<Game>> bucketByStringKeys(Set<Game> games) {
+        Map<String, Set<Game>> gamesByMonth = new HashMap<>();
+        for (Game game : games) {
+            String date = game.getStartTime().split(" ")[0];
+            String monthKey = date.split("-")[1] + "-" + date.split("-")[0];
+            gamesByMonth.computeIfAbsent(monthKey, k -> new HashSet<>()).add(game);
+        }
+        List<String> months = new ArrayList<>(gamesByMonth.keySet());
+        Collections.sort(months, (a, b) -> {
+            String[] partsA = a.split("-");
+            String[] partsB = b.split("-");
+            int yearCompare = partsA[1].compareTo(partsB[1]);
+            return yearCompare != 0 ? yearCompare : partsA[0].compareTo(partsB[0]);
+        });
+
+        Map<String, Set<Game>> buckets = new LinkedHashMap<>();
+        for (String month : months) buckets.put(month, gamesByMonth.get(month));
+        return buckets;
+    }
+}
@@ -0,0 +1,124 @@
+package com.check24.streaming.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class NameIndexTest
+{
+    private static final NameIndex TEAMS = new NameIndex(new String[] {
+        "FC Bayern München", "Bayer 04 Leverkusen", "Borussia Dortmund", "Borussia Mönchengladbach",
+        "Bayern München II", "1. FC Köln", "Hertha BSC", "Hamburger SV", "Werder Bremen", "SC Freiburg"
+    });
+
+    @Test
+    void listsNamesStartingWithTheQueryBeforeNamesWithALaterWordStartingWithIt() {
+        assertEquals(List.of("Bayer 04 Leverkusen", "Bayern München II", "FC Bayern München"), TEAMS.search("bay", 10));
+        assertEquals(List.of("Borussia Dortmund", "Borussia Mönchengladbach"), TEAMS.search("BORUSSIA", 10));
+        assertEquals(List.of("Hamburger SV", "Hertha BSC"), TEAMS.search("h", 10));
+    }
+
+    @Test
+    void matchesUmlautsSpelledOut() {
+        assertEquals(List.of("FC Bayern München", "Bayern München II", "Borussia Mönchengladbach"), TEAMS.search("muenchen", 10));
+        assertEquals(List.of("1. FC Köln"), TEAMS.search("Köln", 10));
+        assertEquals(List.of("1. FC Köln"), TEAMS.search("koeln", 10));
+    }
+
+    @Test
+    void toleratesTyposInLongerQueries() {
+        assertEquals(List.of("Borussia Dortmund"), TEAMS.search("dortmnud", 10));
+        assertEquals(List.of("Werder Bremen"), TEAMS.search("bremne", 10));
+        assertEquals(List.of("SC Freiburg"), TEAMS.search("frieburg", 10));
+    }
+
+    @Test
+    void doesNotMatchShortQueriesFuzzily() {
+        assertEquals(List.of(), TEAMS.search("bxy", 10));
+        assertEquals(List.of(), TEAMS.search("zzzzzzzz", 10));
+    }
+
+    @Test
+    void returnsAtMostTheLimit() {
+        assertEquals(List.of("Bayer 04 Leverkusen", "Bayern München II"), TEAMS.search("bay", 2));
+        assertEquals(List.of(), TEAMS.search("bay", 0));
+        assertEquals(3, TEAMS.search("", 3).size());
+    }
+
+    @Test
+    void findsTheSameNamesAsAScanOverAllWords() {
+        Random random = new Random(8);
+        String alphabet = "abcde ";
+        for (int instance = 0; instance < 200; instance++) {
+            String[] names = new String[1 + random.nextInt(30)];
+            for (int i = 0; i < names.length; i++) names[i] = randomText(random, alphabet, 1 + random.nextInt(14)).trim() + i;
+            NameIndex index = new NameIndex(names);
+
+            for (int q = 0; q < 20; q++) {
+                String query = randomText(random, alphabet.trim(), 1 + random.nextInt(8));
+                String message = "instance " + instance + ", query " + query;
+                List<String> result = index.search(query, names.length);
+
+                int maxEdits = query.length() < 4 ? 0 : query.length() <= 6 ? 1 : 2;
+                Set<String> expected = new HashSet<>();
+                List<String> prefixMatches = new ArrayList<>();
+                for (String name : names) {
+                    int distance = distance(query, name);
+                    if (distance == 0) prefixMatches.add(name);
+                    if (distance <= maxEdits) expected.add(name);
+                }
+                assertEquals(expected, new HashSet<>(result), message);
+                assertEquals(expected.size(), result.size(), message);
+                assertEquals(new HashSet<>(prefixMatches), new HashSet<>(result.subList(0, prefixMatches.size())), message);
+                for (int i = prefixMatches.size() + 1; i < result.size(); i++) {
+                    assertTrue(distance(query, result.get(i - 1)) <= distance(query, result.get(i)), message);
+                }
+            }
+        }
+    }
+
+    private static String randomText(Random random, String alphabet, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        return text.toString();
+    }
+
+    // Smallest distance between the query and a prefix of the name or of one of its later words
+    private static int distance(String query, String name) {
+        String key = name.toLowerCase(Locale.ROOT);
+        int distance = Integer.MAX_VALUE;
+        for (int p = 0; p < key.length(); p++) {
+            if (p == 0 || !Character.isLetterOrDigit(key.charAt(p - 1)) && Character.isLetterOrDigit(key.charAt(p))) {
+                distance = Math.min(distance, prefixDistance(query, key.substring(p)));
+            }
+        }
+        return distance;
+    }
+
+    // Edit distance with adjacent swaps between the query and the closest prefix of the key
+    private static int prefixDistance(String query, String key) {
+        int[][] d = new int[key.length() + 1][query.length() + 1];
+        for (int j = 0; j <= query.length(); j++) d[0][j] = j;
+        int closest = query.length();
+        for (int r = 1; r <= key.length(); r++) {
+            d[r][0] = r;
+            for (int j = 1; j <= query.length(); j++) {
+                d[r][j] = Math.min(d[r - 1][j - 1] + (key.charAt(r - 1) == query.charAt(j - 1) ? 0 : 1),
+                    Math.min(d[r - 1][j], d[r][j - 1]) + 1);
+                if (r > 1 && j > 1 && key.charAt(r - 1) == query.charAt(j - 2) && key.charAt(r - 2) == query.charAt(j - 1)) {
+                    d[r][j] = Math.min(d[r][j], d[r - 2][j - 2] + 1);
+                }
+            }
+            closest = Math.min(closest, d[r][query.length()]);
+        }
+        return closest;
+    }
+}
@@ -0,0 +1,330 @@
+package com.check24.streaming.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.check24.streaming.model.BestCombination;
+import com.check24.streaming.model.CombinationStrategy;
+import com.check24.streaming.model.CoverageFrontier;
+import com.check24.streaming.model.CoveragePreference;
+import com.check24.streaming.model.StreamingPackageDTO;
+import com.check24.streaming.model.SubscriptionOptions;
+
+/**
+ * Checks the combination algorithms against straightforward reference implementations on small random datasets.
+ */
+class PackageCombinationServiceTest
+{
+    @TempDir
+    Path directory;
+
+    @Test
+    void lazyGreedySelectsLikeTheEagerGreedy() {
+        Random random = new Random(18);
+        for (int round = 0; round < 10; round++) {
+            DataService dataService = TestDatasets.load(directory, random, 12, 300, 40, 1);
+            Dataset dataset = dataService.getDataset();
+            PackageFilterService packageFilterService = new PackageFilterService(dataService);
+            PackageCombinationService packageCombinationService = new PackageCombinationService(dataService);
+
+            for (int selection = 0; selection < 20; selection++) {
+                List<String> teams = TestDatasets.randomTeams(random, dataset, 4);
+                long[] games = TestDatasets.gamesOf(dataset, teams);
+                List<StreamingPackageDTO> packages = new ArrayList<>(packageFilterService.searchByTeamsAndTournaments(teams, List.of()));
+                Collections.shuffle(packages, random);
+
+                List<Integer> lazy = ids(packageCombinationService.findBestPackagesForMonth(games, packages));
+                List<Integer> eager = ids(eagerGreedy(dataset, games, packages));
+                assertEquals(eager, lazy, "round " + round + ", teams " + teams);
+            }
+        }
+    }
+
+    @Test
+    void prunesExactlyTheDominatedPackages() {
+        Random random = new Random(20);
+        int pruned = 0;
+        for (int round = 0; round < 10; round++) {
+            DataService dataService = TestDatasets.load(directory, random, 12, 300, 40, 1);
+            Dataset dataset = dataService.getDataset();
+            PackageFilterService packageFilterService = new PackageFilterService(dataService);
+            PackageCombinationService packageCombinationService = new PackageCombinationService(dataService);
+
+            for (int selection = 0; selection < 20; selection++) {
+                List<String> teams = TestDatasets.randomTeams(random, dataset, 4);
+                List<StreamingPackageDTO> packages = new ArrayList<>(packageFilterService.searchByTeamsAndTournaments(teams, List.of()));
+                Collections.shuffle(packages, random);
+
+                BestCombination combination = packageCombinationService.greedyPackageCombination(teams, List.of(), packages);
+                assertEquals(dominatedCount(dataset, TestDatasets.gamesOf(dataset, teams), packages), combination.getPrunedPackages(),
+                    "round " + round + ", teams " + teams);
+                pruned += combination.getPrunedPackages();
+            }
+        }
+        assertTrue(pruned > 0);
+    }
+
+    @Test
+    void pruningKeepsTheCheapestCover() {
+        Random random = new Random(21);
+        for (int round = 0; round < 10; round++) {
+            DataService dataService = TestDatasets.load(directory, random, 8, 120, 12, 1);
+            Dataset dataset = dataService.getDataset();
+            PackageFilterService packageFilterService = new PackageFilterService(dataService);
+            PackageCombinationService packageCombinationService = new PackageCombinationService(dataService);
+
+            for (int selection = 0; selection < 10; selection++) {
+                List<String> teams = TestDatasets.randomTeams(random, dataset, 3);
+                List<StreamingPackageDTO> packages = new ArrayList<>(packageFilterService.searchByTeamsAndTournaments(teams, List.of()));
+                List<Integer> packageIds = ids(packages);
+
+                BestCombination exact = packageCombinationService.getBestPackageCombinations(teams, List.of(), null, null,
+                    CombinationStrategy.EXACT, SubscriptionOptions.MONTHLY, null, packageIds);
+                double cheapest = cheapestCover(dataset, TestDatasets.gamesOf(dataset, teams), packages);
+                assertEquals(0.0, exact.getOptimalityGap(), 1e-9);
+                assertEquals(cheapest, exact.getTotalCost() * 100, 1e-6, "round " + round + ", teams " + teams);
+            }
+        }
+    }
+
+    @Test
+    void coverageFrontierIsConsistentAndBeatsEverySinglePackage() {
+        Random random = new Random(23);
+        CoveragePreference[] preferences = {null, CoveragePreference.LIVE, CoveragePreference.HIGHLIGHTS};
+        for (int round = 0; round < 10; round++) {
+            DataService dataService = TestDatasets.load(directory, random, 12, 300, 40, 3);
+            Dataset dataset = dataService.getDataset();
+            PackageFilterService packageFilterService = new PackageFilterService(dataService);
+            PackageCombinationService packageCombinationService = new PackageCombinationService(dataService);
+
+            for (int selection = 0; selection < 20; selection++) {
+                List<String> teams = TestDatasets.randomTeams(random, dataset, 4);
+                CoveragePreference preference = preferences[random.nextInt(preferences.length)];
+                List<StreamingPackageDTO> packages = new ArrayList<>(packageFilterService.searchByTeamsAndTournaments(teams, List.of()));
+                Collections.shuffle(packages, random);
+                long[] games = TestDatasets.gamesOf(dataset, teams);
+                String message = "round " + round + ", teams " + teams + ", preference " + preference;
+
+                CoverageFrontier frontier = packageCombinationService.getCoverageFrontier(teams, List.of(), null, null, preference, ids(packages));
+
+                List<CoverageFrontier.Point> points = frontier.points();
+                assertEquals(Bits.cardinality(games), frontier.totalGames(), message);
+                assertEquals(0.0, points.get(0).monthlyCost(), 1e-9, message);
+                for (int i = 0; i < points.size(); i++) {
+                    CoverageFrontier.Point point = points.get(i);
+                    long[] covered = Bits.create(dataset.getGameCount());
+                    for (StreamingPackageDTO pkg : point.packages()) Bits.or(covered, offeredGames(dataset, games, pkg, preference));
+                    assertEquals(Bits.cardinality(covered), point.coveredGames(), message);
+                    assertEquals(point.packages().stream().mapToDouble(pkg -> costCents(pkg) / 100).sum(), point.monthlyCost(), 1e-9, message);
+                    assertEquals((double) point.coveredGames() / frontier.totalGames(), point.coveragePercentage(), 1e-9, message);
+                    if (i > 0) {
+                        assertTrue(point.monthlyCost() > points.get(i - 1).monthlyCost(), message);
+                        assertTrue(point.coveredGames() > points.get(i - 1).coveredGames(), message);
+                    }
+                }
+
+                long[] coverable = Bits.create(dataset.getGameCount());
+                for (StreamingPackageDTO pkg : packages) {
+                    long[] offered = offeredGames(dataset, games, pkg, preference);
+                    Bits.or(coverable, offered);
+                    int coveredBySelf = Bits.cardinality(offered);
+                    assertTrue(points.stream().anyMatch(point -> point.monthlyCost() <= costCents(pkg) / 100 + 1e-9
+                        && point.coveredGames() >= coveredBySelf), message + ", package " + pkg.getStreamingPackageId());
+                }
+                assertEquals(Bits.cardinality(coverable), points.get(points.size() - 1).coveredGames(), message);
+            }
+        }
+    }
+
+    @Test
+    void doesNotLetYearlyOnlyPackagesDominateCheaperOnes() {
+        DataService dataService = loadYearlyOnlyDataset();
+        List<StreamingPackageDTO> packages = new ArrayList<>(new PackageFilterService(dataService).searchByTeamsAndTournaments(List.of("Team A"), List.of()));
+
+        BestCombination combination = new PackageCombinationService(dataService).greedyPackageCombination(List.of("Team A"), List.of(), packages);
+
+        // Only package 2 is pruned: package 1 offers the same games for 15.00 instead of 25.00, but not those of
+        // packages 3 and 4 for less than they cost
+        assertEquals(1, combination.getPrunedPackages());
+    }
+
+    @Test
+    void paysYearlyOnlyPackagesTheirYearlyPriceInExactCombinations() {
+        DataService dataService = loadYearlyOnlyDataset();
+        List<Integer> packageIds = ids(new PackageFilterService(dataService).searchByTeamsAndTournaments(List.of("Team A"), List.of()));
+
+        BestCombination exact = new PackageCombinationService(dataService).getBestPackageCombinations(List.of("Team A"), List.of(),
+            null, null, CombinationStrategy.EXACT, SubscriptionOptions.MONTHLY, null, packageIds);
+
+        // Package 1 at 15.00 is cheaper than packages 3 and 4 together at 17.00, but not free
+        assertEquals(List.of(1), ids(exact.getPackages().get(0).getPackages()));
+        assertEquals(15.0, exact.getTotalCost(), 1e-9);
+        assertEquals(0.0, exact.getOptimalityGap(), 1e-9);
+    }
+
+    @Test
+    void pricesYearlyOnlyPackagesOnTheCoverageFrontier() {
+        DataService dataService = loadYearlyOnlyDataset();
+        List<Integer> packageIds = ids(new PackageFilterService(dataService).searchByTeamsAndTournaments(List.of("Team A"), List.of()));
+
+        CoverageFrontier frontier = new PackageCombinationService(dataService).getCoverageFrontier(List.of("Team A"), List.of(),
+            null, null, null, packageIds);
+
+        // Package 3 covers half the games for 8.00, package 1 all of them for 15.00 instead of for free
+        List<CoverageFrontier.Point> points = frontier.points();
+        assertEquals(3, points.size());
+        assertEquals(List.of(), ids(points.get(0).packages()));
+        assertEquals(List.of(3), ids(points.get(1).packages()));
+        assertEquals(8.0, points.get(1).monthlyCost(), 1e-9);
+        assertEquals(2, points.get(1).coveredGames());
+        assertEquals(List.of(1), ids(points.get(2).packages()));
+        assertEquals(15.0, points.get(2).monthlyCost(), 1e-9);
+        assertEquals(4, points.get(2).coveredGames());
+    }
+
+    @Test
+    void reportsNoCoverageForAWindowWithoutGames() {
+        DataService dataService = loadYearlyOnlyDataset();
+        PackageCombinationService packageCombinationService = new PackageCombinationService(dataService);
+        LocalDate from = LocalDate.of(2025, 1, 1);
+        LocalDate to = LocalDate.of(2025, 1, 31);
+
+        for (CombinationStrategy strategy : CombinationStrategy.values()) {
+            BestCombination combination = packageCombinationService.getBestPackageCombinations(List.of("Team A"), List.of(),
+                from, to, strategy, SubscriptionOptions.MONTHLY, null, List.of(1, 2, 3, 4));
+
+            assertEquals(0.0, combination.getCoveragePercentage(), strategy.name());
+            assertEquals(0.0, combination.getTotalCost(), strategy.name());
+            assertEquals(List.of(), combination.getCoveredGames().get("Team A"), strategy.name());
+        }
+    }
+
+    /**
+     * Four games of Team A in one month. Package 1 is yearly-only (15.00 a month under the yearly subscription)
+     * and offers all of them, package 2 offers them for 25.00, packages 3 and 4 offer two each for 8.00 and 9.00.
+     */
+    private DataService loadYearlyOnlyDataset() {
+        List<String> games = new ArrayList<>(List.of("id,team_home,team_away,starts_at,tournament_name"));
+        List<String> offers = new ArrayList<>(List.of("game_id,streaming_package_id,live,highlights"));
+        for (int game = 1; game <= 4; game++) {
+            games.add(game + ",Team A,Team B,2024-08-0" + game + " 18:30:00,League");
+            offers.add(game + ",1,1,1");
+            offers.add(game + ",2,1,1");
+            offers.add(game + "," + (game <= 2 ? 3 : 4) + ",1,0");
+        }
+        List<String> packages = List.of("id,name,monthly_price_cents,monthly_price_yearly_subscription_in_cents",
+            "1,Yearly only,,1500", "2,Monthly,2500,2000", "3,First half,800,", "4,Second half,900,");
+        return TestDatasets.load(directory, games, offers, packages);
+    }
+
+    /**
+     * Packages that offer none of the games, or whose games another package offers at no higher price and no
+     * lower efficiency, with a higher efficiency or coming first.
+     */
+    private static int dominatedCount(Dataset dataset, long[] games, List<StreamingPackageDTO> packages) {
+        int dominated = 0;
+        for (int a = 0; a < packages.size(); a++) {
+            long[] offeredA = offeredGames(dataset, games, packages.get(a));
+            boolean isDominated = Bits.cardinality(offeredA) == 0;
+            for (int b = 0; b < packages.size() && !isDominated; b++) {
+                StreamingPackageDTO pkgA = packages.get(a);
+                StreamingPackageDTO pkgB = packages.get(b);
+                double efficiencyA = efficiency(pkgA, 1.0);
+                double efficiencyB = efficiency(pkgB, 1.0);
+                isDominated = b != a && costCents(pkgB) <= costCents(pkgA)
+                    && efficiencyB >= efficiencyA && (efficiencyB > efficiencyA || b < a)
+                    && Bits.isSubset(offeredA, offeredGames(dataset, games, pkgB));
+            }
+            if (isDominated) dominated++;
+        }
+        return dominated;
+    }
+
+    // Monthly cost in cents of the cheapest set of packages covering every game any of them offers, over all subsets
+    private static double cheapestCover(Dataset dataset, long[] games, List<StreamingPackageDTO> packages) {
+        long[] coverable = Bits.create(dataset.getGameCount());
+        for (StreamingPackageDTO pkg : packages) Bits.or(coverable, offeredGames(dataset, games, pkg));
+        double cheapest = Double.POSITIVE_INFINITY;
+        for (int subset = 0; subset < 1 << packages.size(); subset++) {
+            long[] covered = Bits.create(dataset.getGameCount());
+            double cost = 0;
+            for (int i = 0; i < packages.size(); i++) {
+                if ((subset >> i & 1) == 0) continue;
+                Bits.or(covered, offeredGames(dataset, games, packages.get(i)));
+                cost += costCents(packages.get(i));
+            }
+            if (Bits.isSubset(coverable, covered)) cheapest = Math.min(cheapest, cost);
+        }
+        return cheapest;
+    }
+
+    private static long[] offeredGames(Dataset dataset, long[] games, StreamingPackageDTO pkg) {
+        return offeredGames(dataset, games, pkg, null);
+    }
+
+    private static long[] offeredGames(Dataset dataset, long[] games, StreamingPackageDTO pkg, CoveragePreference preference) {
+        long[] offered = games.clone();
+        Bits.and(offered, dataset.getOfferedGames(preference, dataset.getPackageIndex(pkg.getStreamingPackageId())));
+        return offered;
+    }
+
+    /**
+     * The greedy selection as specified: every round scans all packages in collection order and takes the first
+     * one with the highest efficiency on the uncovered games, without pruning.
+     */
+    private static List<StreamingPackageDTO> eagerGreedy(Dataset dataset, long[] games, List<StreamingPackageDTO> packages) {
+        long[] uncovered = games.clone();
+        List<StreamingPackageDTO> selected = new ArrayList<>();
+        while (Bits.cardinality(uncovered) > 0) {
+            StreamingPackageDTO best = null;
+            double bestEfficiency = 0;
+            long[] bestGames = null;
+            for (StreamingPackageDTO pkg : packages) {
+                long[] offered = dataset.getOfferedGames(null, dataset.getPackageIndex(pkg.getStreamingPackageId()));
+                int gain = Bits.andCardinality(uncovered, offered);
+                if (gain == 0) continue;
+                double efficiency = efficiency(pkg, (double) gain / Bits.cardinality(uncovered));
+                if (best == null || efficiency > bestEfficiency) {
+                    best = pkg;
+                    bestEfficiency = efficiency;
+                    bestGames = offered;
+                }
+            }
+            if (best == null) break;
+            selected.add(best);
+            Bits.andNot(uncovered, bestGames);
+        }
+        return selected;
+    }
+
+    // Monthly price in cents, yearly-only packages (no monthly price) at their monthly price under the yearly subscription
+    private static double costCents(StreamingPackageDTO pkg) {
+        return pkg.getMonthlyPriceCents() == 0 && pkg.getYearlyPriceCents() > 0 ? pkg.getYearlyPriceCents() : pkg.getMonthlyPriceCents();
+    }
+
+    // PackageCombinationService.calculateEfficiency with the live coverage boost
+    private static double efficiency(StreamingPackageDTO pkg, double additionalCoverage) {
+        double coverageBoost = pkg.getLiveCoveragePercentage() > 0 ? 0.5 : 0.0;
+        double price = costCents(pkg) / 100;
+        if (price == 0) {
+            return additionalCoverage * 100 * coverageBoost;
+        }
+        return additionalCoverage / price * coverageBoost;
+    }
+
+    private static List<Integer> ids(Iterable<StreamingPackageDTO> packages) {
+        List<Integer> ids = new ArrayList<>();
+        packages.forEach(pkg -> ids.add(pkg.getStreamingPackageId()));
+        return ids;
+    }
+}
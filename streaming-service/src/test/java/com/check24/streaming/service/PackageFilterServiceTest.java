@@ -0,0 +1,95 @@
+package com.check24.streaming.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.ToDoubleFunction;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.check24.streaming.model.CoveragePreference;
+import com.check24.streaming.model.FilterOptions;
+import com.check24.streaming.model.FilteredPackages;
+import com.check24.streaming.model.SearchResult;
+import com.check24.streaming.model.SortingOptions;
+import com.check24.streaming.model.StreamingPackageDTO;
+
+/**
+ * Compares the paged filter, which selects a page with a bounded heap, with filtering and stably sorting the whole result.
+ */
+class PackageFilterServiceTest
+{
+    @TempDir
+    Path directory;
+
+    @Test
+    void filtersPagesLikeAFullSort() {
+        Random random = new Random(10);
+        SortingOptions[] sortingOptions = {null, SortingOptions.PRICE, SortingOptions.COVERAGE};
+        CoveragePreference[] preferences = {null, CoveragePreference.LIVE, CoveragePreference.HIGHLIGHTS};
+        for (int round = 0; round < 5; round++) {
+            DataService dataService = TestDatasets.load(directory, random, 12, 300, 60, 1);
+            PackageFilterService packageFilterService = new PackageFilterService(dataService);
+
+            for (int selection = 0; selection < 20; selection++) {
+                List<String> teams = TestDatasets.randomTeams(random, dataService.getDataset(), 4);
+                SearchResult result = packageFilterService.search(teams, List.of());
+                List<StreamingPackageDTO> packages = new ArrayList<>(result.packages());
+
+                for (int request = 0; request < 20; request++) {
+                    FilterOptions options = new FilterOptions(sortingOptions[random.nextInt(3)], preferences[random.nextInt(3)],
+                        random.nextBoolean() ? null : (double) random.nextInt(40));
+                    Integer offset = random.nextBoolean() ? null : random.nextInt(packages.size() + 2);
+                    Integer limit = random.nextBoolean() ? null : 1 + random.nextInt(packages.size() + 2);
+
+                    FilteredPackages page = packageFilterService.filter(result.resultId(), options, offset, limit);
+
+                    List<StreamingPackageDTO> expected = filterAndSort(packages, options);
+                    int from = offset == null ? 0 : offset;
+                    int end = limit == null ? expected.size() : Math.min(expected.size(), from + limit);
+                    String message = "round " + round + ", teams " + teams + ", " + options + ", offset " + offset + ", limit " + limit;
+                    assertEquals(expected.size(), page.total(), message);
+                    assertEquals(from, page.offset(), message);
+                    assertEquals(from < end ? expected.subList(from, end) : List.of(), page.packages(), message);
+                }
+            }
+        }
+    }
+
+    @Test
+    void rejectsUnknownResultsAndInvalidPages() {
+        PackageFilterService packageFilterService = new PackageFilterService(TestDatasets.load(directory, new Random(1), 4, 20, 5, 1));
+        String resultId = packageFilterService.search(List.of("Team 0"), List.of()).resultId();
+
+        assertThrows(UnknownSearchResultException.class, () -> packageFilterService.filter("unknown", null, null, null));
+        assertThrows(IllegalArgumentException.class, () -> packageFilterService.filter(resultId, null, -1, null));
+        assertThrows(IllegalArgumentException.class, () -> packageFilterService.filter(resultId, null, null, 0));
+    }
+
+    // The filter as specified, sorting all matches with a stable sort
+    private static List<StreamingPackageDTO> filterAndSort(List<StreamingPackageDTO> packages, FilterOptions options) {
+        ToDoubleFunction<StreamingPackageDTO> preferred = options.preference() == null ? null : switch (options.preference()) {
+            case LIVE -> StreamingPackageDTO::getLiveCoveragePercentage;
+            case HIGHLIGHTS -> StreamingPackageDTO::getHighlightsCoveragePercentage;
+        };
+        List<StreamingPackageDTO> matches = new ArrayList<>();
+        for (StreamingPackageDTO pkg : packages) {
+            if (options.maxPrice() != null && pkg.getMonthlyPrice() > options.maxPrice()) continue;
+            if (preferred != null && preferred.applyAsDouble(pkg) <= 0) continue;
+            matches.add(pkg);
+        }
+        if (options.sortingOption() == SortingOptions.PRICE) {
+            matches.sort(Comparator.comparingDouble(StreamingPackageDTO::getMonthlyPrice));
+        } else if (options.sortingOption() == SortingOptions.COVERAGE) {
+            matches.sort(Comparator.comparingDouble(preferred != null ? preferred
+                : pkg -> Math.max(pkg.getLiveCoveragePercentage(), pkg.getHighlightsCoveragePercentage())));
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,115 @@
+package com.check24.streaming.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.check24.streaming.model.BestCombination;
+import com.check24.streaming.model.StreamingPackageDTO;
+
+/**
+ * Search and greedy best combination with parallel package evaluation against the sequential path, on random
+ * catalogs of growing size and pools of 1, 2, 4 and all available threads. Parallel runs use a threshold of 0, so
+ * every catalog is split. The speedup is bounded by the cores of the machine, which are logged with the results.
+ */
+@Tag(Benchmark.TAG)
+class ParallelEvaluationBenchmark
+{
+    private static final int[] PACKAGE_COUNTS = {64, 256, 1024};
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void parallelEvaluationMatchesTheSequentialPathAndScalesWithThreads() throws Exception {
+        int processors = Runtime.getRuntime().availableProcessors();
+        TreeSet<Integer> threadCounts = new TreeSet<>(List.of(1, 2, 4, processors));
+        Benchmark.report("Parallel evaluation on {} available processors", processors);
+
+        for (int packageCount : PACKAGE_COUNTS) {
+            Path dataDirectory = Files.createDirectories(directory.resolve("catalog-" + packageCount));
+            Random random = new Random(packageCount);
+            DataService dataService = TestDatasets.load(dataDirectory, random, 100, 3000, packageCount, 12);
+            Dataset dataset = dataService.getDataset();
+            List<List<String>> selections = new ArrayList<>();
+            for (int selection = 0; selection < 20; selection++) selections.add(TestDatasets.randomTeams(random, dataset, 4));
+
+            ParallelEvaluation sequential = new ParallelEvaluation();
+            Services reference = new Services(dataService, sequential);
+            List<List<StreamingPackageDTO>> packages = new ArrayList<>();
+            List<String> combinations = new ArrayList<>();
+            for (List<String> teams : selections) {
+                List<StreamingPackageDTO> found = new ArrayList<>(reference.packageFilterService.searchByTeamsAndTournaments(teams, List.of()));
+                packages.add(found);
+                combinations.add(reference.packageCombinationService.getBestPackageCombinations(teams, List.of(), found).toString());
+            }
+            double[] sequentialMicros = measure(reference, selections, packages, packageCount + " packages, sequential");
+
+            for (int threads : threadCounts) {
+                ParallelEvaluation parallel = new ParallelEvaluation(true, threads, 0);
+                try {
+                    Services services = new Services(dataService, parallel);
+                    for (int selection = 0; selection < selections.size(); selection++) {
+                        List<String> teams = selections.get(selection);
+                        String message = packageCount + " packages, " + threads + " threads, teams " + teams;
+                        assertEquals(packages.get(selection),
+                            new ArrayList<>(services.packageFilterService.searchByTeamsAndTournaments(teams, List.of())), message);
+                        BestCombination combination = services.packageCombinationService.getBestPackageCombinations(teams, List.of(),
+                            packages.get(selection));
+                        assertEquals(combinations.get(selection), combination.toString(), message);
+                    }
+                    double[] micros = measure(services, selections, packages, packageCount + " packages, " + threads + " threads");
+                    Benchmark.report("{} packages, {} threads: search speedup {}x, best combination speedup {}x", packageCount, threads,
+                        Benchmark.format(sequentialMicros[0] / micros[0]), Benchmark.format(sequentialMicros[1] / micros[1]));
+                } finally {
+                    parallel.shutdown();
+                }
+            }
+        }
+    }
+
+    // Microseconds per search and per best combination
+    private static double[] measure(Services services, List<List<String>> selections, List<List<StreamingPackageDTO>> packages,
+                                    String name) {
+        double search = Benchmark.microsPerOp(name + ", search", () -> {
+            long checksum = 0;
+            for (List<String> teams : selections) {
+                checksum += services.packageFilterService.searchByTeamsAndTournaments(teams, List.of()).size();
+            }
+            return checksum;
+        }, selections.size());
+        double combination = Benchmark.microsPerOp(name + ", best combination", () -> {
+            long checksum = 0;
+            for (int selection = 0; selection < selections.size(); selection++) {
+                BestCombination best = services.packageCombinationService.getBestPackageCombinations(selections.get(selection),
+                    List.of(), packages.get(selection));
+                checksum += Double.doubleToLongBits(best.getTotalCost());
+            }
+            return checksum;
+        }, selections.size());
+        return new double[] {search, combination};
+    }
+
+    // Services evaluating packages with the given strategy, without caches or precomputed results
+    private static final class Services
+    {
+        final PackageFilterService packageFilterService;
+        final PackageCombinationService packageCombinationService;
+
+        Services(DataService dataService, ParallelEvaluation parallelEvaluation) {
+            PrecomputedResults precomputedResults = new PrecomputedResults();
+            packageFilterService = new PackageFilterService(dataService, parallelEvaluation, precomputedResults, 600, 10_000, 300, 0, 1000);
+            packageCombinationService = new PackageCombinationService(dataService, packageFilterService, parallelEvaluation,
+                precomputedResults, 300, 0, 0, 2000);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.check24.streaming.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.check24.streaming.service.PrecomputedResults.Entry;
+import com.check24.streaming.service.PrecomputedResults.Snapshot;
+
+class PrecomputedResultsFileTest
+{
+    private static final long FINGERPRINT = 0x5eed;
+
+    @TempDir
+    Path directory;
+
+    private Snapshot snapshot;
+    private Path file;
+
+    @BeforeEach
+    void writeResults() throws IOException {
+        Random random = new Random(14);
+        snapshot = new Snapshot(1, randomEntries(random, 40), randomEntries(random, 10));
+        file = directory.resolve("precomputed.results");
+        PrecomputedResultsFile.write(snapshot, FINGERPRINT, file);
+    }
+
+    @Test
+    void readsBackTheWrittenResults() throws IOException {
+        Snapshot read = PrecomputedResultsFile.read(file, FINGERPRINT, 7);
+
+        assertNotNull(read);
+        assertEquals(7, read.datasetVersion());
+        assertEntriesEqual(snapshot.teams(), read.teams());
+        assertEntriesEqual(snapshot.tournaments(), read.tournaments());
+    }
+
+    @Test
+    void readsBackAnEmptySnapshot() throws IOException {
+        PrecomputedResultsFile.write(new Snapshot(1, new Entry[0], new Entry[0]), FINGERPRINT, file);
+
+        Snapshot read = PrecomputedResultsFile.read(file, FINGERPRINT, 2);
+
+        assertEquals(0, read.teams().length);
+        assertEquals(0, read.tournaments().length);
+    }
+
+    @Test
+    void rejectsResultsOfOtherData() throws IOException {
+        assertNull(PrecomputedResultsFile.read(file, FINGERPRINT + 1, 2));
+    }
+
+    @Test
+    void rejectsCorruptOrTruncatedResults() throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+
+        byte[] corrupt = bytes.clone();
+        corrupt[corrupt.length / 2] ^= 1;
+        Files.write(file, corrupt);
+        assertNull(PrecomputedResultsFile.read(file, FINGERPRINT, 2));
+
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        assertNull(PrecomputedResultsFile.read(file, FINGERPRINT, 2));
+
+        Files.write(file, Arrays.copyOf(bytes, 10));
+        assertNull(PrecomputedResultsFile.read(file, FINGERPRINT, 2));
+    }
+
+    @Test
+    void returnsNullForMissingResults() throws IOException {
+        assertNull(PrecomputedResultsFile.read(directory.resolve("missing.results"), FINGERPRINT, 2));
+    }
+
+    // Entries with random content, some of them not materialized and some static, sequential or without packages
+    private static Entry[] randomEntries(Random random, int count) {
+        Entry[] entries = new Entry[count];
+        for (int i = 0; i < count; i++) {
+            if (random.nextInt(5) == 0) continue;
+            int packageCount = random.nextInt(6);
+            int[] packageIndices = random.ints(packageCount, 0, 100).toArray();
+            double[] liveCoverage = random.doubles(packageCount).toArray();
+            double[] highlightsCoverage = random.doubles(packageCount).toArray();
+            boolean sequential = random.nextBoolean();
+            int periodCount = sequential ? random.nextInt(4) : 1;
+            String[] periodStarts = new String[periodCount];
+            String[] periodEnds = new String[periodCount];
+            int[][] periodPackages = new int[periodCount][];
+            for (int p = 0; p < periodCount; p++) {
+                periodStarts[p] = sequential ? "2024-" + (10 + p) : "";
+                periodEnds[p] = sequential ? "2024-" + (10 + p) : "";
+                periodPackages[p] = packageCount == 0 ? new int[0] : random.ints(random.nextInt(packageCount + 1), 0, packageCount).toArray();
+            }
+            entries[i] = new Entry(packageIndices, liveCoverage, highlightsCoverage, sequential, random.nextDouble() * 100,
+                random.nextDouble(), random.nextInt(10), periodStarts, periodEnds, random.doubles(periodCount).toArray(),
+                periodPackages, random.longs(random.nextInt(4)).toArray());
+        }
+        return entries;
+    }
+
+    private static void assertEntriesEqual(Entry[] expected, Entry[] actual) {
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            String message = "entry " + i;
+            if (expected[i] == null) {
+                assertNull(actual[i], message);
+                continue;
+            }
+            Entry a = expected[i];
+            Entry b = actual[i];
+            assertNotNull(b, message);
+            assertArrayEquals(a.packageIndices(), b.packageIndices(), message);
+            assertArrayEquals(a.liveCoverage(), b.liveCoverage(), message);
+            assertArrayEquals(a.highlightsCoverage(), b.highlightsCoverage(), message);
+            assertEquals(a.sequential(), b.sequential(), message);
+            assertEquals(a.totalCost(), b.totalCost(), message);
+            assertEquals(a.coveragePercentage(), b.coveragePercentage(), message);
+            assertEquals(a.prunedPackages(), b.prunedPackages(), message);
+            assertArrayEquals(a.periodStarts(), b.periodStarts(), message);
+            assertArrayEquals(a.periodEnds(), b.periodEnds(), message);
+            assertArrayEquals(a.periodCosts(), b.periodCosts(), message);
+            assertArrayEquals(a.periodPackages(), b.periodPackages(), message);
+            assertArrayEquals(a.coveredGames(), b.coveredGames(), message);
+        }
+    }
+}
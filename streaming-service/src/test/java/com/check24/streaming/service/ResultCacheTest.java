@@ -0,0 +1,116 @@
+package com.check24.streaming.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.check24.streaming.model.CacheStats;
+
+class ResultCacheTest
+{
+    // Values weigh their length
+    private static ResultCache<Integer, String> cache(long ttlSeconds, long maxWeight) {
+        return new ResultCache<>(ttlSeconds, maxWeight, String::length);
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntriesBeyondTheWeightLimit() {
+        ResultCache<Integer, String> cache = cache(600, 10);
+        cache.put(1, 1, "aaa");
+        cache.put(1, 2, "bbb");
+        cache.put(1, 3, "ccc");
+        assertEquals("aaa", cache.getIfPresent(1, 1)); // 2 is now the least recently used entry
+
+        cache.put(1, 4, "dddd");
+
+        assertNull(cache.getIfPresent(1, 2));
+        assertEquals("aaa", cache.getIfPresent(1, 1));
+        assertEquals("ccc", cache.getIfPresent(1, 3));
+        assertEquals("dddd", cache.getIfPresent(1, 4));
+        CacheStats stats = cache.stats();
+        assertEquals(1, stats.evictions());
+        assertEquals(3, stats.entries());
+        assertEquals(10, stats.weightBytes());
+    }
+
+    @Test
+    void replacesEntriesWithoutCountingTheirWeightTwice() {
+        ResultCache<Integer, String> cache = cache(600, 10);
+        cache.put(1, 1, "aaaaa");
+        cache.put(1, 2, "bb");
+        cache.put(1, 1, "aaaaaaaa");
+
+        assertEquals("aaaaaaaa", cache.getIfPresent(1, 1));
+        assertEquals("bb", cache.getIfPresent(1, 2));
+        assertEquals(10, cache.stats().weightBytes());
+        assertEquals(0, cache.stats().evictions());
+    }
+
+    @Test
+    void doesNotCacheValuesHeavierThanTheLimit() {
+        ResultCache<Integer, String> cache = cache(600, 4);
+        cache.put(1, 1, "aaaa");
+        cache.put(1, 2, "bbbbb");
+
+        assertEquals("aaaa", cache.getIfPresent(1, 1));
+        assertNull(cache.getIfPresent(1, 2));
+        assertEquals(4, cache.stats().weightBytes());
+    }
+
+    @Test
+    void dropsEverythingOfAnOlderDatasetVersion() {
+        ResultCache<Integer, String> cache = cache(600, 100);
+        cache.put(1, 1, "a");
+        cache.put(1, 2, "b");
+
+        assertNull(cache.getIfPresent(2, 1));
+        cache.put(2, 1, "new");
+        cache.put(1, 2, "stale"); // a late writer of the old version is ignored
+
+        assertEquals("new", cache.getIfPresent(2, 1));
+        assertNull(cache.getIfPresent(2, 2));
+        assertNull(cache.getIfPresent(1, 1));
+        CacheStats stats = cache.stats();
+        assertEquals(2, stats.evictions());
+        assertEquals(1, stats.entries());
+        assertEquals(3, stats.weightBytes());
+    }
+
+    @Test
+    void expiresEntriesAfterTheTtl() throws InterruptedException {
+        ResultCache<Integer, String> cache = cache(0, 100);
+        cache.put(1, 1, "a");
+        Thread.sleep(2);
+
+        assertNull(cache.getIfPresent(1, 1));
+        CacheStats stats = cache.stats();
+        assertEquals(1, stats.expirations());
+        assertEquals(0, stats.entries());
+        assertEquals(0, stats.weightBytes());
+    }
+
+    @Test
+    void computesOnlyOnAMissAndCountsHitsAndMisses() {
+        ResultCache<Integer, String> cache = cache(600, 100);
+        AtomicInteger computations = new AtomicInteger();
+
+        assertEquals("1", cache.get(1, 1, key -> computations.incrementAndGet() + ""));
+        assertEquals("1", cache.get(1, 1, key -> computations.incrementAndGet() + ""));
+
+        assertEquals(1, computations.get());
+        assertEquals(1, cache.stats().hits());
+        assertEquals(1, cache.stats().misses());
+    }
+
+    @Test
+    void cachesNothingWhenDisabled() {
+        ResultCache<Integer, String> cache = cache(600, 0);
+        cache.put(1, 1, "a");
+
+        assertNull(cache.getIfPresent(1, 1));
+        assertEquals(0, cache.stats().entries());
+    }
+}
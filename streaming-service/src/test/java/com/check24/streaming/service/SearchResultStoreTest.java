@@ -0,0 +1,78 @@
+package com.check24.streaming.service;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+import com.check24.streaming.model.StreamingPackageDTO;
+import com.check24.streaming.service.SearchResultStore.StoredSearch;
+
+class SearchResultStoreTest
+{
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void returnsStoredResultsUntilTheyExpire() {
+        SearchResultStore store = new SearchResultStore(10, 100);
+        long now = System.nanoTime();
+        StoredSearch fresh = search(now);
+        StoredSearch almostExpired = search(now - 9 * SECOND);
+        StoredSearch expired = search(now - 11 * SECOND);
+
+        String freshId = store.put(fresh);
+        String almostExpiredId = store.put(almostExpired);
+        String expiredId = store.put(expired);
+
+        assertSame(fresh, store.get(freshId));
+        assertSame(almostExpired, store.get(almostExpiredId));
+        assertNull(store.get(expiredId));
+    }
+
+    @Test
+    void dropsExpiredResultsBeforeFreshOnes() {
+        SearchResultStore store = new SearchResultStore(10, 2);
+        long now = System.nanoTime();
+        String expiredId = store.put(search(now - 11 * SECOND));
+        StoredSearch first = search(now);
+        StoredSearch second = search(now);
+
+        String firstId = store.put(first);
+        String secondId = store.put(second);
+
+        assertNull(store.get(expiredId));
+        assertSame(first, store.get(firstId));
+        assertSame(second, store.get(secondId));
+    }
+
+    @Test
+    void dropsTheOldestResultsBeyondTheCapacity() {
+        SearchResultStore store = new SearchResultStore(600, 3);
+        long now = System.nanoTime();
+        String[] ids = new String[5];
+        StoredSearch[] searches = new StoredSearch[5];
+        for (int i = 0; i < ids.length; i++) {
+            searches[i] = search(now + i);
+            ids[i] = store.put(searches[i]);
+        }
+
+        assertNull(store.get(ids[0]));
+        assertNull(store.get(ids[1]));
+        for (int i = 2; i < ids.length; i++) assertSame(searches[i], store.get(ids[i]));
+    }
+
+    @Test
+    void rejectsUnknownIds() {
+        SearchResultStore store = new SearchResultStore(600, 3);
+        String id = store.put(search(System.nanoTime()));
+
+        assertNotEquals(id, store.put(search(System.nanoTime())));
+        assertNull(store.get("unknown"));
+        assertNull(store.get(null));
+    }
+
+    private static StoredSearch search(long createdAt) {
+        return new StoredSearch(createdAt, 1, new StreamingPackageDTO[0], new double[0], new double[0], new double[0], new double[0]);
+    }
+}
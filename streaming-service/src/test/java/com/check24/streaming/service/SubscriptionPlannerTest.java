@@ -0,0 +1,138 @@
+package com.check24.streaming.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.check24.streaming.service.SubscriptionPlanner.Subscription;
+
+/**
+ * Compares the dynamic program of SubscriptionPlanner with an enumeration of every way to pay for the months.
+ */
+class SubscriptionPlannerTest
+{
+    @Test
+    void plansAsCheaplyAsEveryEnumeratedPlan() {
+        Random random = new Random(19);
+        for (int instance = 0; instance < 400; instance++) {
+            int monthCount = 1 + random.nextInt(14);
+            int packageCount = 1 + random.nextInt(3);
+            long[][] needed = new long[packageCount][];
+            double[] monthlyCents = new double[packageCount];
+            double[] yearlyCents = new double[packageCount];
+            double density = 0.2 + random.nextDouble() * 0.7;
+            for (int position = 0; position < packageCount; position++) {
+                needed[position] = Bits.create(monthCount);
+                for (int month = 0; month < monthCount; month++) {
+                    if (random.nextDouble() < density) Bits.set(needed[position], month);
+                }
+                monthlyCents[position] = random.nextInt(6) == 0 ? Double.POSITIVE_INFINITY : 100 * (1 + random.nextInt(30));
+                yearlyCents[position] = random.nextInt(4) == 0 && monthlyCents[position] < Double.POSITIVE_INFINITY
+                    ? 0 : 100 * (1 + random.nextInt(30));
+            }
+            boolean allowYearly = random.nextBoolean();
+            double switchingCostCents = random.nextBoolean() ? 0 : 50 * random.nextInt(20);
+
+            List<Subscription> plan = SubscriptionPlanner.plan(needed, monthCount, monthlyCents, yearlyCents, allowYearly, switchingCostCents);
+
+            String message = "instance " + instance;
+            assertSorted(plan, message);
+            for (int position = 0; position < packageCount; position++) {
+                int current = position;
+                List<Subscription> packagePlan = plan.stream().filter(subscription -> subscription.position() == current).toList();
+                boolean yearly = (allowYearly || monthlyCents[position] == Double.POSITIVE_INFINITY) && yearlyCents[position] > 0;
+                double yearCents = yearly ? SubscriptionPlanner.YEAR * yearlyCents[position] : -1;
+
+                assertCovers(packagePlan, needed[position], monthCount, message);
+                for (Subscription subscription : packagePlan) {
+                    assertTrue(subscription.yearly() ? yearly : monthlyCents[position] < Double.POSITIVE_INFINITY, message);
+                    assertEquals(subscription.yearly() ? yearCents : (subscription.lastMonth() - subscription.firstMonth() + 1)
+                        * monthlyCents[position], subscription.costCents(), 1e-9, message);
+                }
+                double cheapest = enumerate(needed[position], monthCount, monthlyCents[position], yearCents, switchingCostCents,
+                    0, false, 0);
+                assertEquals(cheapest, cost(packagePlan, switchingCostCents), 1e-9, message);
+            }
+        }
+    }
+
+    @Test
+    void billsPackagesWithoutMonthlyPriceYearly() {
+        long[] needed = Bits.create(3);
+        Bits.set(needed, 1);
+
+        List<Subscription> plan = SubscriptionPlanner.plan(new long[][] {needed}, 3, new double[] {Double.POSITIVE_INFINITY},
+            new double[] {500}, false, 0);
+
+        assertEquals(List.of(new Subscription(0, 0, 11, true, 6000)), plan);
+    }
+
+    @Test
+    void keepsAMonthlySubscriptionWhenRestartingCostsMore() {
+        long[] needed = Bits.create(3);
+        Bits.set(needed, 0);
+        Bits.set(needed, 2);
+
+        assertEquals(List.of(new Subscription(0, 0, 0, false, 1000), new Subscription(0, 2, 2, false, 1000)),
+            SubscriptionPlanner.plan(new long[][] {needed}, 3, new double[] {1000}, new double[] {0}, false, 0));
+        assertEquals(List.of(new Subscription(0, 0, 2, false, 3000)),
+            SubscriptionPlanner.plan(new long[][] {needed}, 3, new double[] {1000}, new double[] {0}, false, 1500));
+    }
+
+    /**
+     * Cheapest cost, including switching costs, of the months from month on: a month is skipped if not needed,
+     * paid monthly or starts a yearly subscription.
+     * @param inMonthly Whether the previous month was paid monthly, so paying this one continues that subscription
+     * @param started Subscriptions started so far
+     */
+    private static double enumerate(long[] needed, int monthCount, double monthCents, double yearCents, double switchingCostCents,
+                                    int month, boolean inMonthly, double started) {
+        if (month == monthCount) return started;
+        double cheapest = Double.POSITIVE_INFINITY;
+        if (!Bits.get(needed, month)) {
+            cheapest = enumerate(needed, monthCount, monthCents, yearCents, switchingCostCents, month + 1, false, started);
+        }
+        if (monthCents < Double.POSITIVE_INFINITY) {
+            double cost = started + monthCents + (inMonthly ? 0 : switchingCostCents);
+            cheapest = Math.min(cheapest, enumerate(needed, monthCount, monthCents, yearCents, switchingCostCents, month + 1, true, cost));
+        }
+        if (yearCents >= 0) {
+            double cost = started + yearCents + switchingCostCents;
+            cheapest = Math.min(cheapest, enumerate(needed, monthCount, monthCents, yearCents, switchingCostCents,
+                Math.min(month + SubscriptionPlanner.YEAR, monthCount), false, cost));
+        }
+        return cheapest;
+    }
+
+    // Subscription costs plus the switching cost of every started subscription; adjacent monthly ones are one subscription
+    private static double cost(List<Subscription> plan, double switchingCostCents) {
+        double cost = 0;
+        for (Subscription subscription : plan) cost += subscription.costCents() + switchingCostCents;
+        return cost;
+    }
+
+    private static void assertCovers(List<Subscription> plan, long[] needed, int monthCount, String message) {
+        long[] paid = Bits.create(monthCount);
+        for (Subscription subscription : plan) {
+            for (int month = subscription.firstMonth(); month <= subscription.lastMonth() && month < monthCount; month++) {
+                assertFalse(Bits.get(paid, month), message + ": month " + month + " paid twice");
+                Bits.set(paid, month);
+            }
+        }
+        assertTrue(Bits.isSubset(needed, paid), message);
+    }
+
+    private static void assertSorted(List<Subscription> plan, String message) {
+        Comparator<Subscription> order = Comparator.comparingInt(Subscription::firstMonth).thenComparingInt(Subscription::lastMonth)
+            .thenComparing(Subscription::yearly).thenComparingInt(Subscription::position);
+        for (int i = 1; i < plan.size(); i++) {
+            assertTrue(order.compare(plan.get(i - 1), plan.get(i)) < 0, message);
+        }
+    }
+}
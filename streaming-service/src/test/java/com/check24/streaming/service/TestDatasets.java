@@ -0,0 +1,108 @@
+package com.check24.streaming.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Small random datasets in the CSV format of CsvDatasetLoader, written to a directory so that a DataService
+ * loads them like the real files.
+ */
+final class TestDatasets
+{
+    private static final DateTimeFormatter START_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final LocalDateTime FIRST_GAME = LocalDateTime.of(2024, 8, 1, 18, 30);
+
+    private TestDatasets() {}
+
+    /**
+     * Writes a random dataset and loads it. Packages have random prices: some are free, some only have a yearly
+     * subscription, and each offers a random share of the games live, as highlights or both.
+     *
+     * @param teamCount Number of teams, named "Team 0", "Team 1", ...; tournaments are named "Tournament 0", ...
+     * @param months Number of months the games are spread over, 1 for a season within a single month
+     */
+    static DataService load(Path directory, Random random, int teamCount, int gameCount, int packageCount, int months) {
+        write(directory, random, teamCount, gameCount, packageCount, months);
+        return new DataService("", directory.toString());
+    }
+
+    static void write(Path directory, Random random, int teamCount, int gameCount, int packageCount, int months) {
+        List<String> games = new ArrayList<>(List.of("id,team_home,team_away,starts_at,tournament_name"));
+        int tournamentCount = Math.max(1, teamCount / 4);
+        for (int game = 1; game <= gameCount; game++) {
+            int home = random.nextInt(teamCount);
+            int away = (home + 1 + random.nextInt(teamCount - 1)) % teamCount;
+            LocalDateTime startsAt = FIRST_GAME.plusMonths(random.nextInt(months)).withDayOfMonth(1 + random.nextInt(28));
+            games.add(game + ",Team " + home + ",Team " + away + "," + START_TIME_FORMAT.format(startsAt)
+                + ",Tournament " + random.nextInt(tournamentCount));
+        }
+
+        List<String> packages = new ArrayList<>(List.of("id,name,monthly_price_cents,monthly_price_yearly_subscription_in_cents"));
+        List<String> offers = new ArrayList<>(List.of("game_id,streaming_package_id,live,highlights"));
+        for (int pkg = 1; pkg <= packageCount; pkg++) {
+            int kind = random.nextInt(8);
+            int monthly = 100 * (1 + random.nextInt(40));
+            String monthlyPrice = kind == 0 ? "0" : kind == 1 ? "" : Integer.toString(monthly);
+            String yearlyPrice = kind == 0 ? "0" : kind == 1 || kind > 4 ? Integer.toString(monthly * 3 / 4) : "";
+            packages.add(pkg + ",Package " + pkg + "," + monthlyPrice + "," + yearlyPrice);
+
+            double share = random.nextDouble() * 0.6;
+            for (int game = 1; game <= gameCount; game++) {
+                if (random.nextDouble() >= share) continue;
+                int flags = 1 + random.nextInt(3);
+                offers.add(game + "," + pkg + "," + (flags & 1) + "," + (flags >> 1));
+            }
+        }
+
+        write(directory, games, offers, packages);
+    }
+
+    /**
+     * Writes the given CSV lines, each list starting with its header, and loads them.
+     */
+    static DataService load(Path directory, List<String> games, List<String> offers, List<String> packages) {
+        write(directory, games, offers, packages);
+        return new DataService("", directory.toString());
+    }
+
+    private static void write(Path directory, List<String> games, List<String> offers, List<String> packages) {
+        try {
+            Files.write(directory.resolve(CsvDatasetLoader.GAME_FILE), games);
+            Files.write(directory.resolve(CsvDatasetLoader.OFFER_FILE), offers);
+            Files.write(directory.resolve(CsvDatasetLoader.PACKAGE_FILE), packages);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** @return Random distinct team names of the dataset, at least one */
+    static List<String> randomTeams(Random random, Dataset dataset, int maxCount) {
+        List<String> teams = new ArrayList<>(dataset.getAllTeams());
+        Collections.shuffle(teams, random);
+        return new ArrayList<>(teams.subList(0, 1 + random.nextInt(Math.min(maxCount, teams.size()))));
+    }
+
+    /** @return count random distinct names of the list */
+    static List<String> randomNames(Random random, List<String> names, int count) {
+        List<String> shuffled = new ArrayList<>(names);
+        Collections.shuffle(shuffled, random);
+        return new ArrayList<>(shuffled.subList(0, count));
+    }
+
+    /** @return Bitset over game indices of the games of the teams */
+    static long[] gamesOf(Dataset dataset, List<String> teams) {
+        long[] games = Bits.create(dataset.getGameCount());
+        for (String team : teams) {
+            for (int game : dataset.getGamesByTeam(team)) Bits.set(games, game);
+        }
+        return games;
+    }
+}